@@ -2,6 +2,7 @@ package com.sanjo.backend.config;
 
 import com.sanjo.backend.security.JWTAuthFilter;
 import com.sanjo.backend.security.CustomUserDetailsService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -45,7 +46,10 @@ public class SecurityConfig {
 
                 // Configure route-level security
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/rooms/**", "/bookings/**", "/users/**", "/auth/**", "/payments/**", "/ai/**")
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
+                        .requestMatchers("/rooms/**", "/bookings/**", "/users/**", "/auth/**", "/payments/**", "/ai/**",
+                                "/pricing/quote")
                         .permitAll() // Public routes
                         .anyRequest().authenticated() // All other routes require authentication
                 )
@@ -73,9 +77,10 @@ public class SecurityConfig {
 
     /**
      * BCrypt password encoder bean to hash and verify passwords securely.
+     * Raising the strength rehashes existing passwords on their next login.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
@@ -0,0 +1,29 @@
+package com.sanjo.backend.controller;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.service.interfac.IAuditService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/audit")
+@RequiredArgsConstructor
+public class AuditController {
+
+    private final IAuditService auditService;
+
+    @GetMapping("/events")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getAuditEvents(@RequestParam(required = false) String entityType,
+                                                   @RequestParam(required = false) String entityId,
+                                                   @RequestParam(required = false) String action,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        Response response = auditService.getAuditEvents(entityType, entityId, action, limit);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
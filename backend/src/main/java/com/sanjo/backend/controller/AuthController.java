@@ -2,6 +2,7 @@ package com.sanjo.backend.controller;
 
 
 import com.sanjo.backend.dto.LoginRequest;
+import com.sanjo.backend.dto.RefreshTokenRequest;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.entity.User;
 import com.sanjo.backend.service.interfac.IUserService;
@@ -9,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -30,4 +32,19 @@ public class AuthController {
         Response response = userService.login(loginRequest);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<Response> refresh(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        Response response = userService.refreshToken(refreshTokenRequest);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Response> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                           @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+        String refreshToken = refreshTokenRequest == null ? null : refreshTokenRequest.getRefreshToken();
+        Response response = userService.logout(accessToken, refreshToken);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
 }
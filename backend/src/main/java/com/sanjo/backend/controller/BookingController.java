@@ -2,29 +2,63 @@ package com.sanjo.backend.controller;
 
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.entity.Booking;
+import com.sanjo.backend.service.implementation.IdempotencyService;
 import com.sanjo.backend.service.interfac.IBookingService;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/bookings")
 @RequiredArgsConstructor
 public class BookingController {
 
     private final IBookingService bookingService;
+    private final IRoomHoldService roomHoldService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping("/book-room/{roomId}/{userId}")
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
     public ResponseEntity<Response> saveBookings(@PathVariable Long roomId,
                                                  @PathVariable Long userId,
-                                                 @RequestBody Booking bookingRequest) {
+                                                 @RequestBody Booking bookingRequest,
+                                                 @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        //A retried request with the same key is answered from the first attempt instead of booking again
+        String fingerprint = roomId + "/" + userId + "/" + bookingRequest.getCheckInDate() + "/" + bookingRequest.getCheckOutDate()
+                + "/" + bookingRequest.getNumOfAdults() + "/" + bookingRequest.getNumOfChildren();
+        Response response = idempotencyService.execute(idempotencyKey, authentication.getName(), fingerprint,
+                () -> bookingService.saveBooking(roomId, userId, bookingRequest));
+        return ResponseEntity.status(response.getStatusCode()).body(response);
 
-        Response response = bookingService.saveBooking(roomId, userId, bookingRequest);
+    }
+
+    @PostMapping("/hold-room/{roomId}/{userId}")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> holdRoom(@PathVariable Long roomId,
+                                             @PathVariable Long userId,
+                                             @RequestBody Booking bookingRequest) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = roomHoldService.holdRoom(authentication.getName(), roomId, userId,
+                bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate());
         return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
 
+    @DeleteMapping("/release-hold/{holdId}")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> releaseHold(@PathVariable String holdId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = roomHoldService.releaseHold(authentication.getName(), holdId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
     @GetMapping("/all")
@@ -34,12 +68,45 @@ public class BookingController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @GetMapping("/archive")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getArchivedBookings(@RequestParam(required = false) Long userId,
+                                                        @RequestParam(required = false) Long roomId,
+                                                        @RequestParam(required = false) String confirmationCode,
+                                                        @RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(defaultValue = "20") int size) {
+        Response response = bookingService.getArchivedBookings(userId, roomId, confirmationCode, page, size);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> searchBookings(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                   @RequestParam(required = false) Long roomId,
+                                                   @RequestParam(required = false) String roomType,
+                                                   @RequestParam(required = false) String email,
+                                                   @RequestParam(required = false) String codePrefix,
+                                                   @RequestParam(defaultValue = "20") int size,
+                                                   @RequestParam(required = false) String cursor) {
+        Response response = bookingService.searchBookings(from, to, roomId, roomType, email, codePrefix, size, cursor);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @GetMapping("/get-by-confirmation-code/{confirmationCode}")
     public ResponseEntity<Response> getBookingByConfirmationCode(@PathVariable String confirmationCode) {
         Response response = bookingService.findBookingByConfirmationCode(confirmationCode);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @GetMapping("/by-confirmation-codes")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> getBookingsByConfirmationCodes(@RequestParam(required = false) List<String> codes) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = bookingService.findBookingsByConfirmationCodes(authentication.getName(), codes);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @DeleteMapping("/cancel/{bookingId}")
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
     public ResponseEntity<Response> cancelBooking(@PathVariable Long bookingId) {
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.dto.RoomDTO;
 import com.sanjo.backend.service.interfac.IRoomService;
+import com.sanjo.backend.service.implementation.ConciergeService;
 import com.sanjo.backend.service.implementation.GeminiService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ChatController {
 
+    private final ConciergeService conciergeService;
     private final GeminiService geminiService;
     private final IRoomService roomService;
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -26,7 +28,7 @@ public class ChatController {
         Response response = new Response();
         try {
             String userMessage = request.get("message");
-            String aiResponse = geminiService.getChatResponse(userMessage);
+            String aiResponse = conciergeService.answer(userMessage);
 
             response.setStatusCode(200);
             response.setMessage(aiResponse);
@@ -1,7 +1,12 @@
 package com.sanjo.backend.controller;
 
 import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.StayQuoteDTO;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.exception.UpstreamUnavailableException;
 import com.sanjo.backend.service.implementation.PaymentService;
+import com.sanjo.backend.service.interfac.IPricingService;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
 import com.stripe.model.PaymentIntent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -10,7 +15,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 @RestController
@@ -19,19 +25,55 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IRoomHoldService roomHoldService;
+    private final IPricingService pricingService;
 
     @PostMapping("/create-payment-intent")
     public ResponseEntity<Response> createPaymentIntent(@RequestBody Map<String, Object> request) {
         Response response = new Response();
         try {
-            BigDecimal amount = new BigDecimal(request.get("amount").toString());
-            PaymentIntent paymentIntent = paymentService.createPaymentIntent(amount);
+            //Refuse to take payment for a room whose hold has already lapsed
+            Object holdId = request.get("holdId");
+            if (holdId != null && !roomHoldService.isHoldActive(holdId.toString())) {
+                response.setStatusCode(404);
+                response.setMessage("Room hold has expired, please select the room again");
+                return ResponseEntity.status(response.getStatusCode()).body(response);
+            }
+
+            //The amount is always priced here from the stay, never taken from the client
+            Object roomId = request.get("roomId");
+            Object checkInDate = request.get("checkInDate");
+            Object checkOutDate = request.get("checkOutDate");
+            if (roomId == null || checkInDate == null || checkOutDate == null) {
+                response.setStatusCode(400);
+                response.setMessage("roomId, checkInDate and checkOutDate are required");
+                return ResponseEntity.status(response.getStatusCode()).body(response);
+            }
+            StayQuoteDTO quote = pricingService.quoteStay(Long.valueOf(roomId.toString()),
+                    LocalDate.parse(checkInDate.toString()), LocalDate.parse(checkOutDate.toString()));
+            PaymentIntent paymentIntent = paymentService.createPaymentIntent(quote.getTotalPrice());
 
             response.setStatusCode(200);
             response.setClientSecret(paymentIntent.getClientSecret());
+            response.setStayQuote(quote);
             response.setMessage("Payment Intent Created");
             return ResponseEntity.ok(response);
 
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+
+        } catch (UpstreamUnavailableException e) {
+            response.setStatusCode(503);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+
         } catch (Exception e) {
             response.setStatusCode(500);
             response.setMessage("Error creating payment intent: " + e.getMessage());
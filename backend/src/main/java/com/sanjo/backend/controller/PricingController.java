@@ -0,0 +1,51 @@
+package com.sanjo.backend.controller;
+
+import com.sanjo.backend.dto.PricingRuleDTO;
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.service.interfac.IPricingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/pricing")
+@RequiredArgsConstructor
+public class PricingController {
+
+    private final IPricingService pricingService;
+
+    @GetMapping("/quote")
+    public ResponseEntity<Response> getStayQuotes(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) List<Long> roomIds) {
+        Response response = pricingService.getStayQuotes(roomIds, checkInDate, checkOutDate);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/rules")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getPricingRules() {
+        Response response = pricingService.getPricingRules();
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PostMapping("/rules")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> addPricingRule(@RequestBody PricingRuleDTO pricingRule) {
+        Response response = pricingService.addPricingRule(pricingRule);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @DeleteMapping("/rules/{ruleId}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> deletePricingRule(@PathVariable Long ruleId) {
+        Response response = pricingService.deletePricingRule(ruleId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
@@ -1,18 +1,24 @@
 package com.sanjo.backend.controller;
 
 import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.service.implementation.AvailabilityStreamService;
 import com.sanjo.backend.service.interfac.IBookingService;
+import com.sanjo.backend.service.interfac.IRoomImportService;
 import com.sanjo.backend.service.interfac.IRoomService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/rooms")
@@ -20,6 +26,8 @@ import java.util.List;
 public class RoomController {
 
     private final IRoomService roomService;
+    private final IRoomImportService roomImportService;
+    private final AvailabilityStreamService availabilityStreamService;
 
     @PostMapping("/add")
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -39,6 +47,20 @@ public class RoomController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @PostMapping("/bulk-import")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> bulkImportRooms(@RequestParam(value = "file", required = false) MultipartFile file)
+            throws IOException {
+        if (file == null || file.isEmpty()) {
+            Response response = new Response();
+            response.setStatusCode(400);
+            response.setMessage("Please provide a CSV file");
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+        }
+        Response response = roomImportService.importRooms(file.getInputStream());
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @GetMapping("/all")
     public ResponseEntity<Response> getAllUsers(){
         Response response = roomService.getAllRooms();
@@ -56,12 +78,35 @@ public class RoomController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @GetMapping("/by-ids")
+    public ResponseEntity<Response> getRoomsByIds(@RequestParam(required = false) List<Long> ids) {
+        Response response = roomService.getRoomsByIds(ids);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @GetMapping("/all-available-rooms")
     public ResponseEntity<Response> getAvailableRooms() {
         Response response = roomService.getAllAvailableRooms();
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    //Server-Sent Events of bookings and cancellations matching the filters; all filters optional
+    @GetMapping(value = "/availability-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAvailability(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) String roomType
+    ) {
+        try {
+            return ResponseEntity.ok(availabilityStreamService.subscribe(roomType, checkInDate, checkOutDate));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            //EventSource gives up on a non-200 answer, so the client reconnects after a back-off
+            return ResponseEntity.status(503).build();
+        }
+    }
+
     @GetMapping("/available-rooms-by-date-and-type")
     public ResponseEntity<Response> getAvailableRoomsByDateAndType(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
@@ -78,6 +123,34 @@ public class RoomController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @GetMapping("/flexible-availability")
+    public ResponseEntity<Response> getFlexibleAvailability(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate windowStart,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate windowEnd,
+            @RequestParam(defaultValue = "1") int nights,
+            @RequestParam(required = false) String roomType,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        Response response = roomService.getFlexibleAvailability(roomType, windowStart, windowEnd, nights, limit);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/availability-by-type")
+    public ResponseEntity<Response> getRoomTypeAvailability(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) String roomType
+    ) {
+        if (checkInDate == null || roomType == null || roomType.isBlank() || checkOutDate == null) {
+            Response response = new Response();
+            response.setStatusCode(400);
+            response.setMessage("Please provide values for all fields(checkInDate, roomType,checkOutDate)");
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+        }
+        Response response = roomService.getRoomTypeAvailability(roomType, checkInDate, checkOutDate);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @PutMapping("/update/{roomId}")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<Response> updateRoom(@PathVariable Long roomId,
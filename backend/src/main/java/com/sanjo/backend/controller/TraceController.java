@@ -0,0 +1,36 @@
+package com.sanjo.backend.controller;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.service.interfac.ITraceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/traces")
+@RequiredArgsConstructor
+public class TraceController {
+
+    private final ITraceService traceService;
+
+    @GetMapping
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getTraces(@RequestParam(required = false) String path,
+                                              @RequestParam(defaultValue = "0") long minDurationMs,
+                                              @RequestParam(defaultValue = "50") int limit) {
+        Response response = traceService.getTraces(path, minDurationMs, limit);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/{traceId}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getTrace(@PathVariable String traceId) {
+        Response response = traceService.getTrace(traceId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sanjo.backend.controller;
 
+import com.sanjo.backend.dto.ChangePasswordRequest;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.service.interfac.IUserService;
 import lombok.RequiredArgsConstructor;
@@ -44,12 +45,40 @@ public class UserController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @GetMapping("/my-stays")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> getMyStays(@RequestParam(value = "upcoming", defaultValue = "3") int upcomingLimit,
+                                               @RequestParam(value = "size", defaultValue = "10") int pastPageSize,
+                                               @RequestParam(value = "pastCursor", required = false) String pastCursor){
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = userService.getMyStays(authentication.getName(), upcomingLimit, pastPageSize, pastCursor);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @GetMapping("/get-user-booking/{userId}")
     public ResponseEntity<Response> getUserBookingHistory(@PathVariable("userId") String userId){
         Response response = userService.getUserBookingHistory(userId);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @PutMapping("/change-password")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> changePassword(@RequestBody ChangePasswordRequest changePasswordRequest){
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = userService.changePassword(authentication.getName(), changePasswordRequest);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PutMapping("/ban/{userId}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> banUser(@PathVariable("userId") String userId,
+                                            @RequestParam(value = "banned", defaultValue = "true") boolean banned){
+        Response response = userService.banUser(userId, banned);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
 
 
 }
@@ -0,0 +1,43 @@
+package com.sanjo.backend.controller;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.WaitlistEntryDTO;
+import com.sanjo.backend.service.interfac.IWaitlistService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/waitlist")
+@RequiredArgsConstructor
+public class WaitlistController {
+
+    private final IWaitlistService waitlistService;
+
+    @PostMapping("/join")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> joinWaitlist(@RequestBody WaitlistEntryDTO waitlistRequest) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = waitlistService.joinWaitlist(authentication.getName(), waitlistRequest);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/mine")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> getUserWaitlist() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = waitlistService.getUserWaitlist(authentication.getName());
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @DeleteMapping("/{entryId}")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> leaveWaitlist(@PathVariable Long entryId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Response response = waitlistService.leaveWaitlist(authentication.getName(), entryId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
@@ -0,0 +1,23 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ArchivedBookingDTO {
+
+    private Long id;
+    private String bookingConfirmationCode;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Integer numOfAdults;
+    private int numOfChildren;
+    private int totalNumOfGuest;
+    private Long roomId;
+    private Long userId;
+    private Instant archivedAt;
+}
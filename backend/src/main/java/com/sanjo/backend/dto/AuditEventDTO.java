@@ -0,0 +1,18 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditEventDTO {
+
+    private Instant timestamp;
+    private String actor;
+    private String action;
+    private String entityType;
+    private String entityId;
+    private String details;
+}
@@ -0,0 +1,15 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingSearchPageDTO {
+
+    private List<BookingSummaryDTO> bookings;
+    //Pass back as cursor with the same filters to get the next page; absent on the last page
+    private String nextCursor;
+}
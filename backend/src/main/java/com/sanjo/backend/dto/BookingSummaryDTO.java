@@ -0,0 +1,29 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+//One row of the admin booking search, selected column by column rather than mapped from entities
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingSummaryDTO {
+
+    private Long id;
+    private String bookingConfirmationCode;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private int numOfAdults;
+    private int numOfChildren;
+    private int totalNumOfGuest;
+    private Long roomId;
+    private String roomType;
+    private Long userId;
+    private String userName;
+    private String userEmail;
+}
@@ -0,0 +1,21 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlexibleStayDTO {
+
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private int nights;
+    private int availableRoomCount;
+    private List<Long> roomIds;
+    private Long cheapestRoomId;
+    private BigDecimal lowestStayPrice;
+}
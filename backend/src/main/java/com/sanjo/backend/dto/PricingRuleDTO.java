@@ -0,0 +1,22 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sanjo.backend.entity.PricingRule.RuleType;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PricingRuleDTO {
+
+    private Long id;
+    private String name;
+    private RuleType ruleType;
+    private String roomType;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Integer minOccupancyPercent;
+    private BigDecimal adjustmentPercent;
+}
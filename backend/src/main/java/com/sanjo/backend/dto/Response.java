@@ -16,19 +16,36 @@ public class Response {
     // confirmation
     private String role;
     private String token;
+    private String refreshToken;
     private String expirationTime;
     private String bookingConfirmationCode;
     private String clientSecret;
+    private Integer availableRoomCount;
 
     // Individual DTO objects — for responses where only one user/room/booking needs
     // to be returned
     private UserDTO user;
     private RoomDTO room;
     private BookingDTO booking;
+    private RoomHoldDTO roomHold;
+    private RoomImportResultDTO roomImportResult;
+    private StayQuoteDTO stayQuote;
+    private PricingRuleDTO pricingRule;
+    private WaitlistEntryDTO waitlistEntry;
+    private UserStaysDTO userStays;
+    private TraceDTO trace;
+    private BookingSearchPageDTO bookingSearchPage;
 
     // Lists of DTOs — for responses like get all users, get all rooms
     private List<UserDTO> userList;
     private List<RoomDTO> roomList;
     private List<BookingDTO> bookingList;
+    private List<AuditEventDTO> auditEventList;
+    private List<StayQuoteDTO> stayQuoteList;
+    private List<PricingRuleDTO> pricingRuleList;
+    private List<WaitlistEntryDTO> waitlistEntryList;
+    private List<FlexibleStayDTO> flexibleStayList;
+    private List<ArchivedBookingDTO> archivedBookingList;
+    private List<TraceDTO> traceList;
 
 }
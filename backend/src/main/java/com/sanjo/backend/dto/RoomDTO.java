@@ -14,5 +14,7 @@ public class RoomDTO {
     private BigDecimal roomPrice;
     private String roomPhotoUrl;
     private String roomDescription;
+    //Total for the searched dates, when the room was found by a date search
+    private BigDecimal stayPrice;
     private List<BookingDTO> bookings;
 }
@@ -0,0 +1,19 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RoomHoldDTO {
+
+    private String holdId;
+    private Long roomId;
+    private Long userId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,20 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StayQuoteDTO {
+
+    private Long roomId;
+    private String roomType;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private int nights;
+    private BigDecimal totalPrice;
+    private BigDecimal averageNightlyPrice;
+}
@@ -0,0 +1,25 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TraceDTO {
+
+    private String traceId;
+    private String method;
+    private String path;
+    private int statusCode;
+    private Instant startedAt;
+    private long durationMicros;
+    //Self time per span kind; together they add up to durationMicros
+    private Map<String, Long> breakdownMicros;
+    private List<TraceSpanDTO> spans;
+    //Spans beyond tracing.max-spans, counted but not recorded
+    private int droppedSpans;
+}
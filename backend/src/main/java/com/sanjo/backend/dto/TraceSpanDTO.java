@@ -0,0 +1,18 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TraceSpanDTO {
+
+    private String kind;
+    private String name;
+    private int depth;
+    //From the start of the request
+    private long startMicros;
+    private long durationMicros;
+    //Duration minus that of the direct child spans
+    private long selfMicros;
+}
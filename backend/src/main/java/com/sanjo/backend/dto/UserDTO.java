@@ -16,5 +16,6 @@ public class UserDTO {
     private String name;
     private String phoneNumber;
     private String role;
+    private boolean banned;
     private List<BookingDTO> bookings = new ArrayList<>();
 }
@@ -0,0 +1,18 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserStaysDTO {
+
+    private Long upcomingCount;
+    private Long pastCount;
+    private List<BookingDTO> upcomingStays;
+    private List<BookingDTO> pastStays;
+    //Pass back as pastCursor to get the next page of past stays; absent on the last page
+    private String nextPastCursor;
+}
@@ -0,0 +1,24 @@
+package com.sanjo.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sanjo.backend.entity.WaitlistEntry.Status;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaitlistEntryDTO {
+
+    private Long id;
+    private Long userId;
+    private String roomType;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Status status;
+    private Instant createdAt;
+    private Long offeredRoomId;
+    private String holdId;
+    private Instant offerExpiresAt;
+}
@@ -0,0 +1,45 @@
+package com.sanjo.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A stay moved out of bookings by the archival job; read only.
+ * Room and user are plain ids, since either may have been deleted since.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "bookings_archive")
+public class ArchivedBooking {
+
+    @Id
+    private Long id;
+
+    private String bookingConfirmationCode;
+
+    @Column(nullable = false)
+    private LocalDate checkInDate;
+
+    private LocalDate checkOutDate;
+
+    @Column(name = "num_of_adult")
+    private Integer numOfAdults;
+
+    @Column(nullable = false)
+    private int numOfChildren;
+
+    @Column(nullable = false)
+    private int totalNumOfGuest;
+
+    private Long roomId;
+
+    private Long userId;
+
+    @Column(nullable = false)
+    private Instant archivedAt;
+}
@@ -0,0 +1,58 @@
+package com.sanjo.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "pricing_rules")
+public class PricingRule {
+
+    public enum RuleType {
+        //Friday and Saturday nights
+        WEEKEND,
+        //Every night between startDate and endDate
+        SEASON,
+        //Nights on which at least minOccupancyPercent of the room type is booked
+        OCCUPANCY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private RuleType ruleType;
+
+    //null applies to every room type
+    private String roomType;
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Integer minOccupancyPercent;
+
+    //+20 raises the nightly price by 20%, -10 lowers it by 10%
+    @Column(nullable = false, precision = 7, scale = 2)
+    private BigDecimal adjustmentPercent;
+
+    @Override
+    public String toString() {
+        return "PricingRule{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", ruleType=" + ruleType +
+                ", roomType='" + roomType + '\'' +
+                ", startDate=" + startDate +
+                ", endDate=" + endDate +
+                ", minOccupancyPercent=" + minOccupancyPercent +
+                ", adjustmentPercent=" + adjustmentPercent +
+                '}';
+    }
+}
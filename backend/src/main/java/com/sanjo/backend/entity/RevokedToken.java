@@ -0,0 +1,36 @@
+package com.sanjo.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+
+    //A token id (jti), or "user:<id>" to revoke every token of that user issued up to issuedBefore
+    @Id
+    @Column(name = "token_key", length = 64)
+    private String tokenKey;
+
+    private Instant issuedBefore;
+
+    //After this instant every token covered by the row has expired on its own
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Override
+    public String toString() {
+        return "RevokedToken{" +
+                "tokenKey='" + tokenKey + '\'' +
+                ", issuedBefore=" + issuedBefore +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
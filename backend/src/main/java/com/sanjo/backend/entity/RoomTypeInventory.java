@@ -0,0 +1,27 @@
+package com.sanjo.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "room_type_inventory",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"room_type", "stay_date"}))
+public class RoomTypeInventory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "room_type", nullable = false)
+    private String roomType;
+
+    //The night starting on this date
+    @Column(name = "stay_date", nullable = false)
+    private LocalDate stayDate;
+
+    //Rooms of this type still free for the night
+    private int available;
+}
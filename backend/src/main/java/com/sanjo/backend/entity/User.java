@@ -37,6 +37,9 @@ public class User implements UserDetails {
     private String password;
     private String role;
 
+    //Banned users cannot log in or refresh, and their outstanding tokens are revoked
+    private boolean banned;
+
     @OneToMany(mappedBy = "user",fetch = FetchType.LAZY,cascade = CascadeType.ALL)
     //Cascade for if we delete user, we also need to delete bookings of user
     private List<Booking> bookings = new ArrayList<>();
@@ -61,7 +64,7 @@ public class User implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return true;
+        return !banned;
     }
 
     @Override
@@ -0,0 +1,68 @@
+package com.sanjo.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "waitlist_entries")
+public class WaitlistEntry {
+
+    public enum Status {
+        //Registered, waiting for nights to free up
+        WAITING,
+        //A room is held for the guest until offerExpiresAt
+        OFFERED,
+        //The guest booked the offered room
+        BOOKED,
+        //The offer lapsed or the stay is already in the past
+        EXPIRED,
+        //The guest left the waitlist
+        CANCELLED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private String roomType;
+
+    @Column(nullable = false)
+    private LocalDate checkInDate;
+
+    @Column(nullable = false)
+    private LocalDate checkOutDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Long offeredRoomId;
+    private String holdId;
+    private Instant offerExpiresAt;
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" +
+                "id=" + id +
+                ", roomType='" + roomType + '\'' +
+                ", checkInDate=" + checkInDate +
+                ", checkOutDate=" + checkOutDate +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                ", offeredRoomId=" + offeredRoomId +
+                ", offerExpiresAt=" + offerExpiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,9 @@
+package com.sanjo.backend.exception;
+
+//Thrown without calling the upstream service while its circuit breaker is open or its bulkhead is full
+public class UpstreamUnavailableException extends RuntimeException{
+
+    public UpstreamUnavailableException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.sanjo.backend.outbox;
+
+//Outbox event types written by BookingService; the payload carries the booking's code, room, guest and dates
+public final class BookingEvents {
+
+    public static final String BOOKING_CREATED = "BOOKING_CREATED";
+    public static final String BOOKING_CANCELLED = "BOOKING_CANCELLED";
+
+    private BookingEvents() {
+    }
+}
@@ -0,0 +1,37 @@
+package com.sanjo.backend.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Booking analytics: counts created and cancelled bookings per room type. A redelivered event is counted again,
+ * which analytics tolerates; handlers with external effects should key on the event id instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingMetricsHandler implements OutboxEventHandler {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public String name() {
+        return "booking-metrics";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return BookingEvents.BOOKING_CREATED.equals(eventType) || BookingEvents.BOOKING_CANCELLED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Counter.builder("bookings.events")
+                .description("Booking changes delivered through the outbox")
+                .tag("type", event.eventType())
+                .tag("roomType", event.payload().path("roomType").asText("unknown"))
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,59 @@
+package com.sanjo.backend.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Records that a change happened, inside the transaction making the change: the event is stored only if the change
+ * commits, and is delivered by OutboxDispatcher afterwards instead of slowing down or failing the change itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class Outbox {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<OutboxEventHandler> handlers;
+    private final OutboxDispatcher outboxDispatcher;
+
+    public void enqueue(String eventType, long aggregateId, Object payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be written in the transaction of the change they describe");
+        }
+        List<String> subscribers = handlers.stream()
+                .filter(handler -> handler.handles(eventType))
+                .map(OutboxEventHandler::name)
+                .toList();
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize " + eventType + " event: " + e.getMessage(), e);
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_events (handler, event_type, aggregate_id, payload) VALUES (?, ?, ?, ?)",
+                subscribers, subscribers.size(), (ps, handler) -> {
+                    ps.setString(1, handler);
+                    ps.setString(2, eventType);
+                    ps.setLong(3, aggregateId);
+                    ps.setString(4, json);
+                });
+        //Delivered right after the commit rather than at the next poll
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxDispatcher.wakeUp();
+            }
+        });
+    }
+}
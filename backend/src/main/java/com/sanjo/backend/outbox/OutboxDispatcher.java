@@ -0,0 +1,319 @@
+package com.sanjo.backend.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers outbox events to their handlers. Each batch is claimed with FOR UPDATE SKIP LOCKED and a lease on
+ * next_attempt_at, so several nodes can dispatch side by side without delivering the same row twice while it is
+ * in flight. Only the oldest pending event of a booking is claimable per handler, which keeps a booking's events
+ * in order; a failed event is retried with exponential backoff and parked as DEAD after max-attempts.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private static final long STATS_REFRESH_MILLIS = 5000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OutboxEventHandler> handlers = new LinkedHashMap<>();
+    private final Semaphore wakeups = new Semaphore(0);
+
+    @Value("${outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${outbox.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${outbox.lease-seconds:60}")
+    private int leaseSeconds;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.backoff-initial-ms:1000}")
+    private long backoffInitialMillis;
+
+    @Value("${outbox.backoff-max-ms:600000}")
+    private long backoffMaxMillis;
+
+    @Value("${outbox.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    private volatile boolean running;
+    private Thread dispatcherThread;
+    private ExecutorService deliveryPool;
+    private volatile Stats stats = new Stats(0, 0, 0, 0);
+
+    public OutboxDispatcher(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                            List<OutboxEventHandler> handlers, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        for (OutboxEventHandler handler : handlers) {
+            if (this.handlers.putIfAbsent(handler.name(), handler) != null) {
+                throw new IllegalStateException("Duplicate outbox handler name: " + handler.name());
+            }
+        }
+
+        Gauge.builder("outbox.pending", this, dispatcher -> dispatcher.currentStats().pending())
+                .description("Outbox events waiting to be delivered")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dead", this, dispatcher -> dispatcher.currentStats().dead())
+                .description("Outbox events that ran out of attempts")
+                .register(meterRegistry);
+        Gauge.builder("outbox.oldest.pending.seconds", this, dispatcher -> dispatcher.currentStats().oldestSeconds())
+                .description("Age of the oldest outbox event waiting to be delivered")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || handlers.isEmpty() || running) {
+            return;
+        }
+        running = true;
+        AtomicInteger threadCount = new AtomicInteger();
+        deliveryPool = Executors.newFixedThreadPool(Math.max(1, dispatchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "outbox-delivery-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcherThread = new Thread(this::run, "outbox-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+        }
+        if (deliveryPool != null) {
+            deliveryPool.shutdown();
+        }
+    }
+
+    //Called after a transaction that enqueued events has committed
+    public void wakeUp() {
+        if (running && wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    //Claims and delivers one batch; returns the number of events claimed
+    public int dispatchBatch() {
+        List<OutboxEvent> claimed = claim();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        if (deliveryPool == null || claimed.size() == 1) {
+            claimed.forEach(this::deliver);
+            return claimed.size();
+        }
+        List<Callable<Void>> deliveries = new ArrayList<>(claimed.size());
+        for (OutboxEvent event : claimed) {
+            deliveries.add(() -> {
+                deliver(event);
+                return null;
+            });
+        }
+        try {
+            deliveryPool.invokeAll(deliveries);
+        } catch (InterruptedException e) {
+            //Undelivered events keep their lease and are claimed again once it expires
+            Thread.currentThread().interrupt();
+        }
+        return claimed.size();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                //A full batch means more is probably due, so go again without waiting
+                if (dispatchBatch() < batchSize) {
+                    wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.warn("Outbox dispatch failed, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<OutboxEvent> claim() {
+        if (handlers.isEmpty()) {
+            return List.of();
+        }
+        //Rows of handlers this node does not know (e.g. during a rolling deploy) are left to the nodes that do
+        String placeholders = String.join(", ", Collections.nCopies(handlers.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(leaseSeconds);
+        args.addAll(handlers.keySet());
+        args.add(batchSize);
+        return jdbcTemplate.query("""
+                UPDATE outbox_events SET attempts = attempts + 1,
+                       next_attempt_at = now() + (? * INTERVAL '1 second')
+                WHERE id IN (
+                    SELECT o.id FROM outbox_events o
+                    WHERE o.status = 'PENDING' AND o.next_attempt_at <= now() AND o.handler IN (%s)
+                      AND NOT EXISTS (SELECT 1 FROM outbox_events e
+                                      WHERE e.handler = o.handler AND e.aggregate_id = o.aggregate_id
+                                        AND e.id < o.id AND e.status = 'PENDING')
+                    ORDER BY o.next_attempt_at, o.id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING id, handler, event_type, aggregate_id, payload, attempts, created_at
+                """.formatted(placeholders), this::mapEvent, args.toArray());
+    }
+
+    private OutboxEvent mapEvent(ResultSet rs, int rowNum) throws SQLException {
+        try {
+            return new OutboxEvent(
+                    rs.getLong("id"),
+                    rs.getString("handler"),
+                    rs.getString("event_type"),
+                    rs.getLong("aggregate_id"),
+                    objectMapper.readTree(rs.getString("payload")),
+                    rs.getInt("attempts"),
+                    rs.getTimestamp("created_at").toInstant());
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Unreadable outbox payload for event " + rs.getLong("id"), e);
+        }
+    }
+
+    private void deliver(OutboxEvent event) {
+        try {
+            handlers.get(event.handler()).handle(event);
+        } catch (Exception e) {
+            fail(event, e);
+            return;
+        }
+        try {
+            jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ?", event.id());
+        } catch (Exception e) {
+            //Delivered again once the lease expires; handlers tolerate duplicates
+            log.warn("Unable to mark outbox event {} delivered: {}", event.id(), e.getMessage());
+            return;
+        }
+        Timer.builder("outbox.delivery.lag")
+                .description("Time from the booking change committing to its side effect completing")
+                .tag("handler", event.handler())
+                .register(meterRegistry)
+                .record(Duration.between(event.createdAt(), Instant.now()));
+        count(event, "delivered");
+    }
+
+    private void fail(OutboxEvent event, Exception e) {
+        String error = e.toString();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        try {
+            if (event.attempt() >= maxAttempts) {
+                jdbcTemplate.update("UPDATE outbox_events SET status = 'DEAD', last_error = ? WHERE id = ?",
+                        error, event.id());
+                log.error("Outbox event {} ({} for booking {}) failed in {} after {} attempts, giving up: {}",
+                        event.id(), event.eventType(), event.aggregateId(), event.handler(), event.attempt(), error);
+                count(event, "dead");
+                return;
+            }
+            long delayMillis = backoffMillis(event.attempt());
+            jdbcTemplate.update("""
+                    UPDATE outbox_events SET next_attempt_at = now() + (? * INTERVAL '1 millisecond'), last_error = ?
+                    WHERE id = ?
+                    """, delayMillis, error, event.id());
+            log.warn("Outbox event {} failed in {} (attempt {}), retrying in {} ms: {}",
+                    event.id(), event.handler(), event.attempt(), delayMillis, error);
+            count(event, "retried");
+        } catch (Exception updateFailure) {
+            log.warn("Unable to reschedule outbox event {}: {}", event.id(), updateFailure.getMessage());
+        }
+    }
+
+    //Doubles per attempt up to the cap, with jitter so events that failed together do not retry together
+    private long backoffMillis(int attempt) {
+        long ceiling = backoffInitialMillis << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > backoffMaxMillis) {
+            ceiling = backoffMaxMillis;
+        }
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void count(OutboxEvent event, String outcome) {
+        Counter.builder("outbox.deliveries")
+                .description("Outbox deliveries by handler and outcome")
+                .tag("handler", event.handler())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    //One aggregate query shared by the three gauges, run at most every few seconds however often they are scraped
+    private Stats currentStats() {
+        Stats current = stats;
+        long now = System.currentTimeMillis();
+        if (now - current.loadedAt() < STATS_REFRESH_MILLIS) {
+            return current;
+        }
+        try {
+            current = jdbcTemplate.queryForObject("""
+                    SELECT count(*) FILTER (WHERE status = 'PENDING') AS pending,
+                           count(*) FILTER (WHERE status = 'DEAD') AS dead,
+                           COALESCE(EXTRACT(EPOCH FROM now() - min(created_at) FILTER (WHERE status = 'PENDING')), 0)
+                               AS oldest_seconds
+                    FROM outbox_events
+                    """, (rs, rowNum) -> new Stats(rs.getLong("pending"), rs.getLong("dead"),
+                    rs.getDouble("oldest_seconds"), now));
+        } catch (Exception e) {
+            current = new Stats(current.pending(), current.dead(), current.oldestSeconds(), now);
+        }
+        stats = current;
+        return current;
+    }
+
+    private record Stats(long pending, long dead, double oldestSeconds, long loadedAt) {
+    }
+}
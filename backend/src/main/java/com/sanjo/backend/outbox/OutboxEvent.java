@@ -0,0 +1,15 @@
+package com.sanjo.backend.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+/**
+ * One delivery of an outbox event to one handler.
+ *
+ * @param id      stable across retries, so handlers can use it to drop duplicates
+ * @param attempt 1 on the first delivery
+ */
+public record OutboxEvent(long id, String handler, String eventType, long aggregateId, JsonNode payload,
+                          int attempt, Instant createdAt) {
+}
@@ -0,0 +1,16 @@
+package com.sanjo.backend.outbox;
+
+/**
+ * Side effect of a booking change, run by OutboxDispatcher after the change has committed. Every bean implementing
+ * this gets its own copy of each event it handles. Delivery is at least once and, per booking, in order:
+ * a handler that throws is retried with backoff, so handle must tolerate seeing an event id again.
+ */
+public interface OutboxEventHandler {
+
+    //Stored with each pending event, so it must stay the same across releases
+    String name();
+
+    boolean handles(String eventType);
+
+    void handle(OutboxEvent event) throws Exception;
+}
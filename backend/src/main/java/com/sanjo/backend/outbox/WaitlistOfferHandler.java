@@ -0,0 +1,35 @@
+package com.sanjo.backend.outbox;
+
+import com.sanjo.backend.service.interfac.IWaitlistService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Offers the nights of a cancelled booking to guests waiting for its room type. A redelivered event matches the
+ * waitlist again, which only offers rooms that are still free to entries that are still waiting.
+ */
+@Component
+@RequiredArgsConstructor
+public class WaitlistOfferHandler implements OutboxEventHandler {
+
+    private final IWaitlistService waitlistService;
+
+    @Override
+    public String name() {
+        return "waitlist-offer";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return BookingEvents.BOOKING_CANCELLED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        waitlistService.offerFreedNights(event.payload().path("roomType").asText(null),
+                LocalDate.parse(event.payload().path("checkInDate").asText()),
+                LocalDate.parse(event.payload().path("checkOutDate").asText()));
+    }
+}
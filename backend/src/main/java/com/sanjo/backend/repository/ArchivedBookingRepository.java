@@ -0,0 +1,20 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.entity.ArchivedBooking;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    //Each filter is skipped when null
+    @Query("SELECT a FROM ArchivedBooking a WHERE (:userId IS NULL OR a.userId = :userId) " +
+            "AND (:roomId IS NULL OR a.roomId = :roomId) " +
+            "AND (:confirmationCode IS NULL OR a.bookingConfirmationCode = :confirmationCode) " +
+            "ORDER BY a.checkInDate DESC, a.id DESC")
+    List<ArchivedBooking> search(Long userId, Long roomId, String confirmationCode, Pageable pageable);
+}
@@ -1,17 +1,59 @@
 package com.sanjo.backend.repository;
 
 import com.sanjo.backend.entity.Booking;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking,Long> {
+public interface BookingRepository extends JpaRepository<Booking,Long>, BookingSearchRepository {
 
     List<Booking> findBookingByRoomId(Long roomId);
     Optional<Booking> findBookingByBookingConfirmationCode(String confirmationCode);
+
+    //Room and user fetched in the same query, so mapping a batch does not issue one query per booking
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.room LEFT JOIN FETCH b.user " +
+            "WHERE b.bookingConfirmationCode IN :confirmationCodes")
+    List<Booking> findAllByConfirmationCodes(Collection<String> confirmationCodes);
+
+    //Same for the admin list of every booking
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.room LEFT JOIN FETCH b.user")
+    List<Booking> findAllWithRoomAndUser(Sort sort);
+
     List<Booking> findByUserId(Long userId);
 
+    long countByUserIdAndCheckOutDateGreaterThanEqual(Long userId, LocalDate date);
+    long countByUserIdAndCheckOutDateBefore(Long userId, LocalDate date);
+
+    //Stays of the user that have not ended yet, soonest first
+    @Query("SELECT b FROM Booking b JOIN FETCH b.room JOIN FETCH b.user WHERE b.user.id = :userId " +
+            "AND b.checkOutDate >= :today ORDER BY b.checkInDate, b.id")
+    List<Booking> findUpcomingStays(Long userId, LocalDate today, Limit limit);
+
+    //Ended stays of the user strictly after the (checkOutDate, id) cursor, most recent first
+    @Query("SELECT b FROM Booking b JOIN FETCH b.room JOIN FETCH b.user WHERE b.user.id = :userId " +
+            "AND b.checkOutDate < :today AND (b.checkOutDate < :afterCheckOut " +
+            "OR (b.checkOutDate = :afterCheckOut AND b.id < :afterId)) ORDER BY b.checkOutDate DESC, b.id DESC")
+    List<Booking> findPastStaysBefore(Long userId, LocalDate today, LocalDate afterCheckOut, Long afterId, Limit limit);
+
+    //Bookings of the room checking in on or after the date; the lower bound prunes older check-in partitions
+    List<Booking> findByRoomIdAndCheckInDateGreaterThanEqual(Long roomId, LocalDate checkInDate);
+
+    //Room id, check-in and check-out of every booking of the rooms touching [from, to], without loading entities.
+    //earliestCheckIn (BookingPartitionService.earliestOverlappingCheckIn) lets the planner skip older partitions
+    @Query("SELECT b.room.id, b.checkInDate, b.checkOutDate FROM Booking b WHERE b.room.id IN :roomIds " +
+            "AND b.checkInDate >= :earliestCheckIn AND b.checkInDate <= :to AND b.checkOutDate >= :from")
+    List<Object[]> findStayRangesOverlapping(Collection<Long> roomIds, LocalDate from, LocalDate to, LocalDate earliestCheckIn);
+
+    @Query("SELECT COUNT(b) > 0 FROM Booking b WHERE b.room.id = :roomId AND b.checkInDate >= :earliestCheckIn AND " +
+            "b.checkInDate <= :checkOutDate AND b.checkOutDate >= :checkInDate")
+    boolean existsOverlappingBooking(Long roomId, LocalDate checkInDate, LocalDate checkOutDate, LocalDate earliestCheckIn);
+
 }
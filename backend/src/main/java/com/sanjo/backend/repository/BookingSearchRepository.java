@@ -0,0 +1,13 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.dto.BookingSummaryDTO;
+import com.sanjo.backend.entity.Booking;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface BookingSearchRepository {
+
+    //Bookings matching spec as summaries, latest check-in first, without loading entities
+    List<BookingSummaryDTO> findSummaries(Specification<Booking> spec, int limit);
+}
@@ -0,0 +1,65 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.dto.BookingSummaryDTO;
+import com.sanjo.backend.entity.Booking;
+import com.sanjo.backend.entity.Room;
+import com.sanjo.backend.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Criteria implementation of BookingSearchRepository. The select list names only the columns of BookingSummaryDTO,
+ * and each query is capped by bookings.search.timeout-ms so an unselective filter cannot hold a connection for long.
+ */
+class BookingSearchRepositoryImpl implements BookingSearchRepository {
+
+    private final EntityManager entityManager;
+    private final int timeoutMillis;
+
+    BookingSearchRepositoryImpl(EntityManager entityManager,
+                                @Value("${bookings.search.timeout-ms:5000}") int timeoutMillis) {
+        this.entityManager = entityManager;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public List<BookingSummaryDTO> findSummaries(Specification<Booking> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingSummaryDTO> query = cb.createQuery(BookingSummaryDTO.class);
+        Root<Booking> booking = query.from(Booking.class);
+        Join<Booking, Room> room = booking.join("room");
+        Join<Booking, User> user = booking.join("user");
+
+        query.select(cb.construct(BookingSummaryDTO.class,
+                booking.get("id"),
+                booking.get("bookingConfirmationCode"),
+                booking.get("checkInDate"),
+                booking.get("checkOutDate"),
+                booking.get("numOfAdults"),
+                booking.get("numOfChildren"),
+                booking.get("totalNumOfGuest"),
+                room.get("id"),
+                room.get("roomType"),
+                user.get("id"),
+                user.get("name"),
+                user.get("email")));
+        Predicate predicate = spec.toPredicate(booking, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.desc(booking.get("checkInDate")), cb.desc(booking.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .setHint("jakarta.persistence.query.timeout", timeoutMillis)
+                .getResultList();
+    }
+}
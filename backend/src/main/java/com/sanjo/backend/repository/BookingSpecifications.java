@@ -0,0 +1,69 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.entity.Booking;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of the admin booking search, combined with Specification.allOf. Each one is written so an index can
+ * serve it: dates and the keyset cursor on check_in_date, the code prefix as a left-anchored LIKE, the email through
+ * the lower(email) index on users.
+ */
+public final class BookingSpecifications {
+
+    private BookingSpecifications() {
+    }
+
+    public static Specification<Booking> checkOutOnOrAfter(LocalDate date) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("checkOutDate"), date);
+    }
+
+    public static Specification<Booking> checkInOnOrBefore(LocalDate date) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("checkInDate"), date);
+    }
+
+    //Lets the planner skip partitions of check-ins before the date
+    public static Specification<Booking> checkInOnOrAfter(LocalDate date) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("checkInDate"), date);
+    }
+
+    public static Specification<Booking> roomIdEquals(Long roomId) {
+        return (root, query, cb) -> cb.equal(root.get("room").get("id"), roomId);
+    }
+
+    public static Specification<Booking> roomTypeEquals(String roomType) {
+        return (root, query, cb) -> cb.equal(join(root, "room").get("roomType"), roomType);
+    }
+
+    public static Specification<Booking> userEmailEquals(String email) {
+        return (root, query, cb) -> cb.equal(cb.lower(join(root, "user").get("email")), email.toLowerCase());
+    }
+
+    public static Specification<Booking> confirmationCodeStartsWith(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get("bookingConfirmationCode"), pattern, '\\');
+    }
+
+    //Strictly after the (checkInDate, id) cursor in the search order, latest check-in first
+    public static Specification<Booking> before(LocalDate checkInDate, long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("checkInDate"), checkInDate),
+                cb.and(cb.equal(root.get("checkInDate"), checkInDate), cb.lessThan(root.get("id"), id)));
+    }
+
+    //Reuses the join the projection already made, so a filter on the room or user does not join it twice
+    @SuppressWarnings("unchecked")
+    private static <X> Join<Booking, X> join(Root<Booking> root, String attribute) {
+        for (Join<Booking, ?> join : root.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute) && join.getJoinType() == JoinType.INNER) {
+                return (Join<Booking, X>) join;
+            }
+        }
+        return root.join(attribute);
+    }
+}
@@ -0,0 +1,9 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.entity.PricingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PricingRuleRepository extends JpaRepository<PricingRule, Long> {
+}
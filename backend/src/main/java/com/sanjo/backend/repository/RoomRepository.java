@@ -14,15 +14,19 @@ public interface RoomRepository extends JpaRepository<Room, Long> {
     @Query("SELECT DISTINCT r.roomType FROM Room r")
     List<String> findDistinctRoomTypes();
 
+    List<Room> findByRoomType(String roomType);
+
     @Query("SELECT r FROM Room r WHERE r.id NOT IN (SELECT b.room.id FROM Booking b)")
     List<Room> getAllAvailableRooms();
 
 
+    //earliestCheckIn (BookingPartitionService.earliestOverlappingCheckIn) lets the planner skip older booking partitions
     @Query("SELECT r FROM Room r WHERE r.roomType LIKE %:roomType% AND r.id NOT IN " +
-            "(SELECT bk.room.id FROM Booking bk WHERE" +
+            "(SELECT bk.room.id FROM Booking bk WHERE bk.checkInDate >= :earliestCheckIn AND " +
             "(bk.checkInDate <= :checkOutDate AND (bk.checkOutDate >= :checkInDate)))")
     List<Room> findAllAvailableRoomsByDatesAndTypes(LocalDate checkInDate,
                                                     LocalDate checkOutDate,
-                                                    String roomType
+                                                    String roomType,
+                                                    LocalDate earliestCheckIn
     );
 }
@@ -0,0 +1,48 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.entity.RoomTypeInventory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+@Repository
+public interface RoomTypeInventoryRepository extends JpaRepository<RoomTypeInventory, Long> {
+
+    @Query("SELECT COUNT(i) FROM RoomTypeInventory i WHERE i.roomType = :roomType " +
+            "AND i.stayDate >= :checkInDate AND i.stayDate < :checkOutDate")
+    long countNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+
+    @Query("SELECT MIN(i.available) FROM RoomTypeInventory i WHERE i.roomType = :roomType " +
+            "AND i.stayDate >= :checkInDate AND i.stayDate < :checkOutDate")
+    Integer findMinAvailable(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+
+    //Creates missing night counters from the room and booking tables; existing counters are left untouched
+    @Modifying
+    @Query(value = "INSERT INTO room_type_inventory (room_type, stay_date, available) " +
+            "SELECT :roomType, CAST(night AS date), GREATEST(" +
+            "(SELECT COUNT(*) FROM room r WHERE r.room_type = :roomType) - " +
+            "(SELECT COUNT(*) FROM bookings b JOIN room r ON r.id = b.room_id WHERE r.room_type = :roomType " +
+            "AND b.check_in_date >= CAST(:earliestCheckIn AS date) " +
+            "AND b.check_in_date <= CAST(night AS date) AND b.check_out_date > CAST(night AS date)), 0) " +
+            "FROM generate_series(CAST(:checkInDate AS date), CAST(:checkOutDate AS date) - 1, INTERVAL '1 day') AS night " +
+            "ON CONFLICT (room_type, stay_date) DO NOTHING", nativeQuery = true)
+    int seedNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate, LocalDate earliestCheckIn);
+
+    @Modifying
+    @Query("UPDATE RoomTypeInventory i SET i.available = i.available - 1 WHERE i.roomType = :roomType " +
+            "AND i.stayDate >= :checkInDate AND i.stayDate < :checkOutDate AND i.available > 0")
+    int decrementIfPositive(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+
+    @Modifying
+    @Query("UPDATE RoomTypeInventory i SET i.available = i.available + 1 WHERE i.roomType = :roomType " +
+            "AND i.stayDate >= :checkInDate AND i.stayDate < :checkOutDate")
+    int increment(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+
+    @Modifying
+    @Query("DELETE FROM RoomTypeInventory i WHERE i.roomType IN :roomTypes")
+    int deleteByRoomTypes(Collection<String> roomTypes);
+}
@@ -2,6 +2,7 @@ package com.sanjo.backend.repository;
 
 import com.sanjo.backend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +12,11 @@ public interface UserRepository extends JpaRepository<User,Long> {
 
     boolean existsByEmail(String email);
     Optional<User> findByEmail(String email);
+
+    //Bookings and their rooms fetched with the user, for views listing every stay of the user
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.bookings b LEFT JOIN FETCH b.room WHERE u.id = :id")
+    Optional<User> findWithBookingsAndRoomsById(Long id);
+
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.bookings b LEFT JOIN FETCH b.room WHERE u.email = :email")
+    Optional<User> findWithBookingsAndRoomsByEmail(String email);
 }
@@ -0,0 +1,46 @@
+package com.sanjo.backend.repository;
+
+import com.sanjo.backend.entity.WaitlistEntry;
+import com.sanjo.backend.entity.WaitlistEntry.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+//Updates are conditional on the current status, so two nodes can never both act on the same entry
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    List<WaitlistEntry> findByStatus(Status status);
+
+    List<WaitlistEntry> findByUserIdOrderByIdDesc(Long userId);
+
+    List<WaitlistEntry> findByStatusAndOfferExpiresAtBefore(Status status, Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE WaitlistEntry w SET w.status = :to WHERE w.id = :id AND w.status = :from")
+    int transition(Long id, Status from, Status to);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE WaitlistEntry w SET w.status = :offered, w.offeredRoomId = :roomId, w.holdId = :holdId, " +
+            "w.offerExpiresAt = :expiresAt WHERE w.id = :id AND w.status = :waiting")
+    int markOffered(Long id, Long roomId, String holdId, Instant expiresAt, Status waiting, Status offered);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE WaitlistEntry w SET w.status = :booked WHERE w.user.id = :userId AND w.offeredRoomId = :roomId " +
+            "AND w.checkInDate = :checkInDate AND w.checkOutDate = :checkOutDate AND w.status = :offered")
+    int markBooked(Long userId, Long roomId, LocalDate checkInDate, LocalDate checkOutDate, Status offered, Status booked);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE WaitlistEntry w SET w.status = :expired WHERE w.status = :waiting AND w.checkInDate < :today")
+    int expireStarted(LocalDate today, Status waiting, Status expired);
+}
@@ -0,0 +1,117 @@
+package com.sanjo.backend.resilience;
+
+import com.sanjo.backend.exception.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bulkhead plus circuit breaker in front of one upstream service. A call needs a free slot (waiting at most
+ * maxWaitMillis) and a closed or probing breaker, otherwise it fails fast with UpstreamUnavailableException so the
+ * caller can fall back. The deadline itself is enforced by the upstream's HTTP client, configured from getSettings.
+ * Exceptions the upstream raises for a bad request (callerFault) do not count against it.
+ */
+@Slf4j
+public class OutboundGuard {
+
+    @FunctionalInterface
+    public interface OutboundCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String upstream;
+    private final OutboundSettings settings;
+    private final Predicate<Throwable> callerFault;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter shortCircuited;
+    private final Counter bulkheadFull;
+
+    public OutboundGuard(String upstream, OutboundSettings settings, Predicate<Throwable> callerFault,
+                         MeterRegistry meterRegistry) {
+        this.upstream = upstream;
+        this.settings = settings;
+        this.callerFault = callerFault;
+        this.bulkhead = new Semaphore(Math.max(settings.maxConcurrent(), 1));
+        this.circuitBreaker = new CircuitBreaker(settings.windowSize(), settings.minimumCalls(),
+                settings.failureRateThreshold(), settings.openMillis(), settings.halfOpenProbes());
+
+        Gauge.builder("outbound.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 closed, 1 open, 2 half-open")
+                .tag("upstream", upstream)
+                .register(meterRegistry);
+        Gauge.builder("outbound.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("upstream", upstream)
+                .register(meterRegistry);
+        this.succeeded = outcomeCounter(meterRegistry, "success");
+        this.failed = outcomeCounter(meterRegistry, "failure");
+        this.shortCircuited = outcomeCounter(meterRegistry, "short_circuited");
+        this.bulkheadFull = outcomeCounter(meterRegistry, "bulkhead_full");
+    }
+
+    public OutboundSettings getSettings() {
+        return settings;
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    public <T, E extends Exception> T call(OutboundCall<T, E> call) throws E {
+        boolean slot;
+        try {
+            slot = bulkhead.tryAcquire(settings.maxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException(upstream + " call interrupted");
+        }
+        if (!slot) {
+            bulkheadFull.increment();
+            throw new UpstreamUnavailableException(upstream + " is busy, please try again shortly");
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                shortCircuited.increment();
+                throw new UpstreamUnavailableException(upstream + " is temporarily unavailable");
+            }
+            T result;
+            try {
+                result = call.call();
+            } catch (Exception e) {
+                if (callerFault.test(e)) {
+                    circuitBreaker.onSuccess();
+                    succeeded.increment();
+                } else {
+                    CircuitBreaker.State before = circuitBreaker.getState();
+                    circuitBreaker.onFailure();
+                    failed.increment();
+                    if (before != CircuitBreaker.State.OPEN && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                        log.warn("Circuit for {} opened after: {}", upstream, e.toString());
+                    }
+                }
+                throw e;
+            }
+            circuitBreaker.onSuccess();
+            succeeded.increment();
+            return result;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("outbound.calls")
+                .description("Calls to upstream services by outcome")
+                .tag("upstream", upstream)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.sanjo.backend.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * One OutboundGuard per upstream service, configured from outbound.&lt;upstream&gt;.* with the defaults below.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboundGuards {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, OutboundGuard> guards = new ConcurrentHashMap<>();
+
+    public OutboundGuard guard(String upstream) {
+        return guard(upstream, e -> false);
+    }
+
+    //callerFault applies to the guard's first lookup only
+    public OutboundGuard guard(String upstream, Predicate<Throwable> callerFault) {
+        return guards.computeIfAbsent(upstream,
+                name -> new OutboundGuard(name, settings(name), callerFault, meterRegistry));
+    }
+
+    private OutboundSettings settings(String upstream) {
+        return new OutboundSettings(
+                property(upstream, "connect-timeout-ms", 2000),
+                property(upstream, "timeout-ms", 10000),
+                property(upstream, "max-concurrent", 20),
+                property(upstream, "max-wait-ms", 100),
+                property(upstream, "window-size", 20),
+                property(upstream, "minimum-calls", 10),
+                property(upstream, "failure-rate-threshold", 50),
+                property(upstream, "open-ms", 30000),
+                property(upstream, "half-open-probes", 3));
+    }
+
+    private int property(String upstream, String name, int defaultValue) {
+        return environment.getProperty("outbound." + upstream + "." + name, Integer.class, defaultValue);
+    }
+}
@@ -0,0 +1,14 @@
+package com.sanjo.backend.resilience;
+
+/**
+ * Limits for calls to one upstream service, read from outbound.&lt;upstream&gt;.* by OutboundGuards.
+ *
+ * @param connectTimeoutMillis time allowed to open a connection
+ * @param timeoutMillis        deadline for a single call once connected
+ * @param maxConcurrent        bulkhead size, also the size of the client's connection pool
+ * @param maxWaitMillis        how long a call waits for a bulkhead slot before being rejected
+ */
+public record OutboundSettings(int connectTimeoutMillis, int timeoutMillis, int maxConcurrent, long maxWaitMillis,
+                               int windowSize, int minimumCalls, int failureRateThreshold, long openMillis,
+                               int halfOpenProbes) {
+}
@@ -1,29 +1,35 @@
 package com.sanjo.backend.security;
 
+import com.sanjo.backend.service.implementation.TokenRevocationService;
+import com.sanjo.backend.tracing.RequestTracer;
+import com.sanjo.backend.tracing.RequestTracer.SpanKind;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JWTAuthFilter extends OncePerRequestFilter {
 
-    // Injecting JWT utility class and custom UserDetailsService
+    // Injecting JWT utility class and the revocation check
     private final JWTUtils jwtUtils;
-    private final CustomUserDetailsService customUserDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JWTAuthFilter(JWTUtils jwtUtils, CustomUserDetailsService customUserDetailsService) {
+    public JWTAuthFilter(JWTUtils jwtUtils, TokenRevocationService tokenRevocationService) {
         this.jwtUtils = jwtUtils;
-        this.customUserDetailsService = customUserDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -32,34 +38,60 @@ public class JWTAuthFilter extends OncePerRequestFilter {
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
+        //Span covers token checks only, the rest of the chain is traced on its own
+        int span = RequestTracer.openSpan(SpanKind.FILTER, "JWTAuthFilter", "authenticate");
+        try {
+            authenticate(request);
+        } finally {
+            RequestTracer.closeSpan(span);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request) {
+
         final String authHeader = request.getHeader("Authorization");
         final String jwtToken;
-        final String userEmail;
+        final Claims claims;
 
-        if (authHeader == null || authHeader.isBlank()) {
-            filterChain.doFilter(request, response);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             return;
         }
 
         jwtToken = authHeader.substring(7);
 
-        userEmail = jwtUtils.extractUserName(jwtToken);
+        //Expired or tampered tokens leave the request anonymous instead of failing it
+        try {
+            claims = jwtUtils.extractAllClaims(jwtToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        //Tokens issued before these claims existed cannot be revoked per user (password change, ban), so they
+        //are refused and the client logs in again for a current token and a refresh token
+        if (claims.getId() == null || claims.get(JWTUtils.USER_ID_CLAIM) == null || claims.get(JWTUtils.ROLE_CLAIM) == null) {
+            return;
+        }
+
+        //In-memory check, logged out or banned tokens are treated like expired ones
+        if (tokenRevocationService.isRevoked(claims.getId(), claims.get(JWTUtils.USER_ID_CLAIM), claims.getIssuedAt())) {
+            return;
+        }
+
+        String userEmail = claims.getSubject();
+        String role = claims.get(JWTUtils.ROLE_CLAIM, String.class);
 
-            UserDetails userDetails = customUserDetailsService.loadUserByUsername(userEmail);
-            if (jwtUtils.isValidToken(jwtToken, userDetails)) {
-                SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                UsernamePasswordAuthenticationToken token =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            //The token carries everything needed to authorise the request, no user lookup
+            UsernamePasswordAuthenticationToken token =
+                    new UsernamePasswordAuthenticationToken(userEmail, null, List.of(new SimpleGrantedAuthority(role)));
 
-                token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                securityContext.setAuthentication(token);
-                SecurityContextHolder.setContext(securityContext);
-            }
+            SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+            securityContext.setAuthentication(token);
+            SecurityContextHolder.setContext(securityContext);
         }
-        filterChain.doFilter(request, response);
     }
 }
@@ -1,48 +1,78 @@
 package com.sanjo.backend.security;
 
+import com.sanjo.backend.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
 public class JWTUtils {
 
-    private static final long EXPIRATION_TIME = 1000 * 60 * 24 * 7; // 7 days
-    private SecretKey Key;
+    public static final String ROLE_CLAIM = "role";
+    public static final String USER_ID_CLAIM = "uid";
+
+    private volatile SecretKey Key;
+
+    //Access tokens are short-lived; sessions are extended through refresh tokens
+    @Value("${jwt.access-token.ttl-minutes:15}")
+    private long accessTokenTtlMinutes;
 
     //Injecting from an env file
     @Value("${jwt.secret}")
     private String secretString;
 
-    //Executes only after Injecting secretString
-    @PostConstruct
-    public void init() {
-
-        //Converts the Base64-encoded string into a byte[] array
-        byte[] keyBytes = Decoders.BASE64.decode(secretString);
-
-        //Generates a secure HMAC SHA-based key for signing JWTs.
-        this.Key = Keys.hmacShaKeyFor(keyBytes);
+    //Derived on first use rather than at startup so it stays off the boot path
+    private SecretKey signingKey() {
+        SecretKey key = this.Key;
+        if (key == null) {
+            synchronized (this) {
+                key = this.Key;
+                if (key == null) {
+                    //Converts the Base64-encoded string into a byte[] array
+                    byte[] keyBytes = Decoders.BASE64.decode(secretString);
+
+                    //Generates a secure HMAC SHA-based key for signing JWTs.
+                    key = Keys.hmacShaKeyFor(keyBytes);
+                    this.Key = key;
+                }
+            }
+        }
+        return key;
     }
 
-    public String generateToken(UserDetails userDetails){
+    //Carries the role and user id so requests can be authorised without loading the user
+    public String generateToken(User user){
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(Key)
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(ROLE_CLAIM, user.getRole())
+                .claim(USER_ID_CLAIM, user.getId())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + TimeUnit.MINUTES.toMillis(accessTokenTtlMinutes)))
+                .signWith(signingKey())
                 .compact();
     }
 
+    public long getAccessTokenTtlMinutes() {
+        return accessTokenTtlMinutes;
+    }
+
+    //Verifies signature and expiry; throws JwtException otherwise
+    public Claims extractAllClaims(String token){
+        return extractClaims(token, Function.identity());
+    }
+
     public String extractUserName(String token){
         return extractClaims(token, Claims::getSubject);
     }
@@ -56,7 +86,7 @@ public class JWTUtils {
 
     private <T> T extractClaims(String token, Function<Claims,T> claimsTFunction){
         return claimsTFunction.apply(Jwts.parser()
-                .verifyWith(Key)
+                .verifyWith(signingKey())
                 .build()
                 .parseSignedClaims(token)
                 .getPayload());
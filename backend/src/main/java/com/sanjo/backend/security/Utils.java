@@ -1,11 +1,17 @@
 package com.sanjo.backend.security;
 
+import com.sanjo.backend.dto.ArchivedBookingDTO;
 import com.sanjo.backend.dto.BookingDTO;
+import com.sanjo.backend.dto.PricingRuleDTO;
 import com.sanjo.backend.dto.RoomDTO;
 import com.sanjo.backend.dto.UserDTO;
+import com.sanjo.backend.dto.WaitlistEntryDTO;
+import com.sanjo.backend.entity.ArchivedBooking;
 import com.sanjo.backend.entity.Booking;
+import com.sanjo.backend.entity.PricingRule;
 import com.sanjo.backend.entity.Room;
 import com.sanjo.backend.entity.User;
+import com.sanjo.backend.entity.WaitlistEntry;
 import java.security.SecureRandom;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -35,6 +41,7 @@ public class Utils {
         userDTO.setEmail(user.getEmail());
         userDTO.setPhoneNumber(user.getPhoneNumber());
         userDTO.setRole(user.getRole());
+        userDTO.setBanned(user.isBanned());
         return userDTO;
     }
 
@@ -61,6 +68,52 @@ public class Utils {
     }
 
     //For profile endpoint
+    public static PricingRuleDTO mapPricingRuleEntityToPricingRuleDTO(PricingRule pricingRule) {
+        PricingRuleDTO pricingRuleDTO = new PricingRuleDTO();
+
+        pricingRuleDTO.setId(pricingRule.getId());
+        pricingRuleDTO.setName(pricingRule.getName());
+        pricingRuleDTO.setRuleType(pricingRule.getRuleType());
+        pricingRuleDTO.setRoomType(pricingRule.getRoomType());
+        pricingRuleDTO.setStartDate(pricingRule.getStartDate());
+        pricingRuleDTO.setEndDate(pricingRule.getEndDate());
+        pricingRuleDTO.setMinOccupancyPercent(pricingRule.getMinOccupancyPercent());
+        pricingRuleDTO.setAdjustmentPercent(pricingRule.getAdjustmentPercent());
+        return pricingRuleDTO;
+    }
+
+    public static WaitlistEntryDTO mapWaitlistEntryEntityToWaitlistEntryDTO(WaitlistEntry waitlistEntry) {
+        WaitlistEntryDTO waitlistEntryDTO = new WaitlistEntryDTO();
+
+        waitlistEntryDTO.setId(waitlistEntry.getId());
+        waitlistEntryDTO.setUserId(waitlistEntry.getUser().getId());
+        waitlistEntryDTO.setRoomType(waitlistEntry.getRoomType());
+        waitlistEntryDTO.setCheckInDate(waitlistEntry.getCheckInDate());
+        waitlistEntryDTO.setCheckOutDate(waitlistEntry.getCheckOutDate());
+        waitlistEntryDTO.setStatus(waitlistEntry.getStatus());
+        waitlistEntryDTO.setCreatedAt(waitlistEntry.getCreatedAt());
+        waitlistEntryDTO.setOfferedRoomId(waitlistEntry.getOfferedRoomId());
+        waitlistEntryDTO.setHoldId(waitlistEntry.getHoldId());
+        waitlistEntryDTO.setOfferExpiresAt(waitlistEntry.getOfferExpiresAt());
+        return waitlistEntryDTO;
+    }
+
+    public static ArchivedBookingDTO mapArchivedBookingEntityToArchivedBookingDTO(ArchivedBooking archivedBooking) {
+        ArchivedBookingDTO archivedBookingDTO = new ArchivedBookingDTO();
+
+        archivedBookingDTO.setId(archivedBooking.getId());
+        archivedBookingDTO.setBookingConfirmationCode(archivedBooking.getBookingConfirmationCode());
+        archivedBookingDTO.setCheckInDate(archivedBooking.getCheckInDate());
+        archivedBookingDTO.setCheckOutDate(archivedBooking.getCheckOutDate());
+        archivedBookingDTO.setNumOfAdults(archivedBooking.getNumOfAdults());
+        archivedBookingDTO.setNumOfChildren(archivedBooking.getNumOfChildren());
+        archivedBookingDTO.setTotalNumOfGuest(archivedBooking.getTotalNumOfGuest());
+        archivedBookingDTO.setRoomId(archivedBooking.getRoomId());
+        archivedBookingDTO.setUserId(archivedBooking.getUserId());
+        archivedBookingDTO.setArchivedAt(archivedBooking.getArchivedAt());
+        return archivedBookingDTO;
+    }
+
     public static BookingDTO mapBookingEntityToBookingDTO(Booking booking) {
         BookingDTO bookingDTO = new BookingDTO();
 
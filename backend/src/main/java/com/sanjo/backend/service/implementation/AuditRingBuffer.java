@@ -0,0 +1,70 @@
+package com.sanjo.backend.service.implementation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer without locks.
+ * Producers claim a sequence with a CAS and publish the slot with a release store; {@link #offer} fails
+ * instead of waiting when the ring is full. Only the audit writer thread may call {@link #drain}.
+ */
+class AuditRingBuffer<T> {
+
+    private final Object[] slots;
+    //Holds sequence + 1 once the slot for that sequence has been filled
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(requestedCapacity, 2) - 1) << 1;
+        this.slots = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    boolean offer(T element) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= slots.length) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        slots[index] = element;
+        published.lazySet(index, sequence + 1);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<T> consumer, int maxElements) {
+        long sequence = head;
+        int drained = 0;
+        while (drained < maxElements) {
+            int index = (int) (sequence & mask);
+            if (published.get(index) != sequence + 1) {
+                break;
+            }
+            T element = (T) slots[index];
+            slots[index] = null;
+            consumer.accept(element);
+            sequence++;
+            drained++;
+        }
+        //Frees the drained slots for producers
+        head = sequence;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(tail.get() - head, 0);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
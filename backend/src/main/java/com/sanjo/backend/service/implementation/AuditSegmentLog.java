@@ -0,0 +1,145 @@
+package com.sanjo.backend.service.implementation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of length-prefixed records spread over fixed-size, memory-mapped segment files
+ * ({@code audit-00000001.log}, {@code audit-00000002.log}, ...). A zero length marks the end of a segment,
+ * which is how an unfinished segment is resumed after a restart. Writes are not thread-safe;
+ * the audit writer thread is the only writer, readers may run concurrently.
+ */
+class AuditSegmentLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SEGMENT_NAME_PATTERN = "audit-\\d+\\.log";
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private long segmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    AuditSegmentLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            open(1);
+        } else {
+            open(segmentNumber(segments.get(segments.size() - 1)));
+            buffer.position(endOfRecords(buffer));
+        }
+    }
+
+    void append(byte[] record) throws IOException {
+        //Room for the record and the zero length that terminates the segment
+        int needed = LENGTH_BYTES + record.length + LENGTH_BYTES;
+        if (needed > segmentSize) {
+            throw new IOException("Audit record of " + record.length + " bytes does not fit in a segment");
+        }
+        if (buffer.remaining() < needed) {
+            rotate();
+        }
+        int position = buffer.position();
+        buffer.position(position + LENGTH_BYTES);
+        buffer.put(record);
+        //Length last, so a concurrent reader never sees a length before its payload
+        buffer.putInt(position, record.length);
+    }
+
+    void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    //Segment files oldest first
+    List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().matches(SEGMENT_NAME_PATTERN))
+                    .sorted(Comparator.comparingLong(AuditSegmentLog::segmentNumber))
+                    .toList();
+        }
+    }
+
+    static List<byte[]> readRecords(Path segment) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer readBuffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            int end = endOfRecords(readBuffer);
+            int position = 0;
+            while (position < end) {
+                int length = readBuffer.getInt(position);
+                byte[] record = new byte[length];
+                readBuffer.get(position + LENGTH_BYTES, record);
+                records.add(record);
+                position += LENGTH_BYTES + length;
+            }
+        }
+        return records;
+    }
+
+    private void rotate() throws IOException {
+        close();
+        open(segmentNumber + 1);
+        deleteOldSegments();
+    }
+
+    private void open(long number) throws IOException {
+        segmentNumber = number;
+        channel = FileChannel.open(directory.resolve(segmentName(number)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        //Mapping past the end grows the file with zeros
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private static int endOfRecords(MappedByteBuffer segment) {
+        int position = 0;
+        while (position + LENGTH_BYTES <= segment.limit()) {
+            int length = segment.getInt(position);
+            if (length <= 0 || position + LENGTH_BYTES + length > segment.limit()) {
+                break;
+            }
+            position += LENGTH_BYTES + length;
+        }
+        return position;
+    }
+
+    private static String segmentName(long number) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
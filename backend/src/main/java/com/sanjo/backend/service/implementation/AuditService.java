@@ -0,0 +1,221 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.dto.AuditEventDTO;
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.service.interfac.IAuditService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of booking and admin mutations.
+ * Request threads only put the event on a lock-free ring buffer; a single background writer drains it in batches
+ * into a memory-mapped, segment-rotated log file. When the ring is full the event is dropped and counted
+ * rather than slowing the request down.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuditService implements IAuditService {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int MAX_QUERY_LIMIT = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.directory:audit}")
+    private String directory;
+
+    @Value("${audit.segment-size-mb:16}")
+    private int segmentSizeMb;
+
+    @Value("${audit.max-segments:64}")
+    private int maxSegments;
+
+    @Value("${audit.ring-capacity:8192}")
+    private int ringCapacity;
+
+    //Upper bound on how long written events may sit only in the page cache
+    @Value("${audit.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    private AuditRingBuffer<AuditEventDTO> ringBuffer;
+    private AuditSegmentLog segmentLog;
+    private Counter dropped;
+    private Counter writeErrors;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        ringBuffer = new AuditRingBuffer<>(ringCapacity);
+        segmentLog = new AuditSegmentLog(Path.of(directory), segmentSizeMb * 1024 * 1024, maxSegments);
+
+        Gauge.builder("audit.ring.depth", ringBuffer, AuditRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        dropped = Counter.builder("audit.dropped")
+                .description("Audit events dropped because the ring buffer was full")
+                .register(meterRegistry);
+        writeErrors = Counter.builder("audit.write.errors")
+                .description("Audit events that could not be written to the log")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        segmentLog.close();
+    }
+
+    @Override
+    public void record(String action, String entityType, Object entityId, String details) {
+        if (!running) {
+            return;
+        }
+        AuditEventDTO event = new AuditEventDTO();
+        event.setTimestamp(Instant.now());
+        event.setActor(currentActor());
+        event.setAction(action);
+        event.setEntityType(entityType);
+        event.setEntityId(entityId == null ? null : entityId.toString());
+        event.setDetails(details);
+
+        if (!ringBuffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public Response getAuditEvents(String entityType, String entityId, String action, int limit) {
+
+        Response response = new Response();
+
+        try {
+            if (segmentLog == null) {
+                throw new OurException("Audit log is disabled");
+            }
+            int maxEvents = Math.min(Math.max(limit, 1), MAX_QUERY_LIMIT);
+
+            //Newest segment first, newest record first, until enough events match
+            List<AuditEventDTO> events = new ArrayList<>();
+            List<Path> segments = segmentLog.segments();
+            for (int i = segments.size() - 1; i >= 0 && events.size() < maxEvents; i--) {
+                List<byte[]> records;
+                try {
+                    records = AuditSegmentLog.readRecords(segments.get(i));
+                } catch (NoSuchFileException e) {
+                    //Rotated out while we were reading
+                    continue;
+                }
+                for (int j = records.size() - 1; j >= 0 && events.size() < maxEvents; j--) {
+                    AuditEventDTO event = objectMapper.readValue(records.get(j), AuditEventDTO.class);
+                    if (matches(entityType, event.getEntityType())
+                            && matches(entityId, event.getEntityId())
+                            && matches(action, event.getAction())) {
+                        events.add(event);
+                    }
+                }
+            }
+            Collections.reverse(events);
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setAuditEventList(events);
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Reading the audit log: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.currentTimeMillis();
+        boolean dirty = false;
+        while (running || ringBuffer.size() > 0) {
+            int written = ringBuffer.drain(this::write, BATCH_SIZE);
+            dirty |= written > 0;
+            long now = System.currentTimeMillis();
+            if (dirty && now - lastFlush >= flushIntervalMillis) {
+                flush();
+                lastFlush = now;
+                dirty = false;
+            }
+            if (written == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        flush();
+    }
+
+    private void write(AuditEventDTO event) {
+        try {
+            segmentLog.append(objectMapper.writeValueAsBytes(event));
+        } catch (Exception e) {
+            writeErrors.increment();
+            log.warn("Unable to write audit event {} {} {}: {}", event.getAction(), event.getEntityType(),
+                    event.getEntityId(), e.getMessage());
+        }
+    }
+
+    private void flush() {
+        try {
+            segmentLog.flush();
+        } catch (Exception e) {
+            log.warn("Unable to flush audit log: {}", e.getMessage());
+        }
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+
+    private static boolean matches(String filter, String value) {
+        return filter == null || filter.isBlank() || filter.equalsIgnoreCase(value);
+    }
+}
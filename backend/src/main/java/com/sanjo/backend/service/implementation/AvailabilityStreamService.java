@@ -0,0 +1,292 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes booking and cancellation events to browsers over Server-Sent Events, so a booking page can refresh when
+ * its rooms change instead of polling the availability search. Changes arrive as AVAILABILITY events on the
+ * {@link CacheInvalidationBus}, so every node hears about bookings made through any node and fans them out to its own
+ * subscribers. Each subscriber has a bounded queue drained by a small sender pool, and a subscriber whose queue overflows is disconnected (the browser's
+ * EventSource reconnects and the page reloads availability once). A write still blocked on its client after
+ * send-timeout-ms disconnects that subscriber too, and the pool gets a thread in place of the blocked one until
+ * the container's write timeout releases it, so clients that stop reading cannot starve the others.
+ */
+@Slf4j
+@Service
+public class AvailabilityStreamService {
+
+    public enum ChangeType { BOOKED, RELEASED }
+
+    private record AvailabilityChange(ChangeType type, Long roomId, String roomType,
+                                      LocalDate checkInDate, LocalDate checkOutDate) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final Set<AvailabilitySubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    //Subscribers a sender is draining right now, evicted or not
+    private final Set<AvailabilitySubscriber> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong eventIds = new AtomicLong();
+
+    @Value("${availability.stream.max-subscribers:2000}")
+    private int maxSubscribers;
+
+    @Value("${availability.stream.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${availability.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${availability.stream.heartbeat-ms:20000}")
+    private long heartbeatMillis;
+
+    @Value("${availability.stream.sender-threads:2}")
+    private int senderThreads;
+
+    @Value("${availability.stream.send-timeout-ms:5000}")
+    private long sendTimeoutMillis;
+
+    @Value("${availability.stream.max-stuck-sends:64}")
+    private int maxStuckSends;
+
+    private ThreadPoolExecutor senders;
+    //Writes past the send deadline that still hold a sender thread; guarded by this
+    private int stuckSends;
+    private ScheduledExecutorService heartbeat;
+
+    public AvailabilityStreamService(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                     CacheInvalidationBus cacheInvalidationBus) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        Gauge.builder("availability.stream.subscribers", subscribers, Set::size)
+                .description("Open availability event streams")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        senderThreads = Math.max(1, senderThreads);
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "availability-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //Keeps proxies from closing idle streams and finds clients that went away without closing
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long stuckCheckMillis = Math.max(1, sendTimeoutMillis / 2);
+        heartbeat.scheduleAtFixedRate(this::evictStuckSends, stuckCheckMillis, stuckCheckMillis, TimeUnit.MILLISECONDS);
+
+        //"type/roomId/checkIn/checkOut/roomType"; null after a reconnect, when missed changes cannot be replayed
+        cacheInvalidationBus.subscribe(EntityType.AVAILABILITY, change -> {
+            String[] parts = change == null ? null : change.split("/", 5);
+            if (parts == null || parts.length != 5) {
+                return;
+            }
+            publish(ChangeType.valueOf(parts[0]), Long.valueOf(parts[1]), parts[4].isEmpty() ? null : parts[4],
+                    LocalDate.parse(parts[2]), LocalDate.parse(parts[3]));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        //complete() would wait out a blocked write, and the container closes those connections anyway
+        subscribers.stream().filter(subscriber -> !inFlight.contains(subscriber))
+                .forEach(subscriber -> subscriber.getEmitter().complete());
+        senders.shutdownNow();
+    }
+
+    //Throws RejectedExecutionException when max-subscribers streams are already open
+    public SseEmitter subscribe(String roomType, LocalDate from, LocalDate to) {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("checkOutDate must not be before checkInDate");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RejectedExecutionException("Too many open availability streams");
+        }
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        AvailabilitySubscriber subscriber = new AvailabilitySubscriber(emitter,
+                roomType == null || roomType.isBlank() ? null : roomType.trim(), from, to, queueCapacity);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        subscribers.add(subscriber);
+        //Sent first, so the client knows the stream is live and can load availability once
+        enqueue(subscriber, SseEmitter.event().name("subscribed").data("{}").build());
+        return emitter;
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    //Published with the booking change, so every node's subscribers hear about it once it has committed
+    public CacheInvalidationBus.Change change(ChangeType type, Long roomId, String roomType,
+                                              LocalDate checkInDate, LocalDate checkOutDate) {
+        return new CacheInvalidationBus.Change(EntityType.AVAILABILITY,
+                type + "/" + roomId + "/" + checkInDate + "/" + checkOutDate + "/" + (roomType == null ? "" : roomType));
+    }
+
+    //Fans a change out to this node's subscribers
+    void publish(ChangeType type, Long roomId, String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Set<DataWithMediaType> event;
+        try {
+            event = SseEmitter.event()
+                    .id(String.valueOf(eventIds.incrementAndGet()))
+                    .name("availability")
+                    .data(objectMapper.writeValueAsString(new AvailabilityChange(type, roomId, roomType, checkInDate, checkOutDate)))
+                    .build();
+        } catch (Exception e) {
+            log.warn("Unable to build availability event for room {}: {}", roomId, e.getMessage());
+            return;
+        }
+        for (AvailabilitySubscriber subscriber : subscribers) {
+            if (subscriber.matches(roomType, checkInDate, checkOutDate)) {
+                enqueue(subscriber, event);
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.forEach(subscriber -> enqueue(subscriber, ping));
+    }
+
+    private void enqueue(AvailabilitySubscriber subscriber, Set<DataWithMediaType> event) {
+        if (!subscriber.offer(event)) {
+            evict(subscriber);
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(AvailabilitySubscriber subscriber) {
+        //An evicted subscriber is drained once more, to complete its response
+        if ((subscriber.isClosed() && !subscriber.isEvicted()) || !subscriber.startDraining()) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            //Shutting down
+            subscriber.stopDraining();
+        }
+    }
+
+    private void drain(AvailabilitySubscriber subscriber) {
+        inFlight.add(subscriber);
+        try {
+            Set<DataWithMediaType> event;
+            while (!subscriber.isClosed() && (event = subscriber.poll()) != null) {
+                subscriber.sendStarted();
+                subscriber.getEmitter().send(event);
+                subscriber.sendFinished();
+                count("sent");
+            }
+            //complete() waits for a write in progress, so only the thread that owns the writes calls it
+            if (subscriber.isEvicted() && subscriber.markCompleted()) {
+                subscriber.getEmitter().complete();
+            }
+        } catch (Exception e) {
+            //The client went away, or the container timed the write out; the emitter's own callbacks finish the cleanup
+            remove(subscriber);
+            subscriber.markCompleted();
+            subscriber.getEmitter().completeWithError(e);
+        } finally {
+            subscriber.sendFinished();
+            inFlight.remove(subscriber);
+            if (subscriber.clearStuck()) {
+                stuckSendsChanged(-1);
+            }
+            subscriber.stopDraining();
+        }
+        //Work that arrived after the loop's last check but before stopDraining would otherwise wait for the next event
+        if (subscriber.isEvicted() ? !subscriber.isCompleted() : subscriber.hasQueued()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    //The queue overflowed or a write overran the deadline: the client is not reading fast enough to be worth keeping
+    private void evict(AvailabilitySubscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.evict();
+        count("evicted");
+        log.debug("Disconnected a slow availability stream client");
+        scheduleDrain(subscriber);
+    }
+
+    //A write blocked past the deadline: its client has stopped reading. The write itself only ends with the
+    //container's write timeout, so a replacement thread keeps the other subscribers flowing meanwhile
+    private void evictStuckSends() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        for (AvailabilitySubscriber subscriber : inFlight) {
+            if (subscriber.markStuckIfOverdue(now, timeoutNanos)) {
+                stuckSendsChanged(1);
+                evict(subscriber);
+            }
+        }
+    }
+
+    //Keeps sender-threads threads free of stuck writes, up to max-stuck-sends extra threads
+    private synchronized void stuckSendsChanged(int delta) {
+        stuckSends += delta;
+        int size = senderThreads + Math.min(stuckSends, maxStuckSends);
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else if (size < senders.getMaximumPoolSize()) {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private boolean remove(AvailabilitySubscriber subscriber) {
+        subscriber.close();
+        return subscribers.remove(subscriber);
+    }
+
+    private void count(String outcome) {
+        Counter.builder("availability.stream.events")
+                .description("Availability stream events written, and subscribers evicted for falling behind")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,120 @@
+package com.sanjo.backend.service.implementation;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open availability stream: what the client asked to hear about, and the events waiting to be written to it.
+ * Publishers only ever offer to the queue; writing to the emitter is left to AvailabilityStreamService's senders,
+ * so a client that stops reading fills its own queue instead of blocking a booking.
+ */
+class AvailabilitySubscriber {
+
+    private final SseEmitter emitter;
+    private final String roomType;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final BlockingQueue<Set<DataWithMediaType>> queue;
+    //Set while a sender is draining the queue, so events are written by one thread at a time and in order
+    private final AtomicBoolean draining = new AtomicBoolean();
+    //Set when the write in progress has overrun the send deadline and its thread was replaced
+    private final AtomicBoolean stuck = new AtomicBoolean();
+    private volatile long sendStartedNanos;
+    private volatile boolean sending;
+    private volatile boolean closed;
+    private volatile boolean evicted;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    AvailabilitySubscriber(SseEmitter emitter, String roomType, LocalDate from, LocalDate to, int queueCapacity) {
+        this.emitter = emitter;
+        this.roomType = roomType;
+        this.from = from;
+        this.to = to;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    //Null filters match everything; stays overlap with the same inclusive rule as the availability search
+    boolean matches(String changedRoomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        return (roomType == null || roomType.equalsIgnoreCase(changedRoomType))
+                && (to == null || !checkInDate.isAfter(to))
+                && (from == null || !checkOutDate.isBefore(from));
+    }
+
+    //False when the queue is full, i.e. the client has fallen behind
+    boolean offer(Set<DataWithMediaType> event) {
+        return queue.offer(event);
+    }
+
+    Set<DataWithMediaType> poll() {
+        return queue.poll();
+    }
+
+    boolean hasQueued() {
+        return !queue.isEmpty();
+    }
+
+    boolean startDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void stopDraining() {
+        draining.set(false);
+    }
+
+    void sendStarted() {
+        sendStartedNanos = System.nanoTime();
+        sending = true;
+    }
+
+    void sendFinished() {
+        sending = false;
+    }
+
+    //True once per overrun write, for whoever first finds it past the deadline
+    boolean markStuckIfOverdue(long nowNanos, long timeoutNanos) {
+        return sending && nowNanos - sendStartedNanos > timeoutNanos && stuck.compareAndSet(false, true);
+    }
+
+    //True if the finished write had been marked stuck
+    boolean clearStuck() {
+        return stuck.getAndSet(false);
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    //Closed by the server rather than by the client or the container, so the response still has to be completed
+    void evict() {
+        evicted = true;
+        close();
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    //True for the one caller that gets to complete an evicted subscriber's response
+    boolean markCompleted() {
+        return completed.compareAndSet(false, true);
+    }
+
+    boolean isCompleted() {
+        return completed.get();
+    }
+}
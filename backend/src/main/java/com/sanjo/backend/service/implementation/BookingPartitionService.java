@@ -0,0 +1,119 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps the monthly check-in partitions of bookings (see V9) rolling: creates the months ahead and moves
+ * stays that ended before the retention horizon into bookings_archive, dropping partitions as they empty.
+ * Also bounds how far back overlap queries look for check-ins, so they prune to the recent partitions.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookingPartitionService {
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    //Monthly partitions created ahead of today; later check-ins wait in the default partition
+    @Value("${bookings.partition.months-ahead:12}")
+    private int monthsAhead;
+
+    //Stays that ended more than this many whole months ago are archived
+    @Value("${bookings.archive.retain-months:12}")
+    private int retainMonths;
+
+    //Longest stay a booking may have
+    @Value("${bookings.max-stay-nights:90}")
+    private int maxStayNights;
+
+    //Longest live stay, at least maxStayNights; stays saved before the limit existed may be longer
+    private volatile int overlapLookbackNights = Integer.MAX_VALUE;
+
+    public int getMaxStayNights() {
+        return maxStayNights;
+    }
+
+    //Earliest check-in of a booking that can still overlap a stay starting on checkInDate
+    public LocalDate earliestOverlappingCheckIn(LocalDate checkInDate) {
+        int lookback = overlapLookbackNights;
+        return lookback == Integer.MAX_VALUE ? LocalDate.of(1, 1, 1) : checkInDate.minusDays(lookback);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            Integer longestStay = jdbcTemplate.queryForObject(
+                    "SELECT MAX(check_out_date - check_in_date) FROM bookings WHERE check_out_date >= current_date",
+                    Integer.class);
+            overlapLookbackNights = Math.max(maxStayNights, longestStay == null ? 0 : longestStay);
+        } catch (Exception e) {
+            //Overlap queries keep scanning every partition until this succeeds
+            log.warn("Unable to determine the longest live stay: {}", e.getMessage());
+        }
+        maintain();
+    }
+
+    @Scheduled(cron = "${bookings.archive.cron:0 30 3 * * *}")
+    public void maintain() {
+        try {
+            ensurePartitions();
+            archive();
+        } catch (Exception e) {
+            log.warn("Booking partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void ensurePartitions() {
+        YearMonth current = YearMonth.now();
+        for (int month = 0; month <= monthsAhead; month++) {
+            Boolean created = jdbcTemplate.queryForObject("SELECT bookings_ensure_month_partition(?)", Boolean.class,
+                    Date.valueOf(current.plusMonths(month).atDay(1)));
+            if (Boolean.TRUE.equals(created)) {
+                log.info("Created bookings partition for {}", current.plusMonths(month));
+            }
+        }
+    }
+
+    //One transaction per month, so a large backlog is archived in bounded steps
+    private void archive() {
+        LocalDate cutoff = YearMonth.now().minusMonths(retainMonths).atDay(1);
+        List<String> partitions = jdbcTemplate.queryForList("""
+                        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'bookings'::regclass AND c.relname ~ '^bookings_[0-9]{4}_[0-9]{2}$'
+                        ORDER BY c.relname
+                        """, String.class);
+        long archived = 0;
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring("bookings_".length()), PARTITION_MONTH);
+            if (month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                break;
+            }
+            Integer moved = jdbcTemplate.queryForObject("SELECT bookings_archive_month(?, ?)", Integer.class,
+                    Date.valueOf(month.atDay(1)), Date.valueOf(cutoff));
+            archived += moved == null ? 0 : moved;
+        }
+        if (archived > 0) {
+            log.info("Archived {} stays that ended before {}", archived, cutoff);
+            //Profile summaries count past stays
+            cacheInvalidationBus.publish(EntityType.BOOKING, null);
+            cacheInvalidationBus.publish(EntityType.USER, null);
+        }
+    }
+}
@@ -1,29 +1,69 @@
 package com.sanjo.backend.service.implementation;
 
+import com.sanjo.backend.dto.ArchivedBookingDTO;
 import com.sanjo.backend.dto.BookingDTO;
+import com.sanjo.backend.dto.BookingSearchPageDTO;
+import com.sanjo.backend.dto.BookingSummaryDTO;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.entity.Booking;
 import com.sanjo.backend.entity.Room;
 import com.sanjo.backend.entity.User;
 import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.outbox.BookingEvents;
+import com.sanjo.backend.outbox.Outbox;
+import com.sanjo.backend.repository.ArchivedBookingRepository;
 import com.sanjo.backend.repository.BookingRepository;
+import com.sanjo.backend.repository.BookingSpecifications;
 import com.sanjo.backend.repository.RoomRepository;
 import com.sanjo.backend.repository.UserRepository;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IAuditService;
 import com.sanjo.backend.service.interfac.IBookingService;
+import com.sanjo.backend.service.interfac.IPricingService;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
+import com.sanjo.backend.service.interfac.IWaitlistService;
 import com.sanjo.backend.security.Utils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService implements IBookingService {
 
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_ARCHIVE_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
+    private final IRoomHoldService roomHoldService;
+    private final RoomTypeInventoryService roomTypeInventoryService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final IAuditService auditService;
+    private final IPricingService pricingService;
+    private final IWaitlistService waitlistService;
+    private final BookingPartitionService bookingPartitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final Outbox outbox;
+    private final AvailabilityStreamService availabilityStreamService;
 
     @Override
     public Response saveBooking(Long roomId, Long userId, Booking bookingRequest) {
@@ -34,20 +74,43 @@ public class BookingService implements IBookingService {
             if (bookingRequest.getCheckOutDate().isBefore(bookingRequest.getCheckInDate())) {
                 throw new IllegalArgumentException("Check in date must come after check out date");
             }
+            if (ChronoUnit.DAYS.between(bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate())
+                    > bookingPartitionService.getMaxStayNights()) {
+                throw new IllegalArgumentException("Stays are limited to " + bookingPartitionService.getMaxStayNights() + " nights");
+            }
             Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
             User user = userRepository.findById(userId).orElseThrow(() -> new OurException("User Not Found"));
 
-            List<Booking> existingBookings = room.getBookings();
+            //Older check-ins ended before this stay starts, and their partitions are skipped
+            List<Booking> existingBookings = bookingRepository.findByRoomIdAndCheckInDateGreaterThanEqual(roomId,
+                    bookingPartitionService.earliestOverlappingCheckIn(bookingRequest.getCheckInDate()));
 
-            if (!roomIsAvailable(bookingRequest, existingBookings)) {
+            if (!roomIsAvailable(bookingRequest, existingBookings)
+                    || roomHoldService.isHeldByAnotherUser(roomId, userId, bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate())) {
                 throw new OurException("Room not Available for selected date range");
             }
 
+            roomTypeInventoryService.reserveNights(room.getRoomType(), bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate());
+
             bookingRequest.setRoom(room);
             bookingRequest.setUser(user);
             String bookingConfirmationCode = Utils.generateRandomConfirmationCode(10);
             bookingRequest.setBookingConfirmationCode(bookingConfirmationCode);
-            bookingRepository.save(bookingRequest);
+            try {
+                //Emails, analytics and partner pushes run from the outbox once this commits
+                transactionTemplate.executeWithoutResult(status -> {
+                    bookingRepository.save(bookingRequest);
+                    outbox.enqueue(BookingEvents.BOOKING_CREATED, bookingRequest.getId(), eventPayload(bookingRequest));
+                    publishBookingChange(bookingRequest, AvailabilityStreamService.ChangeType.BOOKED);
+                });
+            } catch (RuntimeException e) {
+                roomTypeInventoryService.releaseNights(room.getRoomType(), bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate());
+                throw e;
+            }
+            //The guest's hold has served its purpose once the booking exists
+            roomHoldService.consumeHold(roomId, userId, bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate());
+            waitlistService.bookingSaved(userId, roomId, bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate());
+            auditService.record("SAVE_BOOKING", "BOOKING", bookingRequest.getId(), describe(bookingRequest));
             response.setStatusCode(200);
             response.setMessage("successful");
             response.setBookingConfirmationCode(bookingConfirmationCode);
@@ -56,6 +119,10 @@ public class BookingService implements IBookingService {
             response.setStatusCode(404);
             response.setMessage(e.getMessage());
 
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
         } catch (Exception e) {
             response.setStatusCode(500);
             response.setMessage("Error Saving a booking: " + e.getMessage());
@@ -92,13 +159,60 @@ public class BookingService implements IBookingService {
         return response;
     }
 
+    @Override
+    public Response findBookingsByConfirmationCodes(String email, List<String> confirmationCodes) {
+
+        Response response = new Response();
+
+        try {
+            User caller = userRepository.findByEmail(email).orElseThrow(() -> new OurException("User Not Found"));
+            boolean admin = "ADMIN".equals(caller.getRole());
+            //Duplicates and blanks dropped, request order kept
+            List<String> requestedCodes = confirmationCodes == null ? List.of()
+                    : confirmationCodes.stream().filter(code -> code != null && !code.isBlank()).distinct().toList();
+            if (requestedCodes.isEmpty()) {
+                throw new IllegalArgumentException("At least one confirmation code is required");
+            }
+            if (requestedCodes.size() > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " bookings can be fetched at once");
+            }
+            Map<String, Booking> bookingsByCode = new HashMap<>();
+            bookingRepository.findAllByConfirmationCodes(requestedCodes)
+                    .forEach(booking -> bookingsByCode.put(booking.getBookingConfirmationCode(), booking));
+            //Unknown codes are left out, and so are other guests' bookings unless the caller is an admin
+            List<BookingDTO> bookingDTOList = requestedCodes.stream()
+                    .map(bookingsByCode::get)
+                    .filter(Objects::nonNull)
+                    .filter(booking -> admin || booking.getUser().getId() == caller.getId())
+                    .map(booking -> Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, true))
+                    .toList();
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setBookingList(bookingDTOList);
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Finding bookings: " + e.getMessage());
+
+        }
+        return response;
+    }
+
     @Override
     public Response getAllBookings() {
 
         Response response = new Response();
 
         try {
-            List<Booking> bookingList = bookingRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
+            List<Booking> bookingList = bookingRepository.findAllWithRoomAndUser(Sort.by(Sort.Direction.DESC, "id"));
             List<BookingDTO> bookingDTOList = Utils.mapBookingListEntityToBookingListDTO(bookingList);
             response.setStatusCode(200);
             response.setMessage("successful");
@@ -116,14 +230,126 @@ public class BookingService implements IBookingService {
         return response;
     }
 
+    @Override
+    public Response getArchivedBookings(Long userId, Long roomId, String confirmationCode, int page, int size) {
+
+        Response response = new Response();
+
+        try {
+            if (page < 0 || size < 1 || size > MAX_ARCHIVE_PAGE_SIZE) {
+                throw new IllegalArgumentException("page must not be negative and size must be between 1 and " + MAX_ARCHIVE_PAGE_SIZE);
+            }
+            String code = confirmationCode == null || confirmationCode.isBlank() ? null : confirmationCode.trim();
+            //Archived stays live outside the bookings partitions, so the hot paths never read them
+            List<ArchivedBookingDTO> archivedBookings = archivedBookingRepository
+                    .search(userId, roomId, code, PageRequest.of(page, size)).stream()
+                    .map(Utils::mapArchivedBookingEntityToArchivedBookingDTO)
+                    .toList();
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setArchivedBookingList(archivedBookings);
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Getting archived bookings: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response searchBookings(LocalDate from, LocalDate to, Long roomId, String roomType, String userEmail,
+                                   String confirmationCodePrefix, int size, String cursor) {
+
+        Response response = new Response();
+
+        try {
+            if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+                throw new IllegalArgumentException("size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+            }
+            if (from != null && to != null && to.isBefore(from)) {
+                throw new IllegalArgumentException("to must not be before from");
+            }
+            List<Specification<Booking>> filters = new ArrayList<>();
+            //Stays overlapping [from, to]
+            if (from != null) {
+                filters.add(BookingSpecifications.checkOutOnOrAfter(from));
+                filters.add(BookingSpecifications.checkInOnOrAfter(bookingPartitionService.earliestOverlappingCheckIn(from)));
+            }
+            if (to != null) {
+                filters.add(BookingSpecifications.checkInOnOrBefore(to));
+            }
+            if (roomId != null) {
+                filters.add(BookingSpecifications.roomIdEquals(roomId));
+            }
+            if (roomType != null && !roomType.isBlank()) {
+                filters.add(BookingSpecifications.roomTypeEquals(roomType.trim()));
+            }
+            if (userEmail != null && !userEmail.isBlank()) {
+                filters.add(BookingSpecifications.userEmailEquals(userEmail.trim()));
+            }
+            //Confirmation codes are generated in upper case
+            if (confirmationCodePrefix != null && !confirmationCodePrefix.isBlank()) {
+                filters.add(BookingSpecifications.confirmationCodeStartsWith(confirmationCodePrefix.trim().toUpperCase(Locale.ROOT)));
+            }
+            if (cursor != null && !cursor.isBlank()) {
+                String[] position = cursor.split("_", 2);
+                try {
+                    filters.add(BookingSpecifications.before(LocalDate.parse(position[0]), Long.parseLong(position[1])));
+                } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+
+            //One more than the page tells whether another page exists, without counting every match
+            List<BookingSummaryDTO> bookings = bookingRepository.findSummaries(Specification.allOf(filters), size + 1);
+            BookingSearchPageDTO searchPage = new BookingSearchPageDTO();
+            if (bookings.size() > size) {
+                BookingSummaryDTO last = bookings.get(size - 1);
+                searchPage.setBookings(bookings.subList(0, size));
+                searchPage.setNextCursor(last.getCheckInDate() + "_" + last.getId());
+            } else {
+                searchPage.setBookings(bookings);
+            }
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setBookingSearchPage(searchPage);
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (QueryTimeoutException e) {
+            response.setStatusCode(503);
+            response.setMessage("Booking search took too long, narrow the filters and try again");
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Searching bookings: " + e.getMessage());
+
+        }
+        return response;
+    }
+
     @Override
     public Response cancelBooking(Long bookingId) {
 
         Response response = new Response();
 
         try {
-            bookingRepository.findById(bookingId).orElseThrow(() -> new OurException("Booking Does Not Exist"));
-            bookingRepository.deleteById(bookingId);
+            Booking booking = bookingRepository.findById(bookingId).orElseThrow(() -> new OurException("Booking Does Not Exist"));
+            transactionTemplate.executeWithoutResult(status -> {
+                bookingRepository.deleteById(bookingId);
+                outbox.enqueue(BookingEvents.BOOKING_CANCELLED, bookingId, eventPayload(booking));
+                //Inside the transaction, so clients told about the freed nights find them available when they re-query
+                roomTypeInventoryService.releaseNights(booking.getRoom().getRoomType(), booking.getCheckInDate(), booking.getCheckOutDate());
+                publishBookingChange(booking, AvailabilityStreamService.ChangeType.RELEASED);
+            });
+            auditService.record("CANCEL_BOOKING", "BOOKING", bookingId, describe(booking));
             response.setStatusCode(200);
             response.setMessage("successful");
 
@@ -140,6 +366,40 @@ public class BookingService implements IBookingService {
     }
 
 
+    private String describe(Booking booking) {
+        return "code=" + booking.getBookingConfirmationCode()
+                + " room=" + booking.getRoom().getId()
+                + " user=" + booking.getUser().getId()
+                + " checkIn=" + booking.getCheckInDate()
+                + " checkOut=" + booking.getCheckOutDate();
+    }
+
+    private Map<String, Object> eventPayload(Booking booking) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("bookingId", booking.getId());
+        payload.put("confirmationCode", booking.getBookingConfirmationCode());
+        payload.put("roomId", booking.getRoom().getId());
+        payload.put("roomType", booking.getRoom().getRoomType());
+        payload.put("userId", booking.getUser().getId());
+        payload.put("userEmail", booking.getUser().getEmail());
+        payload.put("checkInDate", booking.getCheckInDate().toString());
+        payload.put("checkOutDate", booking.getCheckOutDate().toString());
+        payload.put("numOfAdults", booking.getNumOfAdults());
+        payload.put("numOfChildren", booking.getNumOfChildren());
+        return payload;
+    }
+
+    //Runs inside the booking transaction: one NOTIFY goes out with the commit and local caches refresh after it
+    private void publishBookingChange(Booking booking, AvailabilityStreamService.ChangeType availabilityChange) {
+        cacheInvalidationBus.publish(List.of(
+                new CacheInvalidationBus.Change(EntityType.BOOKING, booking.getId()),
+                new CacheInvalidationBus.Change(EntityType.ROOM, booking.getRoom().getId()),
+                new CacheInvalidationBus.Change(EntityType.USER, booking.getUser().getId()),
+                pricingService.bookingChange(booking.getRoom().getRoomType(), booking.getCheckInDate(), booking.getCheckOutDate()),
+                availabilityStreamService.change(availabilityChange, booking.getRoom().getId(), booking.getRoom().getRoomType(),
+                        booking.getCheckInDate(), booking.getCheckOutDate())));
+    }
+
     private boolean roomIsAvailable(Booking bookingRequest, List<Booking> existingBookings) {
 
         return existingBookings.stream()
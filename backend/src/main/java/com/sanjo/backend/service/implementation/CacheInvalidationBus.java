@@ -0,0 +1,206 @@
+package com.sanjo.backend.service.implementation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Broadcasts entity changes to every backend node through Postgres NOTIFY so in-JVM caches can be evicted.
+ * Each node keeps one dedicated LISTEN connection; local subscribers are called with the changed id,
+ * or with {@code null} when everything of that type must be dropped (e.g. after a reconnect, when
+ * notifications may have been missed).
+ */
+@Slf4j
+@Service
+public class CacheInvalidationBus {
+
+    //ROOM also follows bookings of the room; ROOM_DETAILS only the room row itself (added, edited, deleted).
+    //HOLD carries room holds themselves rather than an id, see RoomHoldService
+    public enum EntityType { ROOM, ROOM_DETAILS, ROOM_TYPE, BOOKING, USER, REVOKED_TOKEN, RATES, WAITLIST, HOLD, AVAILABILITY }
+
+    public record Change(EntityType type, Object id) {
+    }
+
+    private static final int LISTEN_POLL_MILLIS = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<EntityType, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+
+    @Value("${cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.channel:luxestay_cache_invalidation}")
+    private String channel;
+
+    @Value("${spring.datasource.url}")
+    private String dbUrl;
+
+    @Value("${spring.datasource.username}")
+    private String dbUser;
+
+    @Value("${spring.datasource.password}")
+    private String dbPassword;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || dbUrl == null || !dbUrl.startsWith("jdbc:postgresql:")) {
+            return;
+        }
+        //The channel is part of a LISTEN statement, which cannot take bind parameters
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Invalid cache invalidation channel: " + channel);
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    public void subscribe(EntityType type, Consumer<String> onInvalidate) {
+        subscribers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add(onInvalidate);
+    }
+
+    public void publish(EntityType type, Object id) {
+        publish(List.of(new Change(type, id)));
+    }
+
+    /**
+     * Publishes several changes as one notification, one "node:TYPE:id" line each. Inside a transaction the
+     * notification is sent on the transaction's connection, so Postgres delivers it with the commit and drops it
+     * on rollback, and local subscribers run once the transaction has committed.
+     */
+    public void publish(List<Change> changes) {
+        List<Change> published = List.copyOf(changes);
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatchAll(published);
+                }
+            });
+        } else {
+            dispatchAll(published);
+        }
+        if (!running) {
+            return;
+        }
+        String payload = published.stream()
+                .map(change -> nodeId + ":" + change.type().name() + ":" + (change.id() == null ? "" : change.id().toString()))
+                .collect(Collectors.joining("\n"));
+        try {
+            jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) statement -> {
+                statement.setString(1, channel);
+                statement.setString(2, payload);
+                return statement.execute();
+            });
+        } catch (Exception e) {
+            if (inTransaction) {
+                //The transaction is aborted anyway; let the caller roll back its changes
+                throw e;
+            }
+            //Other nodes resync on their next reconnect; never fail the business operation over this
+            log.warn("Unable to publish cache invalidation {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void dispatchAll(List<Change> changes) {
+        for (Change change : changes) {
+            dispatch(change.type(), change.id() == null ? null : change.id().toString());
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPassword)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                //Anything published while we were not listening is lost, so start from a clean slate
+                for (EntityType type : EntityType.values()) {
+                    dispatch(type, null);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(LISTEN_POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            for (String line : notification.getParameter().split("\n")) {
+                                handle(line);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener disconnected, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        try {
+            dispatch(EntityType.valueOf(parts[1]), parts[2].isEmpty() ? null : parts[2]);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring unknown cache invalidation {}", payload);
+        }
+    }
+
+    private void dispatch(EntityType type, String id) {
+        for (Consumer<String> subscriber : subscribers.getOrDefault(type, List.of())) {
+            try {
+                subscriber.accept(id);
+            } catch (Exception e) {
+                log.warn("Cache invalidation subscriber failed for {} {}: {}", type, id, e.getMessage());
+            }
+        }
+    }
+}
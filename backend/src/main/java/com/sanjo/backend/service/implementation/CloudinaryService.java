@@ -3,10 +3,17 @@ package com.sanjo.backend.service.implementation;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.exception.UpstreamUnavailableException;
+import com.sanjo.backend.resilience.OutboundGuard;
+import com.sanjo.backend.resilience.OutboundGuards;
+import com.sanjo.backend.resilience.OutboundSettings;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -21,16 +28,80 @@ public class CloudinaryService {
     @Value("${cloudinary.api-secret}")
     private String apiSecret;
 
+    //Empty for the Cloudinary API itself; set to point uploads at another host, e.g. a local stub
+    @Value("${cloudinary.upload-prefix:}")
+    private String uploadPrefix;
+
+    private final OutboundGuard guard;
+
+    //Created on the first upload and reused afterwards
+    private volatile Cloudinary cloudinary;
+
+    //Per-upload timeouts, in milliseconds
+    private final Map<String, Object> uploadOptions;
+
+    public CloudinaryService(OutboundGuards outboundGuards) {
+        this.guard = outboundGuards.guard("cloudinary");
+        OutboundSettings settings = guard.getSettings();
+        this.uploadOptions = ObjectUtils.asMap(
+                "connect_timeout", settings.connectTimeoutMillis(),
+                "timeout", settings.timeoutMillis(),
+                "connection_request_timeout", (int) settings.maxWaitMillis());
+    }
+
+    private Cloudinary cloudinary() {
+        Cloudinary client = this.cloudinary;
+        if (client == null) {
+            synchronized (this) {
+                client = this.cloudinary;
+                if (client == null) {
+                    //Keep-alive pool as large as the bulkhead; the client's default allows two connections
+                    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setMaxTotal(guard.getSettings().maxConcurrent());
+                    connectionManager.setDefaultMaxPerRoute(guard.getSettings().maxConcurrent());
+                    Map<String, Object> config = new HashMap<>(ObjectUtils.asMap(
+                            "cloud_name", cloudName,
+                            "api_key", apiKey,
+                            "api_secret", apiSecret,
+                            "properties", Map.of("connectionManager", connectionManager)));
+                    if (!uploadPrefix.isBlank()) {
+                        config.put("upload_prefix", uploadPrefix);
+                    }
+                    client = new Cloudinary(config);
+                    this.cloudinary = client;
+                }
+            }
+        }
+        return client;
+    }
+
     public String saveImageToCloudinary(MultipartFile photo) {
         try {
-            Cloudinary cloudinary = new Cloudinary(ObjectUtils.asMap(
-                    "cloud_name", cloudName,
-                    "api_key", apiKey,
-                    "api_secret", apiSecret));
+            return upload(photo.getBytes());
 
-            Map uploadResult = cloudinary.uploader().upload(photo.getBytes(), ObjectUtils.emptyMap());
+        } catch (OurException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OurException("Unable to Upload image to Cloudinary: " + e.getMessage());
+        }
+    }
+
+    public String saveImageToCloudinary(File photo) {
+        return upload(photo);
+    }
+
+    //Cloudinary fetches the image itself, so it never passes through this server
+    public String saveRemoteImageToCloudinary(String photoUrl) {
+        return upload(photoUrl);
+    }
+
+    private String upload(Object source) {
+        try {
+            Map uploadResult = guard.call(() -> cloudinary().uploader().upload(source, uploadOptions));
             return (String) uploadResult.get("url");
 
+        } catch (UpstreamUnavailableException e) {
+            throw new OurException("Image uploads are temporarily unavailable, please try again later");
         } catch (Exception e) {
             throw new OurException("Unable to Upload image to Cloudinary: " + e.getMessage());
         }
@@ -0,0 +1,158 @@
+package com.sanjo.backend.service.implementation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keyword and bigram scorer over the concierge FAQ. Each intent is described by a few phrases; a question scores
+ * the inverse-document-frequency weight of every word and word pair it shares with them, so words common to many
+ * intents ("time", "check") count for little. A question is only answered locally when the best intent scores
+ * enough, clearly beats the runner-up and explains most of the question's words; anything else is open-ended.
+ * Immutable once built, so it is shared across requests without locking.
+ */
+class ConciergeIntentMatcher {
+
+    record Intent(String id, String answer, List<String> phrases) {
+    }
+
+    record Match(Intent intent, double score, double coverage) {
+    }
+
+    //Dropped from questions and phrases alike; word pairs are still formed across them ("check in")
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "is", "are", "was", "be", "do", "does", "did", "can", "could", "will", "would", "should",
+            "i", "im", "me", "my", "we", "our", "us", "you", "your", "it", "its", "there", "this", "that", "they",
+            "what", "when", "where", "which", "who", "how", "whats", "any", "some", "have", "has", "get", "got",
+            "to", "of", "for", "at", "in", "on", "by", "with", "from", "and", "or", "if", "about", "please", "tell",
+            "know", "hi", "hello", "hey", "thanks", "thank", "hotel", "luxestay", "offer", "provide", "available");
+
+    //A word pair the FAQ names is far stronger evidence than its two words apart
+    private static final double BIGRAM_WEIGHT = 2.0;
+
+    private final List<Intent> intents;
+    //Feature (word, or "first second" pair) -> index of every intent using it
+    private final Map<String, int[]> postings = new HashMap<>();
+    private final Map<String, Double> idf = new HashMap<>();
+    private final double minScore;
+    private final double minCoverage;
+    private final double maxRunnerUpRatio;
+
+    ConciergeIntentMatcher(List<Intent> intents, double minScore, double minCoverage, double maxRunnerUpRatio) {
+        this.intents = List.copyOf(intents);
+        this.minScore = minScore;
+        this.minCoverage = minCoverage;
+        this.maxRunnerUpRatio = maxRunnerUpRatio;
+
+        Map<String, Set<Integer>> featureIntents = new HashMap<>();
+        for (int intent = 0; intent < this.intents.size(); intent++) {
+            for (String phrase : this.intents.get(intent).phrases()) {
+                List<String> tokens = tokenize(phrase);
+                for (String word : contentWords(tokens)) {
+                    featureIntents.computeIfAbsent(word, feature -> new HashSet<>()).add(intent);
+                }
+                for (String pair : wordPairs(tokens)) {
+                    featureIntents.computeIfAbsent(pair, feature -> new HashSet<>()).add(intent);
+                }
+            }
+        }
+        featureIntents.forEach((feature, users) -> {
+            postings.put(feature, users.stream().mapToInt(Integer::intValue).toArray());
+            idf.put(feature, Math.log(1.0 + (double) this.intents.size() / users.size()));
+        });
+    }
+
+    //The intent the question is confidently about, or null if it should go to the remote model
+    Match match(String question) {
+        if (question == null || intents.isEmpty()) {
+            return null;
+        }
+        List<String> tokens = tokenize(question);
+        Set<String> words = contentWords(tokens);
+        if (words.isEmpty()) {
+            return null;
+        }
+        double[] scores = new double[intents.size()];
+        int[] coveredWords = new int[intents.size()];
+        for (String word : words) {
+            int[] users = postings.get(word);
+            if (users != null) {
+                for (int intent : users) {
+                    scores[intent] += idf.get(word);
+                    coveredWords[intent]++;
+                }
+            }
+        }
+        for (String pair : wordPairs(tokens)) {
+            int[] users = postings.get(pair);
+            if (users != null) {
+                for (int intent : users) {
+                    scores[intent] += BIGRAM_WEIGHT * idf.get(pair);
+                }
+            }
+        }
+
+        int best = -1;
+        double runnerUp = 0;
+        for (int intent = 0; intent < scores.length; intent++) {
+            if (best < 0 || scores[intent] > scores[best]) {
+                runnerUp = best < 0 ? 0 : scores[best];
+                best = intent;
+            } else if (scores[intent] > runnerUp) {
+                runnerUp = scores[intent];
+            }
+        }
+        double coverage = (double) coveredWords[best] / words.size();
+        if (scores[best] < minScore || coverage < minCoverage || runnerUp > scores[best] * maxRunnerUpRatio) {
+            return null;
+        }
+        return new Match(intents.get(best), scores[best], coverage);
+    }
+
+    //Lower-case alphanumeric runs, with a trailing plural "s" dropped so "pools" matches "pool"
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                token.append(c);
+            } else if (c != '\'' && !token.isEmpty()) {
+                tokens.add(stem(token.toString()));
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static String stem(String word) {
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") && !STOPWORDS.contains(word)) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    private static Set<String> contentWords(List<String> tokens) {
+        Set<String> words = new HashSet<>();
+        for (String token : tokens) {
+            if (!STOPWORDS.contains(token)) {
+                words.add(token);
+            }
+        }
+        return words;
+    }
+
+    //Adjacent words, unless both are stopwords ("is there")
+    private static List<String> wordPairs(List<String> tokens) {
+        List<String> pairs = new ArrayList<>(Math.max(tokens.size() - 1, 0));
+        for (int i = 1; i < tokens.size(); i++) {
+            if (!STOPWORDS.contains(tokens.get(i - 1)) || !STOPWORDS.contains(tokens.get(i))) {
+                pairs.add(tokens.get(i - 1) + " " + tokens.get(i));
+            }
+        }
+        return pairs;
+    }
+}
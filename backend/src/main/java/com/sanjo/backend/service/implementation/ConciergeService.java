@@ -0,0 +1,119 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.service.implementation.ConciergeIntentMatcher.Intent;
+import com.sanjo.backend.service.implementation.ConciergeIntentMatcher.Match;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Front of the AI concierge chat. Questions about the fixed hotel facts in the FAQ table (check-in time,
+ * breakfast, parking...) are answered in-process by ConciergeIntentMatcher; only open-ended questions go to Gemini,
+ * whose prompt is built from the same table so both give the same facts.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConciergeService {
+
+    record FaqEntry(String intent, String fact, String answer, List<String> phrases) {
+    }
+
+    private final GeminiService geminiService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    //JSON list of {intent, fact, answer, phrases}; a file: location replaces the bundled table
+    @Value("${concierge.faq-location:classpath:concierge-faq.json}")
+    private Resource faqLocation;
+
+    @Value("${concierge.local.enabled:true}")
+    private boolean localEnabled;
+
+    @Value("${concierge.local.min-score:2.0}")
+    private double minScore;
+
+    //Share of the question's words the intent must account for
+    @Value("${concierge.local.min-coverage:0.6}")
+    private double minCoverage;
+
+    //The runner-up intent must score below this fraction of the best one
+    @Value("${concierge.local.max-runner-up-ratio:0.7}")
+    private double maxRunnerUpRatio;
+
+    private ConciergeIntentMatcher matcher;
+    private String hotelFacts;
+
+    private final AtomicLong localAnswers = new AtomicLong();
+    private final AtomicLong remoteAnswers = new AtomicLong();
+    private Counter remoteCounter;
+
+    @PostConstruct
+    void init() {
+        List<FaqEntry> faq;
+        try (InputStream in = faqLocation.getInputStream()) {
+            faq = objectMapper.readValue(in, new TypeReference<List<FaqEntry>>() { });
+        } catch (IOException e) {
+            //Without the table Gemini would also lose the hotel facts
+            throw new IllegalStateException("Unable to read the concierge FAQ from " + faqLocation, e);
+        }
+
+        StringBuilder facts = new StringBuilder();
+        for (FaqEntry entry : faq) {
+            if (entry.fact() != null && !entry.fact().isBlank()) {
+                facts.append("- ").append(entry.fact()).append('\n');
+            }
+        }
+        hotelFacts = facts.toString();
+        matcher = new ConciergeIntentMatcher(faq.stream()
+                .filter(entry -> entry.answer() != null && entry.phrases() != null)
+                .map(entry -> new Intent(entry.intent(), entry.answer(), entry.phrases()))
+                .toList(), minScore, minCoverage, maxRunnerUpRatio);
+        log.info("Loaded {} concierge FAQ intents", faq.size());
+
+        remoteCounter = Counter.builder("concierge.answers")
+                .description("Concierge chat answers")
+                .tag("source", "gemini")
+                .tag("intent", "none")
+                .register(meterRegistry);
+        Gauge.builder("concierge.local.answer.ratio", this, ConciergeService::localAnswerRatio)
+                .description("Share of concierge questions answered from the FAQ without calling Gemini")
+                .register(meterRegistry);
+    }
+
+    public String answer(String question) {
+        Match match = localEnabled ? matcher.match(question) : null;
+        if (match != null) {
+            localAnswers.incrementAndGet();
+            Counter.builder("concierge.answers")
+                    .description("Concierge chat answers")
+                    .tag("source", "local")
+                    .tag("intent", match.intent().id())
+                    .register(meterRegistry)
+                    .increment();
+            return match.intent().answer();
+        }
+        remoteAnswers.incrementAndGet();
+        remoteCounter.increment();
+        return geminiService.getChatResponse(question, hotelFacts);
+    }
+
+    private double localAnswerRatio() {
+        long local = localAnswers.get();
+        long total = local + remoteAnswers.get();
+        return total == 0 ? 0 : (double) local / total;
+    }
+}
@@ -4,29 +4,72 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sanjo.backend.exception.UpstreamUnavailableException;
+import com.sanjo.backend.resilience.OutboundGuard;
+import com.sanjo.backend.resilience.OutboundGuards;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.http.MediaType;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Service
 public class GeminiService {
 
+    private static final String CHAT_FALLBACK = "I'm sorry, I'm having trouble connecting to the concierge service right now.";
+    private static final String RECOMMENDATIONS_FALLBACK = "{\"recommendations\": []}";
+
     @Value("${gemini.api.key}")
     private String apiKey;
 
-    private final RestClient restClient;
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com}")
+    private String baseUrl;
+
     private final ObjectMapper objectMapper;
+    private final OutboundGuard guard;
 
-    public GeminiService() {
-        this.restClient = RestClient.create();
+    //Created on the first AI call so the HTTP client stays off the startup path
+    private volatile RestClient restClient;
+
+    public GeminiService(OutboundGuards outboundGuards) {
         this.objectMapper = new ObjectMapper();
+        this.guard = outboundGuards.guard("gemini");
     }
 
-    public String getChatResponse(String userMessage) {
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key="
-                + apiKey;
+    private RestClient restClient() {
+        RestClient client = this.restClient;
+        if (client == null) {
+            synchronized (this) {
+                client = this.restClient;
+                if (client == null) {
+                    //The JDK client keeps connections alive and reuses them across calls
+                    HttpClient httpClient = HttpClient.newBuilder()
+                            .connectTimeout(Duration.ofMillis(guard.getSettings().connectTimeoutMillis()))
+                            .build();
+                    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+                    requestFactory.setReadTimeout(Duration.ofMillis(guard.getSettings().timeoutMillis()));
+                    client = RestClient.builder().requestFactory(requestFactory).build();
+                    this.restClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private String generateContent(String model, String requestBody) {
+        String url = baseUrl + "/v1beta/models/" + model + ":generateContent?key=" + apiKey;
+        return guard.call(() -> restClient().post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestBody)
+                .retrieve()
+                .body(String.class));
+    }
 
+    public String getChatResponse(String userMessage, String hotelFacts) {
         try {
             // Construct the JSON body
             ObjectNode rootNode = objectMapper.createObjectNode();
@@ -38,12 +81,7 @@ public class GeminiService {
             // System Prompt + User Message
             String systemPrompt = "You are the AI Concierge for LuxeStay, a luxury hotel booking platform. " +
                     "Here are the key details about our hotel:\n" +
-                    "- **Breakfast**: Continental breakfast is INCLUDED with ALL bookings.\n" +
-                    "- **Check-in**: 2:00 PM\n" +
-                    "- **Check-out**: 11:00 AM\n" +
-                    "- **Amenities**: Free high-speed Wi-Fi, 24/7 Gym, Rooftop Swimming Pool, and Luxury Spa.\n" +
-                    "- **Location**: 123 Luxury Avenue, Paradise City.\n" +
-                    "- **Parking**: Free valet parking for all guests.\n" +
+                    hotelFacts +
                     "Your role is to assist guests with questions about our rooms, amenities, and policies based on this information. "
                     +
                     "Be polite, professional, and helpful. Keep answers concise. " +
@@ -54,28 +92,22 @@ public class GeminiService {
 
             String requestBody = objectMapper.writeValueAsString(rootNode);
 
-            String response = restClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(requestBody)
-                    .retrieve()
-                    .body(String.class);
+            String response = generateContent("gemini-2.5-flash", requestBody);
 
             // Parse response
             JsonNode responseNode = objectMapper.readTree(response);
             return responseNode.path("candidates").get(0).path("content").path("parts").get(0).path("text").asText();
 
+        } catch (UpstreamUnavailableException e) {
+            return CHAT_FALLBACK;
         } catch (Exception e) {
             System.out.println("Error in GeminiService: " + e.getMessage());
             e.printStackTrace();
-            return "I'm sorry, I'm having trouble connecting to the concierge service right now.";
+            return CHAT_FALLBACK;
         }
     }
 
     public String getRoomRecommendations(String userRequest, String roomInventoryJson) {
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent?key="
-                + apiKey;
-
         try {
             ObjectNode rootNode = objectMapper.createObjectNode();
             ArrayNode contentsNode = rootNode.putArray("contents");
@@ -99,12 +131,7 @@ public class GeminiService {
 
             String requestBody = objectMapper.writeValueAsString(rootNode);
 
-            String response = restClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(requestBody)
-                    .retrieve()
-                    .body(String.class);
+            String response = generateContent("gemini-1.5-flash", requestBody);
 
             JsonNode responseNode = objectMapper.readTree(response);
             String rawText = responseNode.path("candidates").get(0).path("content").path("parts").get(0).path("text")
@@ -113,10 +140,12 @@ public class GeminiService {
             // Clean up markdown if Gemini adds it despite instructions
             return rawText.replace("```json", "").replace("```", "").trim();
 
+        } catch (UpstreamUnavailableException e) {
+            return RECOMMENDATIONS_FALLBACK;
         } catch (Exception e) {
             System.out.println("Error in GeminiService Recommendations: " + e.getMessage());
             e.printStackTrace();
-            return "{\"recommendations\": []}";
+            return RECOMMENDATIONS_FALLBACK;
         }
     }
 }
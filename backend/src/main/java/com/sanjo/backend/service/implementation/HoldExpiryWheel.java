@@ -0,0 +1,64 @@
+package com.sanjo.backend.service.implementation;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel used to expire room holds.
+ * Each slot covers one tick, so scheduling is O(1) and every tick only looks at the holds
+ * that hash to the current slot instead of scanning all of them.
+ */
+class HoldExpiryWheel {
+
+    private record Entry(String holdId, long deadlineTick) {
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Queue<Entry>[] slots;
+    private final int mask;
+
+    // Only advanced by the ticking thread
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    HoldExpiryWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.slots = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = wheelSize - 1;
+    }
+
+    void schedule(String holdId, long expiresAtMillis) {
+        long deadlineTick = Math.max(tickOf(expiresAtMillis), currentTick);
+        slots[(int) (deadlineTick & mask)].add(new Entry(holdId, deadlineTick));
+    }
+
+    //Fires every entry whose deadline has passed, one slot per elapsed tick
+    void advance(long nowMillis, Consumer<String> onExpire) {
+        long nowTick = tickOf(nowMillis);
+        while (currentTick <= nowTick) {
+            Iterator<Entry> iterator = slots[(int) (currentTick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.deadlineTick() <= currentTick) {
+                    iterator.remove();
+                    onExpire.accept(entry.holdId());
+                }
+            }
+            currentTick++;
+        }
+    }
+
+    private long tickOf(long millis) {
+        return (millis - startMillis + tickMillis - 1) / tickMillis;
+    }
+}
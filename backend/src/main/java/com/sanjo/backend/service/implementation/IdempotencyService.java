@@ -0,0 +1,306 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.dto.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the first response to a request sent with an Idempotency-Key, per caller, so a client retrying after a
+ * lost response gets that response again instead of a second booking. Keys are claimed in the idempotency_keys
+ * table, so a retry that lands on another node is answered from there too; the first insert of a key wins, and
+ * duplicates on other nodes poll the row until its response is stored. Each node also keeps the keys it has seen in
+ * memory, least recently used evicted first beyond max-entries: duplicates on the same node wait there without
+ * touching the database, and repeats are replayed from there. Keys live for ttl-minutes.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_MILLIS = 100;
+
+    //The insert claims the key when it is new, expired, or claimed by a node that never answered
+    private static final String CLAIM_SQL = """
+            INSERT INTO idempotency_keys (caller, idempotency_key, fingerprint, claimed_at, expires_at)
+            VALUES (?, ?, ?, now(), now() + make_interval(secs => ?))
+            ON CONFLICT (caller, idempotency_key) DO UPDATE
+            SET fingerprint = EXCLUDED.fingerprint, response = NULL, claimed_at = now(), expires_at = EXCLUDED.expires_at
+            WHERE idempotency_keys.expires_at <= now()
+               OR (idempotency_keys.response IS NULL AND idempotency_keys.claimed_at <= now() - make_interval(secs => ?))
+            """;
+
+    private record Entry(String fingerprint, CompletableFuture<Response> result, long expiresAtMillis) {
+    }
+
+    private record StoredKey(String fingerprint, String response) {
+    }
+
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final long claimLeaseMillis;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyService(MeterRegistry meterRegistry,
+                              JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${idempotency.wait-ms:10000}") long waitMillis,
+                              @Value("${idempotency.claim-lease-ms:60000}") long claimLeaseMillis) {
+        this.meterRegistry = meterRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.waitMillis = waitMillis;
+        this.claimLeaseMillis = claimLeaseMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Gauge.builder("idempotency.entries", this, IdempotencyService::size)
+                .description("Idempotency keys currently remembered")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs action once per key and caller. fingerprint describes the request, so a key reused for a different
+     * request is refused rather than answered with an unrelated response. Without a key, action simply runs.
+     */
+    public Response execute(String key, String caller, String fingerprint, Supplier<Response> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return error(400, HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String storeKey = caller + "\n" + key;
+        CompletableFuture<Response> own = new CompletableFuture<>();
+        Entry existing;
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            existing = entries.get(storeKey);
+            if (existing == null || existing.expiresAtMillis() <= now) {
+                entries.put(storeKey, new Entry(fingerprint, own, now + ttlMillis));
+                existing = null;
+            }
+        }
+        if (existing == null) {
+            return executeFirst(key, caller, fingerprint, storeKey, own, action);
+        }
+
+        if (!existing.fingerprint().equals(fingerprint)) {
+            count("mismatch");
+            return error(422, HEADER + " was already used for a different request");
+        }
+        boolean inFlight = !existing.result().isDone();
+        try {
+            Response response = existing.result().get(waitMillis, TimeUnit.MILLISECONDS);
+            count(inFlight ? "waited" : "replayed");
+            return response;
+        } catch (TimeoutException e) {
+            count("timeout");
+            return error(409, "A request with this " + HEADER + " is still being processed");
+        } catch (ExecutionException e) {
+            //The first request threw and was forgotten, so this one takes its place
+            return execute(key, caller, fingerprint, action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(500, "Interrupted while waiting for the original request");
+        }
+    }
+
+    //First request for the key on this node; the key may still have been claimed by another node
+    private Response executeFirst(String key, String caller, String fingerprint, String storeKey,
+                                  CompletableFuture<Response> own, Supplier<Response> action) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        Response response;
+        //Only final answers are kept; server errors and answers about another node's claim are not
+        boolean keep;
+        try {
+            while (true) {
+                if (claim(key, caller, fingerprint)) {
+                    response = run(key, caller, action);
+                    keep = response.getStatusCode() < 500;
+                    count("executed");
+                    break;
+                }
+                StoredKey stored = awaitStored(key, caller, fingerprint, deadline);
+                if (stored == null && System.currentTimeMillis() < deadline) {
+                    //The other node failed and released the key
+                    continue;
+                }
+                keep = false;
+                if (stored != null && !stored.fingerprint().equals(fingerprint)) {
+                    count("mismatch");
+                    response = error(422, HEADER + " was already used for a different request");
+                } else if (stored == null || stored.response() == null) {
+                    count("timeout");
+                    response = error(409, "A request with this " + HEADER + " is still being processed");
+                } else {
+                    count("replayed");
+                    response = readResponse(stored.response());
+                    keep = true;
+                }
+                break;
+            }
+        } catch (RuntimeException e) {
+            forget(storeKey, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+        if (!keep) {
+            forget(storeKey, own);
+        }
+        own.complete(response);
+        return response;
+    }
+
+    //Runs the action for a key this node has claimed and stores its response, or releases the key on a server error
+    private Response run(String key, String caller, Supplier<Response> action) {
+        Response response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(key, caller);
+            throw e;
+        }
+        if (response.getStatusCode() >= 500) {
+            release(key, caller);
+            return response;
+        }
+        try {
+            jdbcTemplate.update("UPDATE idempotency_keys SET response = ? WHERE caller = ? AND idempotency_key = ?",
+                    objectMapper.writeValueAsString(response), caller, key);
+        } catch (DataAccessException | JsonProcessingException e) {
+            //Retries on other nodes get 409 until the claim lease runs out
+            log.warn("Unable to store the response for an {}: {}", HEADER, e.toString());
+        }
+        return response;
+    }
+
+    private boolean claim(String key, String caller, String fingerprint) {
+        try {
+            return jdbcTemplate.update(CLAIM_SQL, caller, key, fingerprint,
+                    ttlMillis / 1000.0, claimLeaseMillis / 1000.0) > 0;
+        } catch (DataAccessException e) {
+            //Retries on this node are still covered by the in-memory entry
+            log.warn("Unable to claim an {}, running the request anyway: {}", HEADER, e.toString());
+            return true;
+        }
+    }
+
+    private void release(String key, String caller) {
+        try {
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE caller = ? AND idempotency_key = ? AND response IS NULL",
+                    caller, key);
+        } catch (DataAccessException e) {
+            log.warn("Unable to release an {}: {}", HEADER, e.toString());
+        }
+    }
+
+    //The claimed key once it has a response, belongs to another request, or the deadline passes; null once it is gone
+    private StoredKey awaitStored(String key, String caller, String fingerprint, long deadline) {
+        while (true) {
+            List<StoredKey> rows;
+            try {
+                rows = jdbcTemplate.query("""
+                                SELECT fingerprint, response FROM idempotency_keys
+                                WHERE caller = ? AND idempotency_key = ? AND expires_at > now()
+                                """,
+                        (resultSet, rowNum) -> new StoredKey(resultSet.getString(1), resultSet.getString(2)),
+                        caller, key);
+            } catch (DataAccessException e) {
+                log.warn("Unable to read an {}: {}", HEADER, e.toString());
+                return new StoredKey(fingerprint, null);
+            }
+            if (rows.isEmpty()) {
+                return null;
+            }
+            StoredKey stored = rows.get(0);
+            long remaining = deadline - System.currentTimeMillis();
+            if (stored.response() != null || !stored.fingerprint().equals(fingerprint) || remaining <= 0) {
+                return stored;
+            }
+            try {
+                Thread.sleep(Math.min(POLL_MILLIS, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return stored;
+            }
+        }
+    }
+
+    private Response readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, Response.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable response stored for an " + HEADER, e);
+        }
+    }
+
+    //Keys expire in the table as they do in memory
+    @Scheduled(fixedDelayString = "${idempotency.sweep-interval-ms:600000}",
+            initialDelayString = "${idempotency.sweep-interval-ms:600000}")
+    public void sweep() {
+        try {
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at <= now()");
+        } catch (DataAccessException e) {
+            log.warn("Unable to sweep expired {}s: {}", HEADER, e.toString());
+        }
+    }
+
+    private void forget(String storeKey, CompletableFuture<Response> own) {
+        synchronized (entries) {
+            Entry current = entries.get(storeKey);
+            if (current != null && current.result() == own) {
+                entries.remove(storeKey);
+            }
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("idempotency.requests")
+                .description("Requests carrying an Idempotency-Key, by how they were answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static Response error(int statusCode, String message) {
+        Response response = new Response();
+        response.setStatusCode(statusCode);
+        response.setMessage(message);
+        return response;
+    }
+}
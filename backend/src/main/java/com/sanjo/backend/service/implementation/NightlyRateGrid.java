@@ -0,0 +1,106 @@
+package com.sanjo.backend.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Nightly price of every room for every night of a fixed horizon, in minor currency units (paise).
+ * Each room keeps a prefix-sum row, so the total of any stay inside the horizon is one subtraction.
+ * Rows are replaced whole, so readers never see a half-updated row; only the pricing service writes.
+ */
+class NightlyRateGrid {
+
+    private final long firstEpochDay;
+    private final int nights;
+    //Sorted, so a room is found with a binary search
+    private final long[] roomIds;
+    private final String[] roomTypes;
+    private final long[] baseRates;
+    private final Map<String, int[]> roomsByType = new HashMap<>();
+    //Per room: entry n is the sum of the rates of the first n nights, nights + 1 entries
+    private final AtomicReferenceArray<long[]> cumulativeRates;
+
+    NightlyRateGrid(LocalDate firstNight, int nights, long[] roomIds, String[] roomTypes, long[] baseRates) {
+        this.firstEpochDay = firstNight.toEpochDay();
+        this.nights = nights;
+        this.roomIds = roomIds;
+        this.roomTypes = roomTypes;
+        this.baseRates = baseRates;
+        this.cumulativeRates = new AtomicReferenceArray<>(roomIds.length);
+
+        Map<String, List<Integer>> indexesByType = new HashMap<>();
+        for (int room = 0; room < roomIds.length; room++) {
+            indexesByType.computeIfAbsent(roomTypes[room], type -> new ArrayList<>()).add(room);
+        }
+        indexesByType.forEach((type, indexes) ->
+                roomsByType.put(type, indexes.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    LocalDate firstNight() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    int nights() {
+        return nights;
+    }
+
+    int roomCount() {
+        return roomIds.length;
+    }
+
+    //Position of the room in the grid, or -1 when it is not priced here
+    int indexOf(long roomId) {
+        int index = Arrays.binarySearch(roomIds, roomId);
+        return index < 0 ? -1 : index;
+    }
+
+    long roomId(int room) {
+        return roomIds[room];
+    }
+
+    String roomType(int room) {
+        return roomTypes[room];
+    }
+
+    //Positions of every room of the type; the map is never modified after construction
+    Map<String, int[]> roomsByType() {
+        return roomsByType;
+    }
+
+    long baseRate(int room) {
+        return baseRates[room];
+    }
+
+    //Night offset from the first night of the grid; may fall outside [0, nights]
+    long nightIndex(LocalDate date) {
+        return date.toEpochDay() - firstEpochDay;
+    }
+
+    //Sum of the rates of nights [fromNight, toNight), both within [0, nights]
+    long total(int room, int fromNight, int toNight) {
+        long[] cumulative = cumulativeRates.get(room);
+        return cumulative[toNight] - cumulative[fromNight];
+    }
+
+    long[] nightlyRates(int room) {
+        long[] cumulative = cumulativeRates.get(room);
+        long[] rates = new long[nights];
+        for (int night = 0; night < nights; night++) {
+            rates[night] = cumulative[night + 1] - cumulative[night];
+        }
+        return rates;
+    }
+
+    void setNightlyRates(int room, long[] rates) {
+        long[] cumulative = new long[nights + 1];
+        for (int night = 0; night < nights; night++) {
+            cumulative[night + 1] = cumulative[night] + rates[night];
+        }
+        cumulativeRates.set(room, cumulative);
+    }
+}
@@ -1,10 +1,14 @@
 package com.sanjo.backend.service.implementation;
 
-import com.stripe.Stripe;
+import com.sanjo.backend.resilience.OutboundGuard;
+import com.sanjo.backend.resilience.OutboundGuards;
+import com.stripe.exception.CardException;
+import com.stripe.exception.IdempotencyException;
+import com.stripe.exception.InvalidRequestException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,9 +20,35 @@ public class PaymentService {
     @Value("${stripe.api.key}")
     private String stripeApiKey;
 
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = stripeApiKey;
+    //Empty for the Stripe API itself; set to point payments at another host, e.g. a local stub
+    @Value("${stripe.api.base-url:}")
+    private String stripeBaseUrl;
+
+    private final OutboundGuard guard;
+
+    //Built on the first payment instead of at startup; the key travels with each request
+    private volatile RequestOptions requestOptions;
+
+    public PaymentService(OutboundGuards outboundGuards) {
+        //Declined cards and rejected parameters are answers from a healthy Stripe
+        this.guard = outboundGuards.guard("stripe", e -> e instanceof CardException
+                || e instanceof InvalidRequestException || e instanceof IdempotencyException);
+    }
+
+    private RequestOptions requestOptions() {
+        RequestOptions options = this.requestOptions;
+        if (options == null) {
+            RequestOptions.RequestOptionsBuilder builder = RequestOptions.builder()
+                    .setApiKey(stripeApiKey)
+                    .setConnectTimeout(guard.getSettings().connectTimeoutMillis())
+                    .setReadTimeout(guard.getSettings().timeoutMillis());
+            if (!stripeBaseUrl.isBlank()) {
+                builder.setBaseUrl(stripeBaseUrl);
+            }
+            options = builder.build();
+            this.requestOptions = options;
+        }
+        return options;
     }
 
     public PaymentIntent createPaymentIntent(BigDecimal amount) throws StripeException {
@@ -31,6 +61,6 @@ public class PaymentService {
                                 .build())
                 .build();
 
-        return PaymentIntent.create(params);
+        return guard.call(() -> PaymentIntent.create(params, requestOptions()));
     }
 }
@@ -0,0 +1,539 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.PricingRuleDTO;
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.StayQuoteDTO;
+import com.sanjo.backend.entity.PricingRule;
+import com.sanjo.backend.entity.PricingRule.RuleType;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.PricingRuleRepository;
+import com.sanjo.backend.security.Utils;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IAuditService;
+import com.sanjo.backend.service.interfac.IPricingService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Prices stays from a precomputed {@link NightlyRateGrid}: the room's base price adjusted by every pricing rule
+ * that matches the night, for each room and each night of the horizon. The grid is built lazily, rebuilt in full
+ * when rooms or rules change, and only the affected nights of a room type are recomputed when a booking changes
+ * its occupancy. Nights outside the horizon are priced on the fly, without occupancy rules.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PricingService implements IPricingService {
+
+    private static final long ONE_PPM = 1_000_000L;
+    private static final int MAX_QUOTE_ROOMS = 500;
+    private static final int MAX_STAY_NIGHTS = 365;
+    private static final BigDecimal MIN_ADJUSTMENT_PERCENT = BigDecimal.valueOf(-100);
+    private static final BigDecimal MAX_ADJUSTMENT_PERCENT = BigDecimal.valueOf(1000);
+
+    //A rule with its dates as epoch days and its adjustment as a factor in millionths
+    private record CompiledRule(RuleType ruleType, String roomType, long firstEpochDay, long lastEpochDay,
+                                int minOccupancyPercent, long factorPpm) {
+
+        static CompiledRule of(PricingRule rule) {
+            long factor = ONE_PPM + rule.getAdjustmentPercent().movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            return new CompiledRule(rule.getRuleType(), rule.getRoomType(),
+                    rule.getStartDate() == null ? Long.MIN_VALUE : rule.getStartDate().toEpochDay(),
+                    rule.getEndDate() == null ? Long.MAX_VALUE : rule.getEndDate().toEpochDay(),
+                    rule.getMinOccupancyPercent() == null ? 0 : rule.getMinOccupancyPercent(),
+                    factor);
+        }
+
+        boolean appliesTo(String type) {
+            return roomType == null || roomType.equals(type);
+        }
+
+        boolean appliesOn(long epochDay, int occupancyPercent) {
+            if (epochDay < firstEpochDay || epochDay > lastEpochDay) {
+                return false;
+            }
+            return switch (ruleType) {
+                case WEEKEND -> isWeekendNight(epochDay);
+                case SEASON -> true;
+                case OCCUPANCY -> occupancyPercent >= minOccupancyPercent;
+            };
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PricingRuleRepository pricingRuleRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final IAuditService auditService;
+    private final BookingPartitionService bookingPartitionService;
+
+    @Value("${pricing.horizon-days:365}")
+    private int horizonDays;
+
+    //Both are replaced under the service lock; readers use whatever is current
+    private volatile NightlyRateGrid grid;
+    private volatile List<CompiledRule> rules = List.of();
+
+    @PostConstruct
+    public void init() {
+        //Room catalog or prices changed
+        cacheInvalidationBus.subscribe(EntityType.ROOM_DETAILS, roomId -> {
+            if (roomId == null) {
+                invalidate();
+            } else {
+                roomChanged(Long.parseLong(roomId));
+            }
+        });
+        //Bookings publish the room they touched, which cannot move a base rate; their nights arrive through RATES.
+        //Null means bookings may have gone in bulk, e.g. with a deleted user
+        cacheInvalidationBus.subscribe(EntityType.ROOM, roomId -> {
+            if (roomId == null) {
+                invalidate();
+            }
+        });
+        cacheInvalidationBus.subscribe(EntityType.ROOM_TYPE, roomType -> invalidate());
+        //"checkIn/checkOut/roomType" after a booking change, null after a rule change
+        cacheInvalidationBus.subscribe(EntityType.RATES, change -> {
+            String[] parts = change == null ? null : change.split("/", 3);
+            if (parts == null || parts.length != 3) {
+                invalidate();
+            } else {
+                recomputeNights(parts[2].isEmpty() ? null : parts[2], LocalDate.parse(parts[0]), LocalDate.parse(parts[1]));
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            //Built on the first quote instead
+            log.warn("Unable to build the nightly rate grid at startup: {}", e.getMessage());
+        }
+    }
+
+    //Rolls the horizon forward one day
+    @Scheduled(cron = "${pricing.rebuild-cron:0 5 0 * * *}")
+    public void scheduledRebuild() {
+        warmUp();
+    }
+
+    @Override
+    public Response getStayQuotes(List<Long> roomIds, LocalDate checkInDate, LocalDate checkOutDate) {
+
+        Response response = new Response();
+
+        try {
+            validateStay(checkInDate, checkOutDate);
+            NightlyRateGrid current = grid();
+            List<StayQuoteDTO> quotes = new ArrayList<>();
+            if (roomIds == null || roomIds.isEmpty()) {
+                for (int room = 0; room < current.roomCount(); room++) {
+                    quotes.add(quote(current, room, checkInDate, checkOutDate));
+                }
+            } else {
+                if (roomIds.size() > MAX_QUOTE_ROOMS) {
+                    throw new IllegalArgumentException("At most " + MAX_QUOTE_ROOMS + " rooms can be quoted at once");
+                }
+                //Unknown rooms are left out
+                for (Long roomId : roomIds) {
+                    int room = roomId == null ? -1 : current.indexOf(roomId);
+                    if (room >= 0) {
+                        quotes.add(quote(current, room, checkInDate, checkOutDate));
+                    }
+                }
+            }
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setStayQuoteList(quotes);
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error quoting stays: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response getPricingRules() {
+
+        Response response = new Response();
+
+        try {
+            List<PricingRuleDTO> pricingRules = pricingRuleRepository.findAll(Sort.by(Sort.Direction.ASC, "id"))
+                    .stream()
+                    .map(Utils::mapPricingRuleEntityToPricingRuleDTO)
+                    .toList();
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setPricingRuleList(pricingRules);
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error getting pricing rules: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response addPricingRule(PricingRuleDTO pricingRule) {
+
+        Response response = new Response();
+
+        try {
+            PricingRule rule = toEntity(pricingRule);
+            PricingRule savedRule = pricingRuleRepository.save(rule);
+            cacheInvalidationBus.publish(EntityType.RATES, null);
+            auditService.record("ADD_PRICING_RULE", "PRICING_RULE", savedRule.getId(), savedRule.toString());
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setPricingRule(Utils.mapPricingRuleEntityToPricingRuleDTO(savedRule));
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error saving a pricing rule: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response deletePricingRule(Long ruleId) {
+
+        Response response = new Response();
+
+        try {
+            PricingRule rule = pricingRuleRepository.findById(ruleId).orElseThrow(() -> new OurException("Pricing Rule Not Found"));
+            pricingRuleRepository.delete(rule);
+            cacheInvalidationBus.publish(EntityType.RATES, null);
+            auditService.record("DELETE_PRICING_RULE", "PRICING_RULE", ruleId, rule.toString());
+            response.setStatusCode(200);
+            response.setMessage("successful");
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error deleting a pricing rule: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public StayQuoteDTO quoteStay(Long roomId, LocalDate checkInDate, LocalDate checkOutDate) {
+        validateStay(checkInDate, checkOutDate);
+        NightlyRateGrid current = grid();
+        int room = roomId == null ? -1 : current.indexOf(roomId);
+        if (room < 0) {
+            throw new OurException("Room Not Found");
+        }
+        return quote(current, room, checkInDate, checkOutDate);
+    }
+
+    @Override
+    public Map<Long, BigDecimal> getStayPrices(Collection<Long> roomIds, LocalDate checkInDate, LocalDate checkOutDate) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        if (checkInDate == null || checkOutDate == null || !checkOutDate.isAfter(checkInDate)
+                || checkOutDate.toEpochDay() - checkInDate.toEpochDay() > MAX_STAY_NIGHTS) {
+            return prices;
+        }
+        NightlyRateGrid current = grid();
+        for (Long roomId : roomIds) {
+            int room = current.indexOf(roomId);
+            if (room >= 0) {
+                prices.put(roomId, toAmount(stayTotal(current, room, checkInDate, checkOutDate)));
+            }
+        }
+        return prices;
+    }
+
+    @Override
+    public CacheInvalidationBus.Change bookingChange(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        //The caller publishes it with the rest of the booking's changes
+        return new CacheInvalidationBus.Change(EntityType.RATES,
+                checkInDate + "/" + checkOutDate + "/" + (roomType == null ? "" : roomType));
+    }
+
+    private NightlyRateGrid grid() {
+        NightlyRateGrid current = grid;
+        return current != null ? current : buildIfMissing();
+    }
+
+    //Requests that found no grid queue here; the first one builds it and the rest take its result
+    private synchronized NightlyRateGrid buildIfMissing() {
+        NightlyRateGrid current = grid;
+        return current != null ? current : rebuild();
+    }
+
+    private synchronized NightlyRateGrid rebuild() {
+        List<CompiledRule> compiledRules = pricingRuleRepository.findAll().stream().map(CompiledRule::of).toList();
+
+        List<Long> ids = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        List<Long> baseRates = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, room_type, room_price FROM room ORDER BY id", resultSet -> {
+            ids.add(resultSet.getLong("id"));
+            types.add(resultSet.getString("room_type"));
+            baseRates.add(toMinorUnits(resultSet.getBigDecimal("room_price")));
+        });
+
+        LocalDate firstNight = LocalDate.now();
+        NightlyRateGrid built = new NightlyRateGrid(firstNight, horizonDays,
+                ids.stream().mapToLong(Long::longValue).toArray(),
+                types.toArray(new String[0]),
+                baseRates.stream().mapToLong(Long::longValue).toArray());
+
+        built.roomsByType().forEach((type, rooms) -> {
+            long[] multipliers = multipliers(type, rooms.length, rulesFor(compiledRules, type),
+                    firstNight.toEpochDay(), horizonDays);
+            for (int room : rooms) {
+                long[] rates = new long[horizonDays];
+                for (int night = 0; night < horizonDays; night++) {
+                    rates[night] = rate(built.baseRate(room), multipliers[night]);
+                }
+                built.setNightlyRates(room, rates);
+            }
+        });
+
+        rules = compiledRules;
+        grid = built;
+        log.debug("Built nightly rate grid for {} rooms from {}", built.roomCount(), firstNight);
+        return built;
+    }
+
+    private synchronized void invalidate() {
+        grid = null;
+    }
+
+    private synchronized void roomChanged(long roomId) {
+        NightlyRateGrid current = grid;
+        if (current == null) {
+            return;
+        }
+        int room = current.indexOf(roomId);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT room_type, room_price FROM room WHERE id = ?", roomId);
+        boolean unchanged = room < 0
+                ? rows.isEmpty()
+                : !rows.isEmpty()
+                && current.baseRate(room) == toMinorUnits((BigDecimal) rows.get(0).get("room_price"))
+                && Objects.equals(current.roomType(room), rows.get(0).get("room_type"));
+        if (!unchanged) {
+            grid = null;
+        }
+    }
+
+    //Occupancy moved for these nights, so only occupancy rules of the type can change their price
+    private synchronized void recomputeNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        NightlyRateGrid current = grid;
+        if (current == null) {
+            return;
+        }
+        int[] rooms = current.roomsByType().get(roomType);
+        List<CompiledRule> typeRules = rulesFor(rules, roomType);
+        if (rooms == null || typeRules.stream().noneMatch(rule -> rule.ruleType() == RuleType.OCCUPANCY)) {
+            return;
+        }
+        int from = (int) Math.max(current.nightIndex(checkInDate), 0);
+        int to = (int) Math.min(current.nightIndex(checkOutDate), current.nights());
+        if (from >= to) {
+            return;
+        }
+        long[] multipliers = multipliers(roomType, rooms.length, typeRules,
+                current.firstNight().toEpochDay() + from, to - from);
+        for (int room : rooms) {
+            long[] rates = current.nightlyRates(room);
+            for (int night = from; night < to; night++) {
+                rates[night] = rate(current.baseRate(room), multipliers[night - from]);
+            }
+            current.setNightlyRates(room, rates);
+        }
+    }
+
+    //Combined rule factor of each of the nights, in millionths
+    private long[] multipliers(String roomType, int roomCount, List<CompiledRule> typeRules, long firstEpochDay, int nights) {
+        boolean usesOccupancy = typeRules.stream().anyMatch(rule -> rule.ruleType() == RuleType.OCCUPANCY);
+        int[] bookedRooms = usesOccupancy && roomType != null ? bookedRooms(roomType, firstEpochDay, nights) : null;
+
+        long[] multipliers = new long[nights];
+        for (int night = 0; night < nights; night++) {
+            int occupancyPercent = bookedRooms == null ? 0 : bookedRooms[night] * 100 / roomCount;
+            multipliers[night] = multiplier(typeRules, firstEpochDay + night, occupancyPercent);
+        }
+        return multipliers;
+    }
+
+    //Rooms of the type booked on each of the nights, from a difference array over the overlapping bookings
+    private int[] bookedRooms(String roomType, long firstEpochDay, int nights) {
+        int[] changes = new int[nights + 1];
+        jdbcTemplate.query("""
+                        SELECT b.check_in_date, b.check_out_date
+                        FROM bookings b JOIN room r ON r.id = b.room_id
+                        WHERE r.room_type = ? AND b.check_in_date >= ? AND b.check_in_date < ? AND b.check_out_date > ?
+                        """,
+                resultSet -> {
+                    long start = resultSet.getDate(1).toLocalDate().toEpochDay() - firstEpochDay;
+                    long end = resultSet.getDate(2).toLocalDate().toEpochDay() - firstEpochDay;
+                    changes[(int) Math.max(start, 0)]++;
+                    changes[(int) Math.min(end, nights)]--;
+                },
+                roomType,
+                Date.valueOf(bookingPartitionService.earliestOverlappingCheckIn(LocalDate.ofEpochDay(firstEpochDay))),
+                Date.valueOf(LocalDate.ofEpochDay(firstEpochDay + nights)),
+                Date.valueOf(LocalDate.ofEpochDay(firstEpochDay)));
+
+        int[] booked = new int[nights];
+        int running = 0;
+        for (int night = 0; night < nights; night++) {
+            running += changes[night];
+            booked[night] = running;
+        }
+        return booked;
+    }
+
+    private StayQuoteDTO quote(NightlyRateGrid current, int room, LocalDate checkInDate, LocalDate checkOutDate) {
+        int nights = (int) (checkOutDate.toEpochDay() - checkInDate.toEpochDay());
+        long total = stayTotal(current, room, checkInDate, checkOutDate);
+
+        StayQuoteDTO quote = new StayQuoteDTO();
+        quote.setRoomId(current.roomId(room));
+        quote.setRoomType(current.roomType(room));
+        quote.setCheckInDate(checkInDate);
+        quote.setCheckOutDate(checkOutDate);
+        quote.setNights(nights);
+        quote.setTotalPrice(toAmount(total));
+        quote.setAverageNightlyPrice(toAmount(total).divide(BigDecimal.valueOf(nights), 2, RoundingMode.HALF_UP));
+        return quote;
+    }
+
+    private long stayTotal(NightlyRateGrid current, int room, LocalDate checkInDate, LocalDate checkOutDate) {
+        long from = current.nightIndex(checkInDate);
+        long to = current.nightIndex(checkOutDate);
+        if (from >= 0 && to <= current.nights()) {
+            return current.total(room, (int) from, (int) to);
+        }
+        //Partly outside the horizon: grid rates where there are some, rules without occupancy elsewhere
+        List<CompiledRule> typeRules = rulesFor(rules, current.roomType(room));
+        long total = 0;
+        for (long night = from; night < to; night++) {
+            if (night >= 0 && night < current.nights()) {
+                total += current.total(room, (int) night, (int) night + 1);
+            } else {
+                long epochDay = checkInDate.toEpochDay() + (night - from);
+                total += rate(current.baseRate(room), multiplier(typeRules, epochDay, 0));
+            }
+        }
+        return total;
+    }
+
+    private PricingRule toEntity(PricingRuleDTO pricingRule) {
+        if (pricingRule.getName() == null || pricingRule.getName().isBlank()) {
+            throw new IllegalArgumentException("Pricing rule name is required");
+        }
+        if (pricingRule.getRuleType() == null) {
+            throw new IllegalArgumentException("Pricing rule type is required");
+        }
+        BigDecimal adjustment = pricingRule.getAdjustmentPercent();
+        if (adjustment == null || adjustment.compareTo(MIN_ADJUSTMENT_PERCENT) <= 0
+                || adjustment.compareTo(MAX_ADJUSTMENT_PERCENT) > 0) {
+            throw new IllegalArgumentException("Adjustment percent must be above -100 and at most 1000");
+        }
+        if (pricingRule.getRuleType() == RuleType.SEASON
+                && (pricingRule.getStartDate() == null || pricingRule.getEndDate() == null)) {
+            throw new IllegalArgumentException("Season rules need a start date and an end date");
+        }
+        if (pricingRule.getStartDate() != null && pricingRule.getEndDate() != null
+                && pricingRule.getEndDate().isBefore(pricingRule.getStartDate())) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        Integer minOccupancy = pricingRule.getMinOccupancyPercent();
+        if (pricingRule.getRuleType() == RuleType.OCCUPANCY && (minOccupancy == null || minOccupancy < 1 || minOccupancy > 100)) {
+            throw new IllegalArgumentException("Occupancy rules need a minimum occupancy between 1 and 100 percent");
+        }
+
+        PricingRule rule = new PricingRule();
+        rule.setName(pricingRule.getName());
+        rule.setRuleType(pricingRule.getRuleType());
+        rule.setRoomType(pricingRule.getRoomType() == null || pricingRule.getRoomType().isBlank() ? null : pricingRule.getRoomType());
+        rule.setStartDate(pricingRule.getStartDate());
+        rule.setEndDate(pricingRule.getEndDate());
+        rule.setMinOccupancyPercent(pricingRule.getRuleType() == RuleType.OCCUPANCY ? minOccupancy : null);
+        rule.setAdjustmentPercent(adjustment.setScale(2, RoundingMode.HALF_UP));
+        return rule;
+    }
+
+    private static void validateStay(LocalDate checkInDate, LocalDate checkOutDate) {
+        if (checkInDate == null || checkOutDate == null) {
+            throw new IllegalArgumentException("Check-in date and check-out date are required");
+        }
+        if (!checkOutDate.isAfter(checkInDate)) {
+            throw new IllegalArgumentException("Check out date must come after check in date");
+        }
+        if (checkOutDate.toEpochDay() - checkInDate.toEpochDay() > MAX_STAY_NIGHTS) {
+            throw new IllegalArgumentException("Stays longer than " + MAX_STAY_NIGHTS + " nights cannot be quoted");
+        }
+    }
+
+    private static List<CompiledRule> rulesFor(List<CompiledRule> compiledRules, String roomType) {
+        return compiledRules.stream().filter(rule -> rule.appliesTo(roomType)).toList();
+    }
+
+    private static long multiplier(List<CompiledRule> typeRules, long epochDay, int occupancyPercent) {
+        long multiplier = ONE_PPM;
+        for (CompiledRule rule : typeRules) {
+            if (rule.appliesOn(epochDay, occupancyPercent)) {
+                multiplier = (multiplier * rule.factorPpm() + ONE_PPM / 2) / ONE_PPM;
+            }
+        }
+        return multiplier;
+    }
+
+    private static long rate(long baseRate, long multiplier) {
+        return (Math.multiplyExact(baseRate, multiplier) + ONE_PPM / 2) / ONE_PPM;
+    }
+
+    //Friday and Saturday nights; 1970-01-01 was a Thursday
+    private static boolean isWeekendNight(long epochDay) {
+        int dayOfWeek = (int) Math.floorMod(epochDay + 3, 7L);
+        return dayOfWeek == 4 || dayOfWeek == 5;
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+}
@@ -0,0 +1,103 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.entity.RefreshToken;
+import com.sanjo.backend.entity.User;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Issues opaque refresh tokens and rotates them on every use.
+ * Presenting a token that was already rotated means it leaked, so every session of that user is revoked.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-token.ttl-days:7}")
+    private long refreshTokenTtlDays;
+
+    @Transactional
+    public String issue(User user) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Instant now = Instant.now();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUser(user);
+        refreshToken.setCreatedAt(now);
+        refreshToken.setExpiresAt(now.plus(refreshTokenTtlDays, ChronoUnit.DAYS));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    //noRollbackFor: revoking the whole family on reuse must survive the exception that reports it
+    @Transactional(noRollbackFor = OurException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new OurException("Invalid refresh token"));
+
+        if (refreshToken.getUser().isBanned()) {
+            throw new OurException("Account is banned");
+        }
+        if (refreshToken.isRevoked()) {
+            refreshTokenRepository.revokeAllForUser(refreshToken.getUser().getId());
+            throw new OurException("Refresh token reuse detected, please log in again");
+        }
+        if (refreshToken.getExpiresAt().isBefore(Instant.now())) {
+            throw new OurException("Refresh token expired, please log in again");
+        }
+
+        refreshToken.setRevoked(true);
+        User user = refreshToken.getUser();
+        return new Rotation(user, issue(user));
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .ifPresent(refreshToken -> refreshToken.setRevoked(true));
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    @Scheduled(cron = "${jwt.refresh-token.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
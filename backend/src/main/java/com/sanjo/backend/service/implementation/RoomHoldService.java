@@ -0,0 +1,368 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.RoomHoldDTO;
+import com.sanjo.backend.entity.User;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.BookingRepository;
+import com.sanjo.backend.repository.RoomRepository;
+import com.sanjo.backend.repository.UserRepository;
+import com.sanjo.backend.security.Utils;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps short-lived, in-memory reservations of a room for a date range while the guest pays.
+ * Holds are checked lazily against their expiry on every read; the timer wheel only reclaims them.
+ * Every node mirrors every hold through CacheInvalidationBus, so a hold placed on one node is seen by
+ * bookings, searches and payments on the others within the NOTIFY latency.
+ */
+@Service
+@RequiredArgsConstructor
+public class RoomHoldService implements IRoomHoldService {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 1024;
+
+    //local: created on this node rather than mirrored from another one
+    private record RoomHold(String holdId, Long roomId, Long userId,
+                            LocalDate checkInDate, LocalDate checkOutDate, long expiresAtMillis, boolean local) {
+
+        //"holdId/roomId/userId/checkIn/checkOut/expiresAt", the HOLD payload other nodes mirror the hold from
+        String encode() {
+            return holdId + "/" + roomId + "/" + userId + "/" + checkInDate + "/" + checkOutDate + "/" + expiresAtMillis;
+        }
+
+        static RoomHold decode(String encoded) {
+            String[] parts = encoded.split("/");
+            return new RoomHold(parts[0], Long.valueOf(parts[1]), Long.valueOf(parts[2]),
+                    LocalDate.parse(parts[3]), LocalDate.parse(parts[4]), Long.parseLong(parts[5]), false);
+        }
+
+        boolean isActive(long nowMillis) {
+            return expiresAtMillis > nowMillis;
+        }
+
+        //Same inclusive overlap rule as RoomRepository.findAllAvailableRoomsByDatesAndTypes
+        boolean overlaps(LocalDate checkIn, LocalDate checkOut) {
+            return !checkInDate.isAfter(checkOut) && !checkOutDate.isBefore(checkIn);
+        }
+    }
+
+    private final RoomRepository roomRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingPartitionService bookingPartitionService;
+    private final UserRepository userRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${booking.hold.ttl-minutes:10}")
+    private long holdTtlMinutes;
+
+    private final Map<String, RoomHold> holdsById = new ConcurrentHashMap<>();
+    private final Map<Long, List<RoomHold>> holdsByRoom = new ConcurrentHashMap<>();
+    private final HoldExpiryWheel expiryWheel = new HoldExpiryWheel(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> expiryWheel.advance(System.currentTimeMillis(), this::expired),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        //Holds are mirrored on every node, so a booking, search or payment on any of them respects them.
+        //"+<hold>" adds one, "-<holdId>" removes one; null (a reconnect) has nothing to replay, since
+        //holds missed meanwhile lapse within their ttl
+        cacheInvalidationBus.subscribe(EntityType.HOLD, change -> {
+            if (change == null || change.length() < 2) {
+                return;
+            }
+            if (change.charAt(0) == '+') {
+                RoomHold hold = RoomHold.decode(change.substring(1));
+                if (!holdsById.containsKey(hold.holdId()) && hold.isActive(System.currentTimeMillis())) {
+                    insert(hold, false);
+                }
+            } else if (change.charAt(0) == '-') {
+                remove(change.substring(1));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @Override
+    public Response holdRoom(String requesterEmail, Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate) {
+
+        Response response = new Response();
+
+        try {
+            //Guests hold rooms for themselves only; admins may hold on a guest's behalf
+            authorise(requesterEmail, userId);
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+            return response;
+
+        } catch (AccessDeniedException e) {
+            response.setStatusCode(403);
+            response.setMessage(e.getMessage());
+            return response;
+        }
+        return holdRoom(roomId, userId, checkInDate, checkOutDate, holdTtlMinutes);
+    }
+
+    @Override
+    public Response holdRoom(Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate, long ttlMinutes) {
+
+        Response response = new Response();
+
+        try {
+            if (checkOutDate.isBefore(checkInDate)) {
+                throw new IllegalArgumentException("Check in date must come after check out date");
+            }
+            if (!roomRepository.existsById(roomId)) {
+                throw new OurException("Room Not Found");
+            }
+            if (bookingRepository.existsOverlappingBooking(roomId, checkInDate, checkOutDate,
+                    bookingPartitionService.earliestOverlappingCheckIn(checkInDate))) {
+                throw new OurException("Room not Available for selected date range");
+            }
+
+            long now = System.currentTimeMillis();
+            RoomHold hold = new RoomHold(Utils.generateRandomConfirmationCode(16), roomId, userId,
+                    checkInDate, checkOutDate, now + TimeUnit.MINUTES.toMillis(ttlMinutes), true);
+
+            insert(hold, true);
+            cacheInvalidationBus.publish(EntityType.HOLD, "+" + hold.encode());
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setRoomHold(mapRoomHoldToRoomHoldDTO(hold));
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Holding a room: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response releaseHold(String requesterEmail, String holdId) {
+
+        Response response = new Response();
+
+        try {
+            RoomHold hold = holdsById.get(holdId);
+            if (hold == null || !hold.isActive(System.currentTimeMillis())) {
+                throw new OurException("Hold Not Found");
+            }
+            authorise(requesterEmail, hold.userId());
+            release(holdId);
+            response.setStatusCode(200);
+            response.setMessage("successful");
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (AccessDeniedException e) {
+            response.setStatusCode(403);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Releasing a hold: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response releaseHold(String holdId) {
+
+        Response response = new Response();
+
+        try {
+            RoomHold hold = holdsById.get(holdId);
+            if (hold == null || !hold.isActive(System.currentTimeMillis())) {
+                throw new OurException("Hold Not Found");
+            }
+            release(holdId);
+            response.setStatusCode(200);
+            response.setMessage("successful");
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Releasing a hold: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    private void authorise(String requesterEmail, Long ownerId) {
+        User requester = userRepository.findByEmail(requesterEmail).orElseThrow(() -> new OurException("User Not Found"));
+        if (!ownerId.equals(requester.getId()) && !"ADMIN".equals(requester.getRole())) {
+            throw new AccessDeniedException("Holds can only be managed by the guest they belong to");
+        }
+    }
+
+    @Override
+    public boolean isHoldActive(String holdId) {
+        RoomHold hold = holdsById.get(holdId);
+        return hold != null && hold.isActive(System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean isHeldByAnotherUser(Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate) {
+        List<RoomHold> holds = holdsByRoom.get(roomId);
+        if (holds == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        return holds.stream().anyMatch(hold -> hold.isActive(now)
+                && !hold.userId().equals(userId)
+                && hold.overlaps(checkInDate, checkOutDate));
+    }
+
+    @Override
+    public Set<Long> getHeldRoomIds(LocalDate checkInDate, LocalDate checkOutDate) {
+        long now = System.currentTimeMillis();
+        Set<Long> heldRoomIds = new HashSet<>();
+        holdsByRoom.forEach((roomId, holds) -> {
+            if (holds.stream().anyMatch(hold -> hold.isActive(now) && hold.overlaps(checkInDate, checkOutDate))) {
+                heldRoomIds.add(roomId);
+            }
+        });
+        return heldRoomIds;
+    }
+
+    @Override
+    public List<RoomHoldDTO> getActiveHolds(LocalDate checkInDate, LocalDate checkOutDate) {
+        long now = System.currentTimeMillis();
+        return holdsById.values().stream()
+                .filter(hold -> hold.isActive(now) && hold.overlaps(checkInDate, checkOutDate))
+                .map(this::mapRoomHoldToRoomHoldDTO)
+                .toList();
+    }
+
+    @Override
+    public void consumeHold(Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate) {
+        List<RoomHold> holds = holdsByRoom.get(roomId);
+        if (holds == null) {
+            return;
+        }
+        holds.stream()
+                .filter(hold -> hold.userId().equals(userId) && hold.overlaps(checkInDate, checkOutDate))
+                .map(RoomHold::holdId)
+                .toList()
+                .forEach(this::release);
+    }
+
+    //Check and insert atomically per room so two guests cannot both win the same dates on this node.
+    //Mirrored holds are taken as they come: another node already told its guest the room is theirs
+    private void insert(RoomHold hold, boolean rejectConflicts) {
+        long now = System.currentTimeMillis();
+        holdsByRoom.compute(hold.roomId(), (id, holds) -> {
+            List<RoomHold> live = new ArrayList<>();
+            if (holds != null) {
+                for (RoomHold existing : holds) {
+                    if (!existing.isActive(now)) {
+                        continue;
+                    }
+                    if (existing.overlaps(hold.checkInDate(), hold.checkOutDate())) {
+                        if (!existing.userId().equals(hold.userId())) {
+                            if (rejectConflicts) {
+                                throw new OurException("Room is currently held by another guest for selected date range");
+                            }
+                        } else {
+                            //The same guest re-selecting the room replaces their previous hold, on every node alike
+                            holdsById.remove(existing.holdId());
+                            continue;
+                        }
+                    }
+                    live.add(existing);
+                }
+            }
+            live.add(hold);
+            return live;
+        });
+        holdsById.put(hold.holdId(), hold);
+        expiryWheel.schedule(hold.holdId(), hold.expiresAtMillis());
+    }
+
+    //Released or consumed here; the other nodes drop their copy too
+    private void release(String holdId) {
+        if (remove(holdId) != null) {
+            cacheInvalidationBus.publish(EntityType.HOLD, "-" + holdId);
+        }
+    }
+
+    //Every node's wheel lapses its copy at the same expiry; the creating node also tells the others,
+    //for copies scheduled on a node whose clock runs behind
+    private void expired(String holdId) {
+        RoomHold hold = remove(holdId);
+        if (hold != null && hold.local()) {
+            cacheInvalidationBus.publish(EntityType.HOLD, "-" + holdId);
+        }
+    }
+
+    private RoomHold remove(String holdId) {
+        RoomHold hold = holdsById.remove(holdId);
+        if (hold == null) {
+            return null;
+        }
+        holdsByRoom.computeIfPresent(hold.roomId(), (id, holds) -> {
+            List<RoomHold> remaining = holds.stream()
+                    .filter(existing -> !existing.holdId().equals(holdId))
+                    .toList();
+            return remaining.isEmpty() ? null : new ArrayList<>(remaining);
+        });
+        return hold;
+    }
+
+    private RoomHoldDTO mapRoomHoldToRoomHoldDTO(RoomHold hold) {
+        RoomHoldDTO roomHoldDTO = new RoomHoldDTO();
+
+        roomHoldDTO.setHoldId(hold.holdId());
+        roomHoldDTO.setRoomId(hold.roomId());
+        roomHoldDTO.setUserId(hold.userId());
+        roomHoldDTO.setCheckInDate(hold.checkInDate());
+        roomHoldDTO.setCheckOutDate(hold.checkOutDate());
+        roomHoldDTO.setExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.expiresAtMillis()), ZoneId.systemDefault()));
+        return roomHoldDTO;
+    }
+}
@@ -0,0 +1,330 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.RoomImportResultDTO;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IAuditService;
+import com.sanjo.backend.service.interfac.IRoomImportService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports rooms from a CSV stream in fixed-size chunks: each chunk's photos are uploaded on a bounded pool,
+ * then its rows are inserted with one JDBC batch. Only one chunk is held in memory at a time,
+ * and a bad row is reported with its line number instead of failing the whole file.
+ */
+@Service
+@RequiredArgsConstructor
+public class RoomImportService implements IRoomImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_COLUMN_LENGTH = 255;
+    private static final String INSERT_ROOM_SQL =
+            "INSERT INTO room (room_type, room_price, room_description, room_photo_url) VALUES (?, ?, ?, ?)";
+
+    //Accepted header names, lower-cased, for each column
+    private static final Map<String, String> COLUMN_ALIASES = Map.of(
+            "roomtype", "roomType", "type", "roomType",
+            "roomprice", "roomPrice", "price", "roomPrice",
+            "roomdescription", "roomDescription", "description", "roomDescription",
+            "photo", "photo", "photourl", "photo", "roomphotourl", "photo");
+
+    private record ImportRow(long line, String roomType, BigDecimal roomPrice, String description, String photo) {
+    }
+
+    private record ReadyRow(ImportRow row, String photoUrl) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CloudinaryService cloudinaryService;
+    private final RoomTypeInventoryService roomTypeInventoryService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final IAuditService auditService;
+
+    @Value("${room.import.batch-size:200}")
+    private int batchSize;
+
+    @Value("${room.import.photo-threads:8}")
+    private int photoThreads;
+
+    @Value("${room.import.photo-timeout-seconds:60}")
+    private long photoTimeoutSeconds;
+
+    //Local photo paths are resolved inside this directory only; empty disables paths
+    @Value("${room.import.photo-directory:}")
+    private String photoDirectory;
+
+    private ThreadPoolExecutor photoExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        //Caller-runs when the queue is full, so concurrent imports slow down instead of queueing without bound
+        photoExecutor = new ThreadPoolExecutor(photoThreads, photoThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(batchSize, 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "room-import-photo-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        photoExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        photoExecutor.shutdownNow();
+    }
+
+    @Override
+    public Response importRooms(InputStream csv) {
+
+        Response response = new Response();
+        RoomImportResultDTO result = new RoomImportResultDTO();
+        Set<String> importedRoomTypes = new HashSet<>();
+
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            CsvRowReader reader = new CsvRowReader(bufferedReader);
+            Map<String, Integer> columns = readHeader(reader);
+
+            List<ImportRow> chunk = new ArrayList<>(batchSize);
+            String malformed = null;
+            while (true) {
+                List<String> fields;
+                try {
+                    fields = reader.readRow();
+                } catch (IOException e) {
+                    //Everything before the malformed record is still imported
+                    malformed = e.getMessage();
+                    break;
+                }
+                if (fields == null) {
+                    break;
+                }
+                result.setTotalRows(result.getTotalRows() + 1);
+                try {
+                    chunk.add(parseRow(reader.getRecordLineNumber(), fields, columns));
+                } catch (OurException e) {
+                    addError(result, reader.getRecordLineNumber(), e.getMessage());
+                }
+                if (chunk.size() >= batchSize) {
+                    importChunk(chunk, result, importedRoomTypes);
+                    chunk.clear();
+                }
+            }
+            importChunk(chunk, result, importedRoomTypes);
+            if (malformed != null) {
+                throw new OurException("Malformed CSV: " + malformed);
+            }
+
+            response.setStatusCode(200);
+            response.setMessage("Imported " + result.getImportedRows() + " of " + result.getTotalRows() + " rows");
+
+        } catch (OurException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Importing rooms: " + e.getMessage());
+
+        } finally {
+            if (!importedRoomTypes.isEmpty()) {
+                roomTypeInventoryService.invalidate(importedRoomTypes);
+                cacheInvalidationBus.publish(EntityType.ROOM, null);
+                cacheInvalidationBus.publish(EntityType.ROOM_DETAILS, null);
+                cacheInvalidationBus.publish(EntityType.ROOM_TYPE, null);
+            }
+            if (result.getImportedRows() > 0) {
+                auditService.record("IMPORT_ROOMS", "ROOM", null,
+                        "imported=" + result.getImportedRows() + " failed=" + result.getFailedRows());
+            }
+        }
+        response.setRoomImportResult(result);
+        return response;
+    }
+
+    private Map<String, Integer> readHeader(CsvRowReader reader) throws IOException {
+        List<String> header = reader.readRow();
+        if (header == null) {
+            throw new OurException("CSV file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            //Spreadsheet exports often start with a byte order mark
+            String name = i == 0 ? header.get(i).replace("\uFEFF", "") : header.get(i);
+            String column = COLUMN_ALIASES.get(name.trim().toLowerCase(Locale.ROOT));
+            if (column != null) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        for (String required : List.of("roomType", "roomPrice", "photo")) {
+            if (!columns.containsKey(required)) {
+                throw new OurException("CSV header must contain roomType, roomPrice and photo columns");
+            }
+        }
+        return columns;
+    }
+
+    private ImportRow parseRow(long line, List<String> fields, Map<String, Integer> columns) {
+        String roomType = column(fields, columns, "roomType");
+        String price = column(fields, columns, "roomPrice");
+        String description = column(fields, columns, "roomDescription");
+        String photo = column(fields, columns, "photo");
+
+        if (roomType == null || price == null || photo == null) {
+            throw new OurException("roomType, roomPrice and photo are required");
+        }
+        if (roomType.length() > MAX_COLUMN_LENGTH || photo.length() > MAX_COLUMN_LENGTH
+                || (description != null && description.length() > MAX_COLUMN_LENGTH)) {
+            throw new OurException("Values must be at most " + MAX_COLUMN_LENGTH + " characters");
+        }
+        BigDecimal roomPrice;
+        try {
+            roomPrice = new BigDecimal(price);
+        } catch (NumberFormatException e) {
+            throw new OurException("Invalid roomPrice: " + price);
+        }
+        if (roomPrice.signum() < 0) {
+            throw new OurException("roomPrice must not be negative");
+        }
+        return new ImportRow(line, roomType, roomPrice, description, photo);
+    }
+
+    private String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private void importChunk(List<ImportRow> chunk, RoomImportResultDTO result, Set<String> importedRoomTypes) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Future<String>> photoUploads = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            photoUploads.add(photoExecutor.submit(() -> resolvePhoto(row.photo())));
+        }
+
+        List<ReadyRow> readyRows = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportRow row = chunk.get(i);
+            Future<String> photoUpload = photoUploads.get(i);
+            try {
+                readyRows.add(new ReadyRow(row, photoUpload.get(photoTimeoutSeconds, TimeUnit.SECONDS)));
+            } catch (ExecutionException e) {
+                addError(result, row.line(), e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                photoUpload.cancel(true);
+                addError(result, row.line(), "Photo upload timed out");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OurException("Import interrupted");
+            }
+        }
+        insert(readyRows, result, importedRoomTypes);
+    }
+
+    private String resolvePhoto(String photo) {
+        if (photo.startsWith("http://") || photo.startsWith("https://")) {
+            String host = URI.create(photo).getHost();
+            //Already hosted where rooms are served from
+            if (host != null && host.endsWith("cloudinary.com")) {
+                return photo;
+            }
+            return cloudinaryService.saveRemoteImageToCloudinary(photo);
+        }
+        if (photoDirectory == null || photoDirectory.isBlank()) {
+            throw new OurException("Photo must be a URL, local paths are disabled");
+        }
+        Path baseDirectory = Path.of(photoDirectory).toAbsolutePath().normalize();
+        Path photoPath = baseDirectory.resolve(photo).normalize();
+        if (!photoPath.startsWith(baseDirectory)) {
+            throw new OurException("Photo path must be inside the import directory");
+        }
+        if (!Files.isRegularFile(photoPath)) {
+            throw new OurException("Photo not found: " + photo);
+        }
+        return cloudinaryService.saveImageToCloudinary(photoPath.toFile());
+    }
+
+    private void insert(List<ReadyRow> readyRows, RoomImportResultDTO result, Set<String> importedRoomTypes) {
+        if (readyRows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_ROOM_SQL, readyRows,
+                    readyRows.size(), (statement, readyRow) -> {
+                        statement.setString(1, readyRow.row().roomType());
+                        statement.setBigDecimal(2, readyRow.row().roomPrice());
+                        statement.setString(3, readyRow.row().description());
+                        statement.setString(4, readyRow.photoUrl());
+                    }));
+            for (ReadyRow readyRow : readyRows) {
+                imported(readyRow, result, importedRoomTypes);
+            }
+        } catch (DataAccessException e) {
+            //The batch rolled back as a whole; retry row by row to find the rows at fault
+            for (ReadyRow readyRow : readyRows) {
+                try {
+                    jdbcTemplate.update(INSERT_ROOM_SQL, readyRow.row().roomType(), readyRow.row().roomPrice(),
+                            readyRow.row().description(), readyRow.photoUrl());
+                    imported(readyRow, result, importedRoomTypes);
+                } catch (DataAccessException rowException) {
+                    addError(result, readyRow.row().line(),
+                            "Database error: " + NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+    }
+
+    private void imported(ReadyRow readyRow, RoomImportResultDTO result, Set<String> importedRoomTypes) {
+        result.setImportedRows(result.getImportedRows() + 1);
+        importedRoomTypes.add(readyRow.row().roomType());
+    }
+
+    private void addError(RoomImportResultDTO result, long line, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new RoomImportResultDTO.RowError(line, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+}
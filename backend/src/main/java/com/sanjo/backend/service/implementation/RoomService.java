@@ -1,10 +1,17 @@
 package com.sanjo.backend.service.implementation;
 
+import com.sanjo.backend.dto.FlexibleStayDTO;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.dto.RoomDTO;
+import com.sanjo.backend.dto.RoomHoldDTO;
 import com.sanjo.backend.entity.Room;
 import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.BookingRepository;
 import com.sanjo.backend.repository.RoomRepository;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IAuditService;
+import com.sanjo.backend.service.interfac.IPricingService;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
 import com.sanjo.backend.service.interfac.IRoomService;
 import com.sanjo.backend.security.Utils;
 import lombok.RequiredArgsConstructor;
@@ -13,14 +20,32 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class RoomService implements IRoomService {
 
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_FLEXIBLE_WINDOW_DAYS = 90;
+    private static final int MAX_FLEXIBLE_NIGHTS = 30;
+    private static final int MAX_FLEXIBLE_RESULTS = 100;
+
     private final RoomRepository roomRepository;
+    private final BookingRepository bookingRepository;
     private final CloudinaryService cloudinaryService;
+    private final IRoomHoldService roomHoldService;
+    private final RoomTypeInventoryService roomTypeInventoryService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final IAuditService auditService;
+    private final IPricingService pricingService;
+    private final BookingPartitionService bookingPartitionService;
 
     @Override
     public Response addNewRoom(MultipartFile photo, String roomType, BigDecimal roomPrice, String description) {
@@ -34,6 +59,11 @@ public class RoomService implements IRoomService {
             room.setRoomPrice(roomPrice);
 
             Room savedRoom = roomRepository.save(room);
+            roomTypeInventoryService.invalidate(List.of(roomType));
+            cacheInvalidationBus.publish(EntityType.ROOM, savedRoom.getId());
+            cacheInvalidationBus.publish(EntityType.ROOM_DETAILS, savedRoom.getId());
+            cacheInvalidationBus.publish(EntityType.ROOM_TYPE, null);
+            auditService.record("ADD_ROOM", "ROOM", savedRoom.getId(), "type=" + roomType + " price=" + roomPrice);
             RoomDTO dto = Utils.mapRoomEntityToRoomDTO(savedRoom);
 
             response.setStatusCode(200);
@@ -76,6 +106,14 @@ public class RoomService implements IRoomService {
         try {
             Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("User not found"));
             roomRepository.deleteById(roomId);
+            roomTypeInventoryService.invalidate(List.of(room.getRoomType()));
+            //The room's bookings are removed with it
+            cacheInvalidationBus.publish(EntityType.ROOM, roomId);
+            cacheInvalidationBus.publish(EntityType.ROOM_DETAILS, roomId);
+            cacheInvalidationBus.publish(EntityType.ROOM_TYPE, null);
+            cacheInvalidationBus.publish(EntityType.BOOKING, null);
+            cacheInvalidationBus.publish(EntityType.USER, null);
+            auditService.record("DELETE_ROOM", "ROOM", roomId, "type=" + room.getRoomType());
 
             response.setStatusCode(200);
             response.setMessage("Successful");
@@ -101,6 +139,7 @@ public class RoomService implements IRoomService {
                 imageUrl = cloudinaryService.saveImageToCloudinary(photo);
             }
             Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
+            String previousRoomType = room.getRoomType();
             if (roomType != null)
                 room.setRoomType(roomType);
             if (roomPrice != null)
@@ -111,6 +150,14 @@ public class RoomService implements IRoomService {
                 room.setRoomPhotoUrl(imageUrl);
 
             Room updatedRoom = roomRepository.save(room);
+            if (roomType != null && !roomType.equals(previousRoomType)) {
+                roomTypeInventoryService.invalidate(List.of(previousRoomType, roomType));
+                cacheInvalidationBus.publish(EntityType.ROOM_TYPE, null);
+            }
+            cacheInvalidationBus.publish(EntityType.ROOM, roomId);
+            cacheInvalidationBus.publish(EntityType.ROOM_DETAILS, roomId);
+            auditService.record("UPDATE_ROOM", "ROOM", roomId, "type=" + updatedRoom.getRoomType()
+                    + " price=" + updatedRoom.getRoomPrice() + (imageUrl != null ? " photo=changed" : ""));
             RoomDTO roomDTO = Utils.mapRoomEntityToRoomDTO(updatedRoom);
 
             response.setStatusCode(200);
@@ -148,14 +195,57 @@ public class RoomService implements IRoomService {
         return response;
     }
 
+    @Override
+    public Response getRoomsByIds(List<Long> roomIds) {
+        Response response = new Response();
+
+        try {
+            //Duplicates and nulls dropped, request order kept
+            List<Long> requestedIds = roomIds == null ? List.of()
+                    : roomIds.stream().filter(Objects::nonNull).distinct().toList();
+            if (requestedIds.isEmpty()) {
+                throw new IllegalArgumentException("At least one room id is required");
+            }
+            if (requestedIds.size() > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " rooms can be fetched at once");
+            }
+            Map<Long, Room> roomsById = new HashMap<>();
+            roomRepository.findAllById(requestedIds).forEach(room -> roomsById.put(room.getId(), room));
+            //Without bookings, unlike room-by-id; unknown ids are left out
+            List<RoomDTO> roomDTOList = requestedIds.stream()
+                    .map(roomsById::get)
+                    .filter(Objects::nonNull)
+                    .map(Utils::mapRoomEntityToRoomDTO)
+                    .toList();
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setRoomList(roomDTOList);
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error getting rooms " + e.getMessage());
+        }
+        return response;
+    }
+
     @Override
     public Response getAvailableRoomsByDataAndType(LocalDate checkInDate, LocalDate checkOutDate, String roomType) {
         Response response = new Response();
 
         try {
             List<Room> availableRooms = roomRepository.findAllAvailableRoomsByDatesAndTypes(checkInDate, checkOutDate,
-                    roomType);
+                    roomType, bookingPartitionService.earliestOverlappingCheckIn(checkInDate));
+            Set<Long> heldRoomIds = roomHoldService.getHeldRoomIds(checkInDate, checkOutDate);
+            if (!heldRoomIds.isEmpty()) {
+                availableRooms = availableRooms.stream().filter(room -> !heldRoomIds.contains(room.getId())).toList();
+            }
             List<RoomDTO> roomDTOList = Utils.mapRoomListEntityToRoomListDTO(availableRooms);
+            Map<Long, BigDecimal> stayPrices = pricingService.getStayPrices(
+                    roomDTOList.stream().map(RoomDTO::getId).toList(), checkInDate, checkOutDate);
+            roomDTOList.forEach(roomDTO -> roomDTO.setStayPrice(stayPrices.get(roomDTO.getId())));
             response.setStatusCode(200);
             response.setMessage("successful");
             response.setRoomList(roomDTOList);
@@ -167,12 +257,33 @@ public class RoomService implements IRoomService {
         return response;
     }
 
+    @Override
+    public Response getRoomTypeAvailability(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        Response response = new Response();
+
+        try {
+            int availableRooms = roomTypeInventoryService.getAvailableCount(roomType, checkInDate, checkOutDate);
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setAvailableRoomCount(availableRooms);
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error getting room type availability " + e.getMessage());
+        }
+        return response;
+    }
+
     @Override
     public Response getAllAvailableRooms() {
         Response response = new Response();
 
         try {
             List<Room> roomList = roomRepository.getAllAvailableRooms();
+            Set<Long> heldRoomIds = roomHoldService.getHeldRoomIds(LocalDate.MIN, LocalDate.MAX);
+            if (!heldRoomIds.isEmpty()) {
+                roomList = roomList.stream().filter(room -> !heldRoomIds.contains(room.getId())).toList();
+            }
             List<RoomDTO> roomDTOList = Utils.mapRoomListEntityToRoomListDTO(roomList);
             response.setStatusCode(200);
             response.setMessage("successful");
@@ -187,4 +298,125 @@ public class RoomService implements IRoomService {
         }
         return response;
     }
+
+    @Override
+    public Response getFlexibleAvailability(String roomType, LocalDate windowStart, LocalDate windowEnd, int nights, int limit) {
+        Response response = new Response();
+
+        try {
+            if (windowStart == null || windowEnd == null) {
+                throw new IllegalArgumentException("Window start and end dates are required");
+            }
+            if (nights < 1 || nights > MAX_FLEXIBLE_NIGHTS) {
+                throw new IllegalArgumentException("Nights must be between 1 and " + MAX_FLEXIBLE_NIGHTS);
+            }
+            long windowNights = windowEnd.toEpochDay() - windowStart.toEpochDay();
+            if (windowNights < nights) {
+                throw new IllegalArgumentException("The window must be at least as long as the stay");
+            }
+            if (windowNights > MAX_FLEXIBLE_WINDOW_DAYS) {
+                throw new IllegalArgumentException("The window can span at most " + MAX_FLEXIBLE_WINDOW_DAYS + " days");
+            }
+
+            List<Room> rooms = roomType == null || roomType.isBlank()
+                    ? roomRepository.findAll(Sort.by(Sort.Direction.ASC, "id"))
+                    : roomRepository.findByRoomType(roomType);
+            //Day 0 is windowStart, the last day is windowEnd, the latest check-out
+            int days = (int) windowNights + 1;
+            Map<Long, Integer> positions = new HashMap<>();
+            for (int position = 0; position < rooms.size(); position++) {
+                positions.put(rooms.get(position).getId(), position);
+            }
+
+            //One difference array of busy days per room, from one date-bounded query plus the live holds
+            int[][] busyChanges = new int[rooms.size()][days + 1];
+            if (!rooms.isEmpty()) {
+                for (Object[] stay : bookingRepository.findStayRangesOverlapping(positions.keySet(), windowStart, windowEnd,
+                        bookingPartitionService.earliestOverlappingCheckIn(windowStart))) {
+                    markBusy(busyChanges[positions.get((Long) stay[0])], windowStart, (LocalDate) stay[1], (LocalDate) stay[2]);
+                }
+                for (RoomHoldDTO hold : roomHoldService.getActiveHolds(windowStart, windowEnd)) {
+                    Integer position = positions.get(hold.getRoomId());
+                    if (position != null) {
+                        markBusy(busyChanges[position], windowStart, hold.getCheckInDate(), hold.getCheckOutDate());
+                    }
+                }
+            }
+
+            //A stay checking in on day d needs days d..d+nights free, the same inclusive rule as the date search
+            int checkInDays = days - nights;
+            List<List<Long>> freeRoomsByCheckIn = new ArrayList<>();
+            for (int day = 0; day < checkInDays; day++) {
+                freeRoomsByCheckIn.add(new ArrayList<>());
+            }
+            int[] busyDaysBefore = new int[days + 1];
+            for (int position = 0; position < rooms.size(); position++) {
+                int busy = 0;
+                for (int day = 0; day < days; day++) {
+                    busy += busyChanges[position][day];
+                    busyDaysBefore[day + 1] = busyDaysBefore[day] + (busy > 0 ? 1 : 0);
+                }
+                for (int day = 0; day < checkInDays; day++) {
+                    if (busyDaysBefore[day + nights + 1] == busyDaysBefore[day]) {
+                        freeRoomsByCheckIn.get(day).add(rooms.get(position).getId());
+                    }
+                }
+            }
+
+            List<FlexibleStayDTO> windows = new ArrayList<>();
+            for (int day = 0; day < checkInDays; day++) {
+                List<Long> freeRoomIds = freeRoomsByCheckIn.get(day);
+                if (!freeRoomIds.isEmpty()) {
+                    windows.add(toFlexibleStay(windowStart.plusDays(day), nights, freeRoomIds));
+                }
+            }
+            //Cheapest first, earliest first among equal prices
+            windows.sort(Comparator.comparing(FlexibleStayDTO::getLowestStayPrice, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(FlexibleStayDTO::getCheckInDate));
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setFlexibleStayList(windows.subList(0, Math.min(windows.size(), Math.min(Math.max(limit, 1), MAX_FLEXIBLE_RESULTS))));
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error searching flexible dates " + e.getMessage());
+        }
+        return response;
+    }
+
+    private FlexibleStayDTO toFlexibleStay(LocalDate checkInDate, int nights, List<Long> freeRoomIds) {
+        LocalDate checkOutDate = checkInDate.plusDays(nights);
+        FlexibleStayDTO flexibleStay = new FlexibleStayDTO();
+        flexibleStay.setCheckInDate(checkInDate);
+        flexibleStay.setCheckOutDate(checkOutDate);
+        flexibleStay.setNights(nights);
+        flexibleStay.setAvailableRoomCount(freeRoomIds.size());
+        flexibleStay.setRoomIds(freeRoomIds);
+
+        pricingService.getStayPrices(freeRoomIds, checkInDate, checkOutDate).entrySet().stream()
+                .min(Map.Entry.<Long, BigDecimal>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .ifPresent(cheapest -> {
+                    flexibleStay.setCheapestRoomId(cheapest.getKey());
+                    flexibleStay.setLowestStayPrice(cheapest.getValue());
+                });
+        return flexibleStay;
+    }
+
+    //Marks days from..to (inclusive, clipped to the window) busy in a difference array starting at windowStart
+    private static void markBusy(int[] busyChanges, LocalDate windowStart, LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return;
+        }
+        int lastDay = busyChanges.length - 2;
+        long first = Math.max(from.toEpochDay() - windowStart.toEpochDay(), 0);
+        long last = Math.min(to.toEpochDay() - windowStart.toEpochDay(), lastDay);
+        if (first <= last) {
+            busyChanges[(int) first]++;
+            busyChanges[(int) last + 1]--;
+        }
+    }
 }
@@ -0,0 +1,73 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.RoomTypeInventoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+/**
+ * Maintains one counter of free rooms per (room type, night).
+ * Counters are seeded lazily from the room and booking tables the first time a night is touched,
+ * and are dropped whenever the room catalog changes so they are re-seeded from the source of truth.
+ */
+@Service
+@RequiredArgsConstructor
+public class RoomTypeInventoryService {
+
+    private final RoomTypeInventoryRepository inventoryRepository;
+    private final BookingPartitionService bookingPartitionService;
+
+    @Transactional
+    public int getAvailableCount(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (nightsBetween(checkInDate, checkOutDate) == 0) {
+            return 0;
+        }
+        ensureSeeded(roomType, checkInDate, checkOutDate);
+        Integer available = inventoryRepository.findMinAvailable(roomType, checkInDate, checkOutDate);
+        return available == null ? 0 : available;
+    }
+
+    //Takes one room of the type for every night of the stay, or none at all
+    @Transactional
+    public void reserveNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        long nights = nightsBetween(checkInDate, checkOutDate);
+        if (nights == 0) {
+            return;
+        }
+        ensureSeeded(roomType, checkInDate, checkOutDate);
+        if (inventoryRepository.decrementIfPositive(roomType, checkInDate, checkOutDate) < nights) {
+            throw new OurException("No " + roomType + " rooms available for selected date range");
+        }
+    }
+
+    @Transactional
+    public void releaseNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (nightsBetween(checkInDate, checkOutDate) == 0) {
+            return;
+        }
+        inventoryRepository.increment(roomType, checkInDate, checkOutDate);
+    }
+
+    @Transactional
+    public void invalidate(Collection<String> roomTypes) {
+        if (!roomTypes.isEmpty()) {
+            inventoryRepository.deleteByRoomTypes(roomTypes);
+        }
+    }
+
+    private void ensureSeeded(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (inventoryRepository.countNights(roomType, checkInDate, checkOutDate) < nightsBetween(checkInDate, checkOutDate)) {
+            inventoryRepository.seedNights(roomType, checkInDate, checkOutDate,
+                    bookingPartitionService.earliestOverlappingCheckIn(checkInDate));
+        }
+    }
+
+    private long nightsBetween(LocalDate checkInDate, LocalDate checkOutDate) {
+        return Math.max(ChronoUnit.DAYS.between(checkInDate, checkOutDate), 0);
+    }
+}
@@ -0,0 +1,165 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.entity.RevokedToken;
+import com.sanjo.backend.repository.RevokedTokenRepository;
+import com.sanjo.backend.security.JWTUtils;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revokes access tokens before they expire (logout, password change, ban).
+ * Revocations are stored in {@code revoked_tokens} and mirrored in memory as a Bloom filter in front of an exact map,
+ * so the check on every request is a few bit probes with no I/O; only filter hits consult the map.
+ * The mirror is rebuilt from the table on a schedule, which also drops entries whose tokens have expired.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final String USER_KEY_PREFIX = "user:";
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    //Value is the cut-off issue time; a single revoked token covers any issue time
+    private record Snapshot(TokenBloomFilter filter, Map<String, Instant> revoked) {
+
+        static Snapshot of(Map<String, Instant> revoked) {
+            //Headroom so revocations made before the next rebuild keep the false positive rate near target
+            int capacity = Math.max(MIN_CAPACITY, revoked.size() * 2);
+            TokenBloomFilter filter = new TokenBloomFilter(capacity, FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(filter::put);
+            return new Snapshot(filter, revoked);
+        }
+    }
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final JWTUtils jwtUtils;
+
+    private final Object mutationLock = new Object();
+    private volatile Snapshot snapshot = Snapshot.of(new ConcurrentHashMap<>());
+    //Revocations made while a rebuild is reading the table, replayed into the new snapshot; guarded by mutationLock
+    private Map<String, Instant> revokedDuringRebuild;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  CacheInvalidationBus cacheInvalidationBus,
+                                  JWTUtils jwtUtils) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.jwtUtils = jwtUtils;
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        //Another node revoked something; null means notifications may have been missed
+        cacheInvalidationBus.subscribe(EntityType.REVOKED_TOKEN, tokenKey -> {
+            if (tokenKey == null) {
+                rebuild();
+            } else {
+                revokedTokenRepository.findById(tokenKey).ifPresent(this::remember);
+            }
+        });
+    }
+
+    public boolean isRevoked(String tokenId, Object userId, Date issuedAt) {
+        Snapshot current = snapshot;
+        if (tokenId != null && current.filter().mightContain(tokenId) && current.revoked().containsKey(tokenId)) {
+            return true;
+        }
+        if (userId == null) {
+            return false;
+        }
+        String userKey = USER_KEY_PREFIX + userId;
+        if (!current.filter().mightContain(userKey)) {
+            return false;
+        }
+        Instant issuedBefore = current.revoked().get(userKey);
+        //iat has second precision, so a token issued in the same second as the revocation is revoked too
+        return issuedBefore != null && (issuedAt == null || !issuedAt.toInstant().isAfter(issuedBefore));
+    }
+
+    @Transactional
+    public void revokeToken(String tokenId, Instant expiresAt) {
+        if (tokenId == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        save(new RevokedToken(tokenId, null, expiresAt));
+    }
+
+    //Every access token of the user issued so far; all of them are expired after one access token lifetime
+    @Transactional
+    public void revokeAllForUser(long userId) {
+        Instant now = Instant.now();
+        save(new RevokedToken(USER_KEY_PREFIX + userId, now,
+                now.plus(jwtUtils.getAccessTokenTtlMinutes(), ChronoUnit.MINUTES)));
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.rebuild-interval-ms:300000}",
+            initialDelayString = "${security.revocation.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        synchronized (mutationLock) {
+            revokedDuringRebuild = new HashMap<>();
+        }
+        try {
+            Instant now = Instant.now();
+            revokedTokenRepository.deleteExpired(now);
+            Map<String, Instant> revoked = new ConcurrentHashMap<>();
+            for (RevokedToken revokedToken : revokedTokenRepository.findByExpiresAtAfter(now)) {
+                revoked.merge(revokedToken.getTokenKey(), issuedBefore(revokedToken), TokenRevocationService::later);
+            }
+            synchronized (mutationLock) {
+                revokedDuringRebuild.forEach((key, issuedBefore) -> revoked.merge(key, issuedBefore, TokenRevocationService::later));
+                snapshot = Snapshot.of(revoked);
+            }
+        } catch (Exception e) {
+            //Keep serving from the previous snapshot; it only ever over-approximates
+            log.warn("Unable to rebuild token revocation list: {}", e.getMessage());
+        } finally {
+            synchronized (mutationLock) {
+                revokedDuringRebuild = null;
+            }
+        }
+    }
+
+    private void save(RevokedToken revokedToken) {
+        //A later user-wide cut-off always covers an earlier one, so overwriting the row is safe
+        revokedTokenRepository.save(revokedToken);
+        remember(revokedToken);
+        //Sent on commit, other nodes then read the row back
+        cacheInvalidationBus.publish(EntityType.REVOKED_TOKEN, revokedToken.getTokenKey());
+    }
+
+    private void remember(RevokedToken revokedToken) {
+        String key = revokedToken.getTokenKey();
+        Instant issuedBefore = issuedBefore(revokedToken);
+        synchronized (mutationLock) {
+            Snapshot current = snapshot;
+            //Map before filter, so a filter hit always finds the entry
+            current.revoked().merge(key, issuedBefore, TokenRevocationService::later);
+            current.filter().put(key);
+            if (revokedDuringRebuild != null) {
+                revokedDuringRebuild.merge(key, issuedBefore, TokenRevocationService::later);
+            }
+        }
+    }
+
+    private static Instant issuedBefore(RevokedToken revokedToken) {
+        return revokedToken.getIssuedBefore() == null ? Instant.MAX : revokedToken.getIssuedBefore();
+    }
+
+    private static Instant later(Instant first, Instant second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
@@ -0,0 +1,84 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.TraceDTO;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.service.interfac.ITraceService;
+import com.sanjo.backend.tracing.RequestTracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class TraceService implements ITraceService {
+
+    private static final int MAX_QUERY_LIMIT = 200;
+
+    private final RequestTracer requestTracer;
+
+    @Override
+    public Response getTraces(String path, long minDurationMillis, int limit) {
+
+        Response response = new Response();
+
+        try {
+            //Only the summary; the spans are fetched per trace
+            List<TraceDTO> traces = requestTracer.getTraces().stream()
+                    .filter(trace -> path == null || path.isBlank() || trace.getPath().contains(path))
+                    .filter(trace -> trace.getDurationMicros() >= minDurationMillis * 1000)
+                    .limit(Math.min(Math.max(limit, 1), MAX_QUERY_LIMIT))
+                    .map(this::withoutSpans)
+                    .toList();
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setTraceList(traces);
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Getting traces: " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    public Response getTrace(String traceId) {
+
+        Response response = new Response();
+
+        try {
+            TraceDTO trace = requestTracer.getTraces().stream()
+                    .filter(candidate -> candidate.getTraceId().equals(traceId))
+                    .findFirst()
+                    .orElseThrow(() -> new OurException("Trace not found, it was fast or has been evicted"));
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setTrace(trace);
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Getting trace: " + e.getMessage());
+        }
+        return response;
+    }
+
+    private TraceDTO withoutSpans(TraceDTO trace) {
+        TraceDTO summary = new TraceDTO();
+        summary.setTraceId(trace.getTraceId());
+        summary.setMethod(trace.getMethod());
+        summary.setPath(trace.getPath());
+        summary.setStatusCode(trace.getStatusCode());
+        summary.setStartedAt(trace.getStartedAt());
+        summary.setDurationMicros(trace.getDurationMicros());
+        summary.setBreakdownMicros(trace.getBreakdownMicros());
+        summary.setDroppedSpans(trace.getDroppedSpans());
+        return summary;
+    }
+}
@@ -1,30 +1,106 @@
 package com.sanjo.backend.service.implementation;
 
+import com.sanjo.backend.dto.BookingDTO;
+import com.sanjo.backend.dto.ChangePasswordRequest;
 import com.sanjo.backend.dto.LoginRequest;
+import com.sanjo.backend.dto.RefreshTokenRequest;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.dto.UserDTO;
+import com.sanjo.backend.dto.UserStaysDTO;
 import com.sanjo.backend.entity.User;
 import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.BookingRepository;
 import com.sanjo.backend.repository.UserRepository;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IAuditService;
 import com.sanjo.backend.service.interfac.IUserService;
 import com.sanjo.backend.security.JWTUtils;
+import com.sanjo.backend.security.PasswordHashingExecutor;
 import com.sanjo.backend.security.Utils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @RequiredArgsConstructor
 public class UserService implements IUserService {
 
+    private static final int MAX_UPCOMING_STAYS = 20;
+    private static final int MAX_PAST_PAGE_SIZE = 50;
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String EMAIL_CONSTRAINT = "uk_users_email";
+
     private final UserRepository userRepository;
+    private final BookingRepository bookingRepository;
     private final PasswordEncoder passwordEncoder;
     private final JWTUtils jwtUtils;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RoomTypeInventoryService roomTypeInventoryService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final IAuditService auditService;
+
+    //Checked against when the email is unknown, at the same BCrypt cost as real hashes
+    private String dummyPasswordHash;
+
+    //Users whose stays summary is kept in memory
+    @Value("${user-stays.cache-max-users:10000}")
+    private int staysCacheMaxUsers;
+
+    private UserStaysCache staysCache;
+
+    @PostConstruct
+    public void init() {
+        dummyPasswordHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        staysCache = new UserStaysCache(staysCacheMaxUsers);
+        //Bookings publish their guest's id; null means notifications may have been missed
+        cacheInvalidationBus.subscribe(EntityType.USER, userId -> {
+            if (userId == null) {
+                staysCache.invalidateAll();
+            } else {
+                staysCache.invalidate(Long.parseLong(userId));
+            }
+        });
+        //Summaries embed room details. Bookings are covered by their guest's USER event above, and deleting
+        //a room publishes USER null for the bookings that go with it
+        cacheInvalidationBus.subscribe(EntityType.ROOM_DETAILS, roomId -> staysCache.invalidateAll());
+    }
+
+    //A unique violation is a duplicate email when it names the email constraint. Databases created before the
+    //baseline migration carry a generated constraint name, so for those the email itself is checked
+    private boolean isDuplicateEmail(DataIntegrityViolationException e, String email) {
+        String constraintName = null;
+        boolean uniqueViolation = false;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                constraintName = violation.getConstraintName();
+            }
+            if (cause instanceof SQLException sqlException && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+                uniqueViolation = true;
+            }
+        }
+        if (!uniqueViolation) {
+            return false;
+        }
+        return EMAIL_CONSTRAINT.equalsIgnoreCase(constraintName) || userRepository.existsByEmail(email);
+    }
 
     @Override
     public Response register(User user) {
@@ -34,12 +110,21 @@ public class UserService implements IUserService {
                 user.setRole("USER");
             }
 
-            if (userRepository.existsByEmail(user.getEmail())) {
-                throw new OurException(user.getEmail() + "already exist");
-                
+            String rawPassword = user.getPassword();
+            user.setPassword(passwordHashingExecutor.execute(() -> passwordEncoder.encode(rawPassword)));
+
+            //Let the unique constraint on email reject duplicates instead of checking first
+            User savedUser;
+            try {
+                savedUser = userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                //Other constraint failures are not the guest's doing and surface as errors
+                if (!isDuplicateEmail(e, user.getEmail())) {
+                    throw e;
+                }
+                throw new OurException(user.getEmail() + " already exist");
             }
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
-            User savedUser = userRepository.save(user);
+            cacheInvalidationBus.publish(EntityType.USER, savedUser.getId());
 
             UserDTO userDTO = Utils.mapUserEntityToUserDTO(savedUser);
             response.setStatusCode(200);
@@ -49,6 +134,10 @@ public class UserService implements IUserService {
             response.setStatusCode(400);
             response.setMessage(e.getMessage());
         }
+        catch (RejectedExecutionException e) {
+            response.setStatusCode(503);
+            response.setMessage("Server is busy, please try again");
+        }
         catch (Exception e) {
             response.setStatusCode(500);
             response.setMessage("Error Occurred During User Registration "+e.getMessage());
@@ -63,20 +152,48 @@ public class UserService implements IUserService {
         Response response = new Response();
 
         try {
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
-            var user = userRepository.findByEmail(loginRequest.getEmail()).orElseThrow(() -> new OurException("user Not found"));
+            //One lookup serves both the password check and the token
+            var found = userRepository.findByEmail(loginRequest.getEmail());
+
+            //An unknown email costs the same hash check and gets the same answer as a wrong password,
+            //so neither the status nor the response time tells whether the email is registered
+            String passwordHash = found.map(User::getPassword).orElse(dummyPasswordHash);
+            boolean matches = passwordHashingExecutor.execute(
+                    () -> passwordEncoder.matches(loginRequest.getPassword(), passwordHash));
+            if (found.isEmpty() || !matches) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            User user = found.get();
+            if (user.isBanned()) {
+                throw new LockedException("Account is banned");
+            }
+
+            //Bring hashes created under an older BCrypt cost up to the configured one
+            if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+                user.setPassword(passwordHashingExecutor.execute(() -> passwordEncoder.encode(loginRequest.getPassword())));
+                userRepository.save(user);
+            }
 
             var token = jwtUtils.generateToken(user);
             response.setStatusCode(200);
             response.setToken(token);
+            response.setRefreshToken(refreshTokenService.issue(user));
             response.setRole(user.getRole());
-            response.setExpirationTime("7 Days");
+            response.setExpirationTime(jwtUtils.getAccessTokenTtlMinutes() + " Minutes");
             response.setMessage("successful");
 
-        } catch (OurException e) {
-            response.setStatusCode(404);
+        } catch (BadCredentialsException e) {
+            response.setStatusCode(401);
             response.setMessage(e.getMessage());
 
+        } catch (LockedException e) {
+            response.setStatusCode(403);
+            response.setMessage(e.getMessage());
+
+        } catch (RejectedExecutionException e) {
+            response.setStatusCode(503);
+            response.setMessage("Server is busy, please try again");
+
         } catch (Exception e) {
 
             response.setStatusCode(500);
@@ -85,6 +202,136 @@ public class UserService implements IUserService {
         return response;
     }
 
+    @Override
+    public Response refreshToken(RefreshTokenRequest refreshTokenRequest) {
+
+        Response response = new Response();
+
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshTokenRequest.getRefreshToken());
+            User user = rotation.user();
+
+            response.setStatusCode(200);
+            response.setToken(jwtUtils.generateToken(user));
+            response.setRefreshToken(rotation.refreshToken());
+            response.setRole(user.getRole());
+            response.setExpirationTime(jwtUtils.getAccessTokenTtlMinutes() + " Minutes");
+            response.setMessage("successful");
+
+        } catch (OurException e) {
+            response.setStatusCode(401);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Occurred During Token Refresh " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    public Response logout(String accessToken, String refreshToken) {
+
+        Response response = new Response();
+
+        try {
+            if (accessToken != null) {
+                try {
+                    Claims claims = jwtUtils.extractAllClaims(accessToken);
+                    tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration().toInstant());
+                } catch (JwtException | IllegalArgumentException e) {
+                    //Already expired or never valid, nothing left to revoke
+                }
+            }
+            if (refreshToken != null && !refreshToken.isBlank()) {
+                refreshTokenService.revoke(refreshToken);
+            }
+            response.setStatusCode(200);
+            response.setMessage("successful");
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Occurred During Logout " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    public Response changePassword(String email, ChangePasswordRequest changePasswordRequest) {
+
+        Response response = new Response();
+
+        try {
+            User user = userRepository.findByEmail(email).orElseThrow(() -> new OurException("User not Found"));
+
+            boolean matches = passwordHashingExecutor.execute(
+                    () -> passwordEncoder.matches(changePasswordRequest.getCurrentPassword(), user.getPassword()));
+            if (!matches) {
+                throw new BadCredentialsException("Current password is incorrect");
+            }
+            user.setPassword(passwordHashingExecutor.execute(() -> passwordEncoder.encode(changePasswordRequest.getNewPassword())));
+            userRepository.save(user);
+
+            //Sign out every session, including the one that made the change
+            refreshTokenService.revokeAll(user.getId());
+            tokenRevocationService.revokeAllForUser(user.getId());
+            cacheInvalidationBus.publish(EntityType.USER, user.getId());
+
+            response.setStatusCode(200);
+            response.setMessage("Password changed, please log in again");
+
+        } catch (OurException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (BadCredentialsException e) {
+            response.setStatusCode(401);
+            response.setMessage(e.getMessage());
+
+        } catch (RejectedExecutionException e) {
+            response.setStatusCode(503);
+            response.setMessage("Server is busy, please try again");
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Occurred While Changing Password " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    public Response banUser(String userId, boolean banned) {
+
+        Response response = new Response();
+
+        try {
+            User user = userRepository.findById(Long.valueOf(userId)).orElseThrow(
+                    () -> new OurException("User not Found"));
+            user.setBanned(banned);
+            userRepository.save(user);
+
+            if (banned) {
+                refreshTokenService.revokeAll(user.getId());
+                tokenRevocationService.revokeAllForUser(user.getId());
+            }
+            cacheInvalidationBus.publish(EntityType.USER, user.getId());
+            auditService.record(banned ? "BAN_USER" : "UNBAN_USER", "USER", user.getId(), "email=" + user.getEmail());
+
+            response.setStatusCode(200);
+            response.setMessage("Successful");
+            response.setUser(Utils.mapUserEntityToUserDTO(user));
+
+        } catch (OurException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Occurred While Banning User " + e.getMessage());
+        }
+        return response;
+    }
+
     @Override
     public Response getAllUsers() {
 
@@ -115,7 +362,7 @@ public class UserService implements IUserService {
         Response response = new Response();
         try {
 
-            User user =userRepository.findById(Long.valueOf(userId)).orElseThrow(
+            User user =userRepository.findWithBookingsAndRoomsById(Long.valueOf(userId)).orElseThrow(
                     () -> new OurException("User not Found"));
             UserDTO dto = Utils.mapUserEntityToUserDTOPlusUserBookingsAndRoom(user);
 
@@ -142,7 +389,20 @@ public class UserService implements IUserService {
         try {
             User user =userRepository.findById(Long.valueOf(userId)).orElseThrow(
                     () -> new OurException("User not Found"));
+            //Deleting the user cascades to their bookings, so the nights they held become free again
+            List<String> bookedRoomTypes = user.getBookings().stream()
+                    .map(booking -> booking.getRoom().getRoomType())
+                    .distinct()
+                    .toList();
             userRepository.deleteById(Long.valueOf(userId));
+            //Refresh tokens go with the user row, access tokens have to be revoked
+            tokenRevocationService.revokeAllForUser(user.getId());
+            roomTypeInventoryService.invalidate(bookedRoomTypes);
+            cacheInvalidationBus.publish(EntityType.USER, userId);
+            cacheInvalidationBus.publish(EntityType.BOOKING, null);
+            cacheInvalidationBus.publish(EntityType.ROOM, null);
+            auditService.record("DELETE_USER", "USER", userId, "email=" + user.getEmail()
+                    + " bookings=" + user.getBookings().size());
 
             response.setStatusCode(200);
             response.setMessage("Successful");
@@ -185,7 +445,7 @@ public class UserService implements IUserService {
     public Response getMyInfo(String email) {
         Response response = new Response();
         try {
-            User user =userRepository.findByEmail(email).orElseThrow(
+            User user =userRepository.findWithBookingsAndRoomsByEmail(email).orElseThrow(
                     () -> new OurException("User not Found"));
             UserDTO dto =Utils.mapUserEntityToUserDTOPlusBooking(user);
 
@@ -203,4 +463,98 @@ public class UserService implements IUserService {
         }
         return response;
     }
+
+    @Override
+    public Response getMyStays(String email, int upcomingLimit, int pastPageSize, String pastCursor) {
+        Response response = new Response();
+        try {
+            if (upcomingLimit < 0 || upcomingLimit > MAX_UPCOMING_STAYS) {
+                throw new IllegalArgumentException("upcoming must be between 0 and " + MAX_UPCOMING_STAYS);
+            }
+            if (pastPageSize < 1 || pastPageSize > MAX_PAST_PAGE_SIZE) {
+                throw new IllegalArgumentException("size must be between 1 and " + MAX_PAST_PAGE_SIZE);
+            }
+            User user = userRepository.findByEmail(email).orElseThrow(() -> new OurException("User not Found"));
+            //A stay is upcoming until its check-out day has passed
+            LocalDate today = LocalDate.now();
+            UserStaysDTO stays = new UserStaysDTO();
+
+            if (pastCursor != null && !pastCursor.isBlank()) {
+                //Later pages are a single keyset query each and are not cached
+                String[] cursor = pastCursor.split("_", 2);
+                LocalDate afterCheckOut;
+                long afterId;
+                try {
+                    afterCheckOut = LocalDate.parse(cursor[0]);
+                    afterId = Long.parseLong(cursor[1]);
+                } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid pastCursor");
+                }
+                List<BookingDTO> page = loadPastStays(user.getId(), today, afterCheckOut, afterId, pastPageSize + 1);
+                setPastPage(stays, page, pastPageSize);
+            } else {
+                UserStaysCache.Summary summary = staysCache.get(user.getId(), today);
+                if (summary == null) {
+                    summary = loadStaysSummary(user.getId(), today);
+                }
+                stays.setUpcomingCount(summary.upcomingCount());
+                stays.setPastCount(summary.pastCount());
+                stays.setUpcomingStays(summary.upcomingStays().subList(0, Math.min(upcomingLimit, summary.upcomingStays().size())));
+                setPastPage(stays, summary.pastStays(), pastPageSize);
+            }
+
+            response.setUser(Utils.mapUserEntityToUserDTO(user));
+            response.setUserStays(stays);
+            response.setStatusCode(200);
+            response.setMessage("Successful");
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error Occurred While Getting Stays " + e.getMessage());
+        }
+        return response;
+    }
+
+    //Counts, the largest upcoming list and the largest first past page any request may ask for, plus one to tell if there are more
+    private UserStaysCache.Summary loadStaysSummary(long userId, LocalDate today) {
+        long generation = staysCache.generation();
+        long upcomingCount = bookingRepository.countByUserIdAndCheckOutDateGreaterThanEqual(userId, today);
+        long pastCount = bookingRepository.countByUserIdAndCheckOutDateBefore(userId, today);
+        List<BookingDTO> upcomingStays = upcomingCount == 0 ? List.of() : bookingRepository
+                .findUpcomingStays(userId, today, Limit.of(MAX_UPCOMING_STAYS)).stream()
+                .map(booking -> Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, false))
+                .toList();
+        //Starting the cursor at (today, 0) selects every past stay
+        List<BookingDTO> pastStays = pastCount == 0 ? List.of()
+                : loadPastStays(userId, today, today, 0L, MAX_PAST_PAGE_SIZE + 1);
+
+        UserStaysCache.Summary summary = new UserStaysCache.Summary(today, upcomingCount, pastCount, upcomingStays, pastStays);
+        staysCache.put(userId, generation, summary);
+        return summary;
+    }
+
+    private List<BookingDTO> loadPastStays(long userId, LocalDate today, LocalDate afterCheckOut, long afterId, int limit) {
+        return bookingRepository.findPastStaysBefore(userId, today, afterCheckOut, afterId, Limit.of(limit)).stream()
+                .map(booking -> Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, false))
+                .toList();
+    }
+
+    //Takes the first pageSize stays; one more than that means another page exists
+    private void setPastPage(UserStaysDTO stays, List<BookingDTO> pastStays, int pageSize) {
+        if (pastStays.size() > pageSize) {
+            BookingDTO last = pastStays.get(pageSize - 1);
+            stays.setPastStays(pastStays.subList(0, pageSize));
+            stays.setNextPastCursor(last.getCheckOutDate() + "_" + last.getId());
+        } else {
+            stays.setPastStays(pastStays);
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.BookingDTO;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user "my stays" summaries, least recently viewed evicted first once maxUsers is reached.
+ * A summary is only valid for the day it was computed on, since that day splits upcoming from past.
+ * Loads that raced with an invalidation are not stored, so a stale summary cannot outlive the eviction.
+ */
+class UserStaysCache {
+
+    record Summary(LocalDate day, long upcomingCount, long pastCount,
+                   List<BookingDTO> upcomingStays, List<BookingDTO> pastStays) {
+    }
+
+    private final Map<Long, Summary> summaries;
+    private long generation;
+
+    UserStaysCache(int maxUsers) {
+        this.summaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Summary> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    synchronized Summary get(long userId, LocalDate today) {
+        Summary summary = summaries.get(userId);
+        if (summary != null && !summary.day().equals(today)) {
+            summaries.remove(userId);
+            return null;
+        }
+        return summary;
+    }
+
+    //Read before loading and hand back to put, which drops the load if anything was invalidated meanwhile
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized void put(long userId, long loadedAtGeneration, Summary summary) {
+        if (loadedAtGeneration == generation) {
+            summaries.put(userId, summary);
+        }
+    }
+
+    synchronized void invalidate(long userId) {
+        generation++;
+        summaries.remove(userId);
+    }
+
+    synchronized void invalidateAll() {
+        generation++;
+        summaries.clear();
+    }
+}
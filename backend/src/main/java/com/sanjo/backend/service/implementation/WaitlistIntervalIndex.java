@@ -0,0 +1,190 @@
+package com.sanjo.backend.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Waiting waitlist entries per room type, in an AVL tree of their stays ordered by check-in and augmented with
+ * the latest check-out of each subtree. Finding the entries that overlap a range of freed nights only visits
+ * subtrees that can contain one, O(log n + matches), instead of scanning the whole waitlist.
+ */
+class WaitlistIntervalIndex {
+
+    private static final class Node {
+        final long start;
+        final long end;
+        final long id;
+        long maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(long start, long end, long id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+
+    private record Stay(String roomType, long start, long end) {
+    }
+
+    private final Map<String, Node> roots = new HashMap<>();
+    private final Map<Long, Stay> staysById = new HashMap<>();
+
+    synchronized void add(long id, String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (staysById.containsKey(id)) {
+            return;
+        }
+        Stay stay = new Stay(roomType, checkInDate.toEpochDay(), checkOutDate.toEpochDay());
+        staysById.put(id, stay);
+        roots.put(roomType, insert(roots.get(roomType), new Node(stay.start(), stay.end(), id)));
+    }
+
+    synchronized void remove(long id) {
+        Stay stay = staysById.remove(id);
+        if (stay == null) {
+            return;
+        }
+        Node root = delete(roots.get(stay.roomType()), stay.start(), id);
+        if (root == null) {
+            roots.remove(stay.roomType());
+        } else {
+            roots.put(stay.roomType(), root);
+        }
+    }
+
+    synchronized void clear() {
+        roots.clear();
+        staysById.clear();
+    }
+
+    synchronized int size() {
+        return staysById.size();
+    }
+
+    //Ids of the entries whose stay touches [from, to], both inclusive like the room availability query, oldest first
+    synchronized List<Long> overlapping(String roomType, LocalDate from, LocalDate to) {
+        List<Long> ids = new ArrayList<>();
+        collect(roots.get(roomType), from.toEpochDay(), to.toEpochDay(), ids);
+        ids.sort(null);
+        return ids;
+    }
+
+    private static void collect(Node node, long from, long to, List<Long> ids) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collect(node.left, from, to, ids);
+        //Everything to the right starts even later
+        if (node.start > to) {
+            return;
+        }
+        if (node.end >= from) {
+            ids.add(node.id);
+        }
+        collect(node.right, from, to, ids);
+    }
+
+    private static int compare(long start, long id, Node node) {
+        int byStart = Long.compare(start, node.start);
+        return byStart != 0 ? byStart : Long.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    private static Node delete(Node node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(start, id, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            //Replace the node with its successor
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node right = delete(node.right, successor.start, successor.id);
+            successor.left = node.left;
+            successor.right = right;
+            node = successor;
+        }
+        return rebalance(node);
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+}
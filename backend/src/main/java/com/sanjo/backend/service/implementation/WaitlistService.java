@@ -0,0 +1,337 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.WaitlistEntryDTO;
+import com.sanjo.backend.entity.Room;
+import com.sanjo.backend.entity.User;
+import com.sanjo.backend.entity.WaitlistEntry;
+import com.sanjo.backend.entity.WaitlistEntry.Status;
+import com.sanjo.backend.exception.OurException;
+import com.sanjo.backend.repository.RoomRepository;
+import com.sanjo.backend.repository.UserRepository;
+import com.sanjo.backend.repository.WaitlistEntryRepository;
+import com.sanjo.backend.security.Utils;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import com.sanjo.backend.service.interfac.IAuditService;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
+import com.sanjo.backend.service.interfac.IWaitlistService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Waitlist for guests who found a room type fully booked. Waiting entries are kept in a
+ * {@link WaitlistIntervalIndex}, so nights freed by a cancellation are matched only against the entries
+ * whose stay overlaps them. Matches are offered a room hold in order of arrival; an offer that lapses
+ * is passed on to the next guest in line.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitlistService implements IWaitlistService {
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final UserRepository userRepository;
+    private final RoomRepository roomRepository;
+    private final IRoomHoldService roomHoldService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final IAuditService auditService;
+    private final BookingPartitionService bookingPartitionService;
+
+    private final WaitlistIntervalIndex index = new WaitlistIntervalIndex();
+
+    //How long a waitlisted guest has to book the room held for them
+    @Value("${waitlist.offer-ttl-minutes:60}")
+    private long offerTtlMinutes;
+
+    //Upper bound on the waiting entries tried for one set of freed nights
+    @Value("${waitlist.max-candidates:100}")
+    private int maxCandidates;
+
+    @PostConstruct
+    public void init() {
+        rebuildIndex();
+        //An entry was added, offered or closed on another node; null means notifications may have been missed
+        cacheInvalidationBus.subscribe(EntityType.WAITLIST, entryId -> {
+            if (entryId == null) {
+                rebuildIndex();
+                return;
+            }
+            Optional<WaitlistEntry> entry = waitlistEntryRepository.findById(Long.parseLong(entryId));
+            if (entry.isPresent() && entry.get().getStatus() == Status.WAITING) {
+                index(entry.get());
+            } else {
+                index.remove(Long.parseLong(entryId));
+            }
+        });
+    }
+
+    @Override
+    public Response joinWaitlist(String email, WaitlistEntryDTO waitlistRequest) {
+
+        Response response = new Response();
+
+        try {
+            User user = userRepository.findByEmail(email).orElseThrow(() -> new OurException("User Not Found"));
+            String roomType = waitlistRequest.getRoomType();
+            LocalDate checkInDate = waitlistRequest.getCheckInDate();
+            LocalDate checkOutDate = waitlistRequest.getCheckOutDate();
+            if (roomType == null || checkInDate == null || checkOutDate == null) {
+                throw new IllegalArgumentException("Room type, check-in date and check-out date are required");
+            }
+            if (!checkOutDate.isAfter(checkInDate)) {
+                throw new IllegalArgumentException("Check out date must come after check in date");
+            }
+            if (checkInDate.isBefore(LocalDate.now())) {
+                throw new IllegalArgumentException("Check in date must not be in the past");
+            }
+            if (!roomRepository.findDistinctRoomTypes().contains(roomType)) {
+                throw new OurException("Room Type Not Found");
+            }
+
+            WaitlistEntry entry = new WaitlistEntry();
+            entry.setUser(user);
+            entry.setRoomType(roomType);
+            entry.setCheckInDate(checkInDate);
+            entry.setCheckOutDate(checkOutDate);
+            entry.setStatus(Status.WAITING);
+            entry.setCreatedAt(Instant.now());
+            WaitlistEntry savedEntry = waitlistEntryRepository.save(entry);
+            index(savedEntry);
+            cacheInvalidationBus.publish(EntityType.WAITLIST, savedEntry.getId());
+            auditService.record("JOIN_WAITLIST", "WAITLIST", savedEntry.getId(), savedEntry.toString());
+
+            //A room may have freed up since the guest last looked; offered straight away, oldest entries first
+            offerFreedNights(roomType, checkInDate, checkOutDate);
+
+            WaitlistEntry current = waitlistEntryRepository.findById(savedEntry.getId()).orElse(savedEntry);
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setWaitlistEntry(Utils.mapWaitlistEntryEntityToWaitlistEntryDTO(current));
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error joining the waitlist: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response getUserWaitlist(String email) {
+
+        Response response = new Response();
+
+        try {
+            User user = userRepository.findByEmail(email).orElseThrow(() -> new OurException("User Not Found"));
+            List<WaitlistEntryDTO> entries = waitlistEntryRepository.findByUserIdOrderByIdDesc(user.getId())
+                    .stream()
+                    .map(Utils::mapWaitlistEntryEntityToWaitlistEntryDTO)
+                    .toList();
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setWaitlistEntryList(entries);
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error getting the waitlist: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response leaveWaitlist(String email, Long entryId) {
+
+        Response response = new Response();
+
+        try {
+            User user = userRepository.findByEmail(email).orElseThrow(() -> new OurException("User Not Found"));
+            WaitlistEntry entry = waitlistEntryRepository.findById(entryId)
+                    .filter(found -> found.getUser().getId() == user.getId() || "ADMIN".equals(user.getRole()))
+                    .orElseThrow(() -> new OurException("Waitlist Entry Not Found"));
+            Status status = entry.getStatus();
+            if ((status != Status.WAITING && status != Status.OFFERED)
+                    || waitlistEntryRepository.transition(entryId, status, Status.CANCELLED) == 0) {
+                throw new IllegalArgumentException("Waitlist entry is no longer active");
+            }
+            index.remove(entryId);
+            cacheInvalidationBus.publish(EntityType.WAITLIST, entryId);
+            auditService.record("LEAVE_WAITLIST", "WAITLIST", entryId, entry.toString());
+
+            //The room held for this guest goes to the next one in line
+            if (status == Status.OFFERED) {
+                if (entry.getHoldId() != null) {
+                    roomHoldService.releaseHold(entry.getHoldId());
+                }
+                offerFreedNights(entry.getRoomType(), entry.getCheckInDate(), entry.getCheckOutDate());
+            }
+            response.setStatusCode(200);
+            response.setMessage("successful");
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error leaving the waitlist: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    //Never fails the caller; a missed offer is picked up again by the next release of overlapping nights
+    @Override
+    public void offerFreedNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (roomType == null || checkInDate == null || checkOutDate == null) {
+            return;
+        }
+        try {
+            List<Long> candidates = index.overlapping(roomType, checkInDate, checkOutDate);
+            LocalDate today = LocalDate.now();
+            int tried = 0;
+            for (Long entryId : candidates) {
+                if (tried++ >= maxCandidates) {
+                    break;
+                }
+                WaitlistEntry entry = waitlistEntryRepository.findById(entryId).orElse(null);
+                if (entry == null || entry.getStatus() != Status.WAITING) {
+                    index.remove(entryId);
+                    continue;
+                }
+                if (entry.getCheckInDate().isBefore(today)) {
+                    expire(entry, Status.WAITING);
+                    continue;
+                }
+                //Once nothing of the type is free across the freed nights, the rest of the line cannot be served either
+                if (!offer(entry) && freeRoom(roomType, checkInDate, checkOutDate) == null) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Unable to match freed {} nights {} to {} against the waitlist: {}",
+                    roomType, checkInDate, checkOutDate, e.getMessage());
+        }
+    }
+
+    @Override
+    public void bookingSaved(Long userId, Long roomId, LocalDate checkInDate, LocalDate checkOutDate) {
+        try {
+            waitlistEntryRepository.markBooked(userId, roomId, checkInDate, checkOutDate, Status.OFFERED, Status.BOOKED);
+        } catch (Exception e) {
+            log.warn("Unable to close the waitlist offer for user {} room {}: {}", userId, roomId, e.getMessage());
+        }
+    }
+
+    //Lapsed offers go to the next guest in line; waits whose stay has already started are closed
+    @Scheduled(fixedDelayString = "${waitlist.sweep-interval-ms:60000}",
+            initialDelayString = "${waitlist.sweep-interval-ms:60000}")
+    public void sweep() {
+        try {
+            for (WaitlistEntry entry : waitlistEntryRepository.findByStatusAndOfferExpiresAtBefore(Status.OFFERED, Instant.now())) {
+                if (expire(entry, Status.OFFERED)) {
+                    offerFreedNights(entry.getRoomType(), entry.getCheckInDate(), entry.getCheckOutDate());
+                }
+            }
+            if (waitlistEntryRepository.expireStarted(LocalDate.now(), Status.WAITING, Status.EXPIRED) > 0) {
+                rebuildIndex();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to sweep the waitlist: {}", e.getMessage());
+        }
+    }
+
+    //False when no room of the type is free for the entry's stay
+    private boolean offer(WaitlistEntry entry) {
+        LocalDate checkInDate = entry.getCheckInDate();
+        LocalDate checkOutDate = entry.getCheckOutDate();
+        Room room = freeRoom(entry.getRoomType(), checkInDate, checkOutDate);
+        if (room == null) {
+            return false;
+        }
+
+        Long userId = entry.getUser().getId();
+        Response hold = roomHoldService.holdRoom(room.getId(), userId, checkInDate, checkOutDate, offerTtlMinutes);
+        if (hold.getStatusCode() != 200) {
+            return true;
+        }
+        String holdId = hold.getRoomHold().getHoldId();
+        Instant expiresAt = Instant.now().plus(offerTtlMinutes, ChronoUnit.MINUTES);
+        if (waitlistEntryRepository.markOffered(entry.getId(), room.getId(), holdId, expiresAt, Status.WAITING, Status.OFFERED) == 0) {
+            //Left the waitlist or was offered elsewhere in the meantime
+            roomHoldService.releaseHold(holdId);
+            index.remove(entry.getId());
+            return true;
+        }
+        index.remove(entry.getId());
+        cacheInvalidationBus.publish(EntityType.WAITLIST, entry.getId());
+        auditService.record("OFFER_WAITLIST", "WAITLIST", entry.getId(),
+                "room=" + room.getId() + " user=" + userId + " checkIn=" + checkInDate + " checkOut=" + checkOutDate);
+        return true;
+    }
+
+    //A room of exactly this type that is neither booked nor held for the stay
+    private Room freeRoom(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        Set<Long> heldRoomIds = roomHoldService.getHeldRoomIds(checkInDate, checkOutDate);
+        //The repository matches room types by substring, the waitlist by exact type
+        return roomRepository.findAllAvailableRoomsByDatesAndTypes(checkInDate, checkOutDate, roomType,
+                        bookingPartitionService.earliestOverlappingCheckIn(checkInDate))
+                .stream()
+                .filter(candidate -> roomType.equals(candidate.getRoomType()))
+                .filter(candidate -> !heldRoomIds.contains(candidate.getId()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private boolean expire(WaitlistEntry entry, Status from) {
+        index.remove(entry.getId());
+        if (waitlistEntryRepository.transition(entry.getId(), from, Status.EXPIRED) == 0) {
+            return false;
+        }
+        cacheInvalidationBus.publish(EntityType.WAITLIST, entry.getId());
+        return true;
+    }
+
+    private void index(WaitlistEntry entry) {
+        index.add(entry.getId(), entry.getRoomType(), entry.getCheckInDate(), entry.getCheckOutDate());
+    }
+
+    private void rebuildIndex() {
+        try {
+            List<WaitlistEntry> waiting = waitlistEntryRepository.findByStatus(Status.WAITING);
+            synchronized (index) {
+                index.clear();
+                waiting.forEach(this::index);
+            }
+        } catch (Exception e) {
+            log.warn("Unable to rebuild the waitlist index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.sanjo.backend.service.interfac;
+
+import com.sanjo.backend.dto.Response;
+
+public interface IAuditService {
+
+    //Never blocks; the event is written to the audit log in the background
+    void record(String action, String entityType, Object entityId, String details);
+
+    Response getAuditEvents(String entityType, String entityId, String action, int limit);
+}
@@ -3,14 +3,25 @@ package com.sanjo.backend.service.interfac;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.entity.Booking;
 
+import java.time.LocalDate;
+import java.util.List;
+
 public interface IBookingService {
 
     Response saveBooking(Long roomId, Long userId, Booking bookingRequest);
 
     Response findBookingByConfirmationCode(String confirmationCode);
 
+    //Non-admin callers only get their own bookings back
+    Response findBookingsByConfirmationCodes(String email, List<String> confirmationCodes);
+
     Response getAllBookings();
 
+    Response getArchivedBookings(Long userId, Long roomId, String confirmationCode, int page, int size);
+
+    Response searchBookings(LocalDate from, LocalDate to, Long roomId, String roomType, String userEmail,
+                            String confirmationCodePrefix, int size, String cursor);
+
     Response cancelBooking(Long bookingId);
 
 }
@@ -0,0 +1,29 @@
+package com.sanjo.backend.service.interfac;
+
+import com.sanjo.backend.dto.PricingRuleDTO;
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.StayQuoteDTO;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface IPricingService {
+
+    Response getStayQuotes(List<Long> roomIds, LocalDate checkInDate, LocalDate checkOutDate);
+
+    Response getPricingRules();
+
+    Response addPricingRule(PricingRuleDTO pricingRule);
+
+    Response deletePricingRule(Long ruleId);
+
+    StayQuoteDTO quoteStay(Long roomId, LocalDate checkInDate, LocalDate checkOutDate);
+
+    Map<Long, BigDecimal> getStayPrices(Collection<Long> roomIds, LocalDate checkInDate, LocalDate checkOutDate);
+
+    CacheInvalidationBus.Change bookingChange(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+}
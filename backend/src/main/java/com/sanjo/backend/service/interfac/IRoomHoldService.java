@@ -0,0 +1,31 @@
+package com.sanjo.backend.service.interfac;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.RoomHoldDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+public interface IRoomHoldService {
+
+    //Refuses a hold for another guest unless requesterEmail belongs to an admin
+    Response holdRoom(String requesterEmail, Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate);
+
+    Response holdRoom(Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate, long ttlMinutes);
+
+    //Refuses to release another guest's hold unless requesterEmail belongs to an admin
+    Response releaseHold(String requesterEmail, String holdId);
+
+    Response releaseHold(String holdId);
+
+    boolean isHoldActive(String holdId);
+
+    boolean isHeldByAnotherUser(Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate);
+
+    Set<Long> getHeldRoomIds(LocalDate checkInDate, LocalDate checkOutDate);
+
+    List<RoomHoldDTO> getActiveHolds(LocalDate checkInDate, LocalDate checkOutDate);
+
+    void consumeHold(Long roomId, Long userId, LocalDate checkInDate, LocalDate checkOutDate);
+}
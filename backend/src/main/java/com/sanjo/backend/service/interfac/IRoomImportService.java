@@ -0,0 +1,10 @@
+package com.sanjo.backend.service.interfac;
+
+import com.sanjo.backend.dto.Response;
+
+import java.io.InputStream;
+
+public interface IRoomImportService {
+
+    Response importRooms(InputStream csv);
+}
@@ -21,7 +21,13 @@ public interface IRoomService {
 
     Response getRoomById(Long roomId);
 
+    Response getRoomsByIds(List<Long> roomIds);
+
     Response getAvailableRoomsByDataAndType(LocalDate checkInDate, LocalDate checkOutDate, String roomType);
 
+    Response getRoomTypeAvailability(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+
     Response getAllAvailableRooms();
+
+    Response getFlexibleAvailability(String roomType, LocalDate windowStart, LocalDate windowEnd, int nights, int limit);
 }
@@ -0,0 +1,10 @@
+package com.sanjo.backend.service.interfac;
+
+import com.sanjo.backend.dto.Response;
+
+public interface ITraceService {
+
+    Response getTraces(String path, long minDurationMillis, int limit);
+
+    Response getTrace(String traceId);
+}
@@ -1,6 +1,8 @@
 package com.sanjo.backend.service.interfac;
 
+import com.sanjo.backend.dto.ChangePasswordRequest;
 import com.sanjo.backend.dto.LoginRequest;
+import com.sanjo.backend.dto.RefreshTokenRequest;
 import com.sanjo.backend.dto.Response;
 import com.sanjo.backend.entity.User;
 
@@ -10,6 +12,14 @@ public interface IUserService {
 
     Response login(LoginRequest loginRequest);
 
+    Response refreshToken(RefreshTokenRequest refreshTokenRequest);
+
+    Response logout(String accessToken, String refreshToken);
+
+    Response changePassword(String email, ChangePasswordRequest changePasswordRequest);
+
+    Response banUser(String userId, boolean banned);
+
     Response getAllUsers();
 
     Response getUserBookingHistory(String userId);
@@ -20,4 +30,6 @@ public interface IUserService {
 
     Response getMyInfo(String email);
 
+    Response getMyStays(String email, int upcomingLimit, int pastPageSize, String pastCursor);
+
 }
@@ -0,0 +1,19 @@
+package com.sanjo.backend.service.interfac;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.WaitlistEntryDTO;
+
+import java.time.LocalDate;
+
+public interface IWaitlistService {
+
+    Response joinWaitlist(String email, WaitlistEntryDTO waitlistRequest);
+
+    Response getUserWaitlist(String email);
+
+    Response leaveWaitlist(String email, Long entryId);
+
+    void offerFreedNights(String roomType, LocalDate checkInDate, LocalDate checkOutDate);
+
+    void bookingSaved(Long userId, Long roomId, LocalDate checkInDate, LocalDate checkOutDate);
+}
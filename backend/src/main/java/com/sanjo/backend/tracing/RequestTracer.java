@@ -0,0 +1,116 @@
+package com.sanjo.backend.tracing;
+
+import com.sanjo.backend.dto.TraceDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows each HTTP request through the filters, controllers, services, repositories and outbound clients
+ * as a tree of timed spans. Every request is recorded into a per-thread buffer, but only slow requests
+ * (plus an optional random sample) are copied out, logged and kept in a bounded in-memory ring.
+ * Spans opened on a thread with no request running cost one ThreadLocal read.
+ */
+@Slf4j
+@Component
+public class RequestTracer {
+
+    public enum SpanKind { REQUEST, FILTER, CONTROLLER, SERVICE, REPOSITORY, OUTBOUND, SERIALIZATION }
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    //Reused by every request served on the thread
+    private final ThreadLocal<Trace> buffers = ThreadLocal.withInitial(() -> new Trace(this.maxSpans));
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    //Requests at least this slow are always kept
+    @Value("${tracing.slow-threshold-ms:500}")
+    private long slowThresholdMillis;
+
+    //Share of the faster requests kept anyway, between 0 and 1
+    @Value("${tracing.sample-rate:0.0}")
+    private double sampleRate;
+
+    @Value("${tracing.max-spans:512}")
+    private int maxSpans;
+
+    @Value("${tracing.ring-size:200}")
+    private int ringSize;
+
+    private TraceDTO[] ring;
+    private long ringWrites;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static int openSpan(SpanKind kind, String owner, String operation) {
+        Trace trace = CURRENT.get();
+        return trace == null ? -1 : trace.open(kind, owner, operation);
+    }
+
+    public static void closeSpan(int span) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            trace.close(span);
+        }
+    }
+
+    //Trace id of the request running on this thread, or null
+    public static String currentTraceId() {
+        Trace trace = CURRENT.get();
+        return trace == null ? null : trace.traceId();
+    }
+
+    void begin(String traceId, String method, String path) {
+        Trace trace = buffers.get();
+        trace.begin(traceId, method, path);
+        CURRENT.set(trace);
+    }
+
+    void finish(int statusCode) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return;
+        }
+        CURRENT.remove();
+        long durationNanos = trace.finish();
+        boolean slow = durationNanos >= TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        if (!slow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        TraceDTO traceDTO = trace.toDTO(statusCode);
+        if (slow) {
+            log.warn("Slow request {} {} took {} ms, status {}, trace {}, breakdown (us) {}", traceDTO.getMethod(),
+                    traceDTO.getPath(), traceDTO.getDurationMicros() / 1000, statusCode, traceDTO.getTraceId(),
+                    traceDTO.getBreakdownMicros());
+        }
+        keep(traceDTO);
+    }
+
+    //Kept traces, newest first
+    public synchronized List<TraceDTO> getTraces() {
+        List<TraceDTO> traces = new ArrayList<>();
+        if (ring == null) {
+            return traces;
+        }
+        for (long write = ringWrites - 1; write >= 0 && write >= ringWrites - ring.length; write--) {
+            traces.add(ring[(int) (write % ring.length)]);
+        }
+        return traces;
+    }
+
+    private synchronized void keep(TraceDTO traceDTO) {
+        if (ring == null) {
+            ring = new TraceDTO[Math.max(ringSize, 1)];
+        }
+        ring[(int) (ringWrites++ % ring.length)] = traceDTO;
+    }
+}
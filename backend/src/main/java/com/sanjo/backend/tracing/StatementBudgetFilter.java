@@ -0,0 +1,103 @@
+package com.sanjo.backend.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements each request makes Hibernate prepare, including lazy loads while the response is
+ * serialized. Requests over the statement budget, and requests repeating one statement more than allowed
+ * (usually a lazy association loaded row by row), are logged with their trace id and counted per endpoint
+ * in sql.budget.violations.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private static final int MAX_LOGGED_SQL_LENGTH = 300;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sql-budget.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sql-budget.max-statements:20}")
+    private int maxStatements;
+
+    //Times one statement may run in a request before it is reported as N+1
+    @Value("${sql-budget.max-repeats:5}")
+    private int maxRepeats;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        StatementCounter counter = StatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            counter.stop();
+            check(request, counter);
+        }
+    }
+
+    private void check(HttpServletRequest request, StatementCounter counter) {
+        //The mapped pattern (/bookings/{id}) rather than the raw path keeps the endpoint tag bounded
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern == null ? "UNMATCHED" : pattern);
+        DistributionSummary.builder("sql.statements")
+                .description("SQL statements prepared per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(counter.getTotal());
+
+        if (counter.getTotal() > maxStatements) {
+            violation(endpoint, "budget");
+            log.warn("{} ran {} SQL statements, over the budget of {} ({})", endpoint, counter.getTotal(),
+                    maxStatements, request.getRequestURI());
+        }
+        Map.Entry<String, Integer> mostRepeated = counter.getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() > maxRepeats) {
+            violation(endpoint, "repeat");
+            log.warn("{} ran the same SQL statement {} times, likely N+1 ({}): {}", endpoint, mostRepeated.getValue(),
+                    request.getRequestURI(), abbreviate(mostRepeated.getKey()));
+        }
+    }
+
+    private void violation(String endpoint, String reason) {
+        Counter.builder("sql.budget.violations")
+                .description("Requests over the SQL statement budget or repeating a statement")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_LOGGED_SQL_LENGTH ? sql : sql.substring(0, MAX_LOGGED_SQL_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,72 @@
+package com.sanjo.backend.tracing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tally of the SQL statements Hibernate prepares on one thread between start and stop, fed by
+ * StatementCountingInspector. Statements are keyed by their text, which Hibernate renders with ? placeholders,
+ * so the same lookup run once per row (the N+1 signature) shows up as one statement with a high count.
+ * Counters nest: a statement counts towards every counter open on the thread. Statements issued through
+ * JdbcTemplate bypass Hibernate and are not counted.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<StatementCounter> CURRENT = new ThreadLocal<>();
+
+    private final StatementCounter outer;
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int total;
+    private boolean stopped;
+
+    private StatementCounter(StatementCounter outer) {
+        this.outer = outer;
+    }
+
+    //Starts counting the statements prepared on this thread until stop is called
+    public static StatementCounter start() {
+        StatementCounter counter = new StatementCounter(CURRENT.get());
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    static void record(String sql) {
+        for (StatementCounter counter = CURRENT.get(); counter != null; counter = counter.outer) {
+            counter.total++;
+            counter.counts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public StatementCounter stop() {
+        if (!stopped) {
+            stopped = true;
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+        return this;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    //Times each distinct statement was prepared
+    public Map<String, Integer> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    //The statement prepared most often, or null if none was
+    public Map.Entry<String, Integer> getMostRepeated() {
+        Map.Entry<String, Integer> mostRepeated = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (mostRepeated == null || entry.getValue() > mostRepeated.getValue()) {
+                mostRepeated = entry;
+            }
+        }
+        return mostRepeated;
+    }
+}
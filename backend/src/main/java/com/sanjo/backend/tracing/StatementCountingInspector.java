@@ -0,0 +1,16 @@
+package com.sanjo.backend.tracing;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Registered with Hibernate by TracingConfig; sees every statement before it is prepared and hands it to the
+ * StatementCounter open on the thread, leaving the SQL unchanged.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        StatementCounter.record(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,160 @@
+package com.sanjo.backend.tracing;
+
+import com.sanjo.backend.dto.TraceDTO;
+import com.sanjo.backend.dto.TraceSpanDTO;
+import com.sanjo.backend.tracing.RequestTracer.SpanKind;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Span buffer of the request running on one thread. Each thread reuses its buffer, so recording a request
+ * that is not kept allocates nothing once the arrays have grown; only kept requests are copied out by toDTO.
+ */
+final class Trace {
+
+    private static final int INITIAL_SPANS = 32;
+
+    private final int maxSpans;
+
+    private String traceId;
+    private String method;
+    private String path;
+    private long startedAtMillis;
+
+    private SpanKind[] kinds = new SpanKind[INITIAL_SPANS];
+    private String[] owners = new String[INITIAL_SPANS];
+    private String[] operations = new String[INITIAL_SPANS];
+    private long[] starts = new long[INITIAL_SPANS];
+    private long[] ends = new long[INITIAL_SPANS];
+    private int[] depths = new int[INITIAL_SPANS];
+    private int count;
+    private int depth;
+    private int droppedSpans;
+
+    Trace(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    void begin(String traceId, String method, String path) {
+        this.traceId = traceId;
+        this.method = method;
+        this.path = path;
+        this.startedAtMillis = System.currentTimeMillis();
+        Arrays.fill(owners, 0, count, null);
+        Arrays.fill(operations, 0, count, null);
+        count = 0;
+        depth = 0;
+        droppedSpans = 0;
+        open(SpanKind.REQUEST, method, path);
+    }
+
+    String traceId() {
+        return traceId;
+    }
+
+    //Index of the new span, or -1 once maxSpans spans have been recorded
+    int open(SpanKind kind, String owner, String operation) {
+        if (count == kinds.length && !grow()) {
+            droppedSpans++;
+            depth++;
+            return -1;
+        }
+        int span = count++;
+        kinds[span] = kind;
+        owners[span] = owner;
+        operations[span] = operation;
+        depths[span] = depth++;
+        ends[span] = 0;
+        starts[span] = System.nanoTime();
+        return span;
+    }
+
+    void close(int span) {
+        if (span >= 0) {
+            ends[span] = System.nanoTime();
+        }
+        depth--;
+    }
+
+    //Closes the request span and returns the request duration in nanoseconds
+    long finish() {
+        close(0);
+        return ends[0] - starts[0];
+    }
+
+    private boolean grow() {
+        if (kinds.length >= maxSpans) {
+            return false;
+        }
+        int capacity = Math.min(kinds.length * 2, maxSpans);
+        kinds = Arrays.copyOf(kinds, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        operations = Arrays.copyOf(operations, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        return true;
+    }
+
+    //Self time of a span is its duration minus that of its direct children
+    TraceDTO toDTO(int statusCode) {
+        long requestEnd = ends[0];
+        long[] selfNanos = new long[count];
+        int[] parents = new int[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        for (int span = 0; span < count; span++) {
+            while (stackSize > 0 && depths[stack[stackSize - 1]] >= depths[span]) {
+                stackSize--;
+            }
+            parents[span] = stackSize == 0 ? -1 : stack[stackSize - 1];
+            stack[stackSize++] = span;
+            selfNanos[span] = durationNanos(span, requestEnd);
+        }
+        for (int span = 1; span < count; span++) {
+            if (parents[span] >= 0) {
+                selfNanos[parents[span]] -= durationNanos(span, requestEnd);
+            }
+        }
+
+        Map<SpanKind, Long> breakdown = new EnumMap<>(SpanKind.class);
+        List<TraceSpanDTO> spans = new ArrayList<>(count);
+        for (int span = 0; span < count; span++) {
+            breakdown.merge(kinds[span], Math.max(selfNanos[span], 0), Long::sum);
+
+            TraceSpanDTO spanDTO = new TraceSpanDTO();
+            spanDTO.setKind(kinds[span].name());
+            spanDTO.setName(owners[span] + " " + operations[span]);
+            spanDTO.setDepth(depths[span]);
+            spanDTO.setStartMicros((starts[span] - starts[0]) / 1000);
+            spanDTO.setDurationMicros(durationNanos(span, requestEnd) / 1000);
+            spanDTO.setSelfMicros(Math.max(selfNanos[span], 0) / 1000);
+            spans.add(spanDTO);
+        }
+        Map<String, Long> breakdownMicros = new LinkedHashMap<>();
+        breakdown.forEach((kind, nanos) -> breakdownMicros.put(kind.name(), nanos / 1000));
+
+        TraceDTO traceDTO = new TraceDTO();
+        traceDTO.setTraceId(traceId);
+        traceDTO.setMethod(method);
+        traceDTO.setPath(path);
+        traceDTO.setStatusCode(statusCode);
+        traceDTO.setStartedAt(Instant.ofEpochMilli(startedAtMillis));
+        traceDTO.setDurationMicros(durationNanos(0, requestEnd) / 1000);
+        traceDTO.setBreakdownMicros(breakdownMicros);
+        traceDTO.setSpans(spans);
+        traceDTO.setDroppedSpans(droppedSpans);
+        return traceDTO;
+    }
+
+    //Spans still open when the request ended (e.g. left by an exception) end with it
+    private long durationNanos(int span, long requestEnd) {
+        return (ends[span] == 0 ? requestEnd : ends[span]) - starts[span];
+    }
+}
@@ -0,0 +1,42 @@
+package com.sanjo.backend.tracing;
+
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Adds {@link TracingInterceptor} to the application's controllers and services and to the Spring Data repositories,
+ * ahead of any transaction or security advice they already have, so a span also covers the commit.
+ */
+@Component
+public class TracingBeanPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    private static final String APPLICATION_PACKAGE = "com.sanjo.backend.";
+
+    public TracingBeanPostProcessor(@Value("${tracing.enabled:true}") boolean enabled) {
+        ClassFilter tracedClasses = clazz -> enabled && (Repository.class.isAssignableFrom(clazz)
+                || (clazz.getName().startsWith(APPLICATION_PACKAGE)
+                && (AnnotatedElementUtils.hasAnnotation(clazz, Service.class)
+                || AnnotatedElementUtils.hasAnnotation(clazz, RestController.class))));
+        StaticMethodMatcher publicMethods = new StaticMethodMatcher() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new ComposablePointcut(tracedClasses, publicMethods), new TracingInterceptor());
+        setBeforeExistingAdvisors(true);
+        setProxyTargetClass(true);
+    }
+}
@@ -0,0 +1,41 @@
+package com.sanjo.backend.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.tracing.RequestTracer.SpanKind;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+@Configuration
+public class TracingConfig {
+
+    //Replaces Boot's JSON converter, with the same ObjectMapper, so response serialization gets its own span
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                int span = RequestTracer.openSpan(SpanKind.SERIALIZATION, "Jackson", "write");
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    RequestTracer.closeSpan(span);
+                }
+            }
+        };
+    }
+
+    //Lets StatementBudgetFilter (and tests) count the statements Hibernate prepares
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+}
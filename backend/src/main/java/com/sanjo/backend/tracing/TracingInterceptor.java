@@ -0,0 +1,62 @@
+package com.sanjo.backend.tracing;
+
+import com.sanjo.backend.tracing.RequestTracer.SpanKind;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opens a span around each public method of a traced bean, named after the bean's own class
+ * (or repository interface) rather than the framework class that implements it.
+ */
+class TracingInterceptor implements MethodInterceptor {
+
+    //Services whose work is mostly a call to a third-party API
+    private static final Set<String> OUTBOUND_CLIENTS = Set.of("GeminiService", "CloudinaryService", "PaymentService");
+
+    private record SpanOwner(SpanKind kind, String name) {
+    }
+
+    private final Map<Class<?>, SpanOwner> owners = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (RequestTracer.currentTraceId() == null) {
+            return invocation.proceed();
+        }
+        Object proxy = invocation instanceof ProxyMethodInvocation proxyInvocation
+                ? proxyInvocation.getProxy() : invocation.getThis();
+        SpanOwner owner = owners.computeIfAbsent(proxy.getClass(), TracingInterceptor::ownerOf);
+        int span = RequestTracer.openSpan(owner.kind(), owner.name(), invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            RequestTracer.closeSpan(span);
+        }
+    }
+
+    private static SpanOwner ownerOf(Class<?> proxyClass) {
+        if (Proxy.isProxyClass(proxyClass)) {
+            for (Class<?> proxiedInterface : proxyClass.getInterfaces()) {
+                if (Repository.class.isAssignableFrom(proxiedInterface)) {
+                    return new SpanOwner(SpanKind.REPOSITORY, proxiedInterface.getSimpleName());
+                }
+            }
+        }
+        Class<?> userClass = ClassUtils.getUserClass(proxyClass);
+        String name = userClass.getSimpleName();
+        if (AnnotatedElementUtils.hasAnnotation(userClass, RestController.class)) {
+            return new SpanOwner(SpanKind.CONTROLLER, name);
+        }
+        return new SpanOwner(OUTBOUND_CLIENTS.contains(name) ? SpanKind.OUTBOUND : SpanKind.SERVICE, name);
+    }
+}
@@ -0,0 +1,193 @@
+package com.sanjo.backend.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.RoomDTO;
+import com.sanjo.backend.repository.UserRepository;
+import com.sanjo.backend.service.interfac.IPricingService;
+import com.sanjo.backend.service.interfac.IRoomService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the guest-facing read paths synthetically right after startup, before WarmUpHealthIndicator lets the node
+ * report ready: Hibernate's first queries per entity, server-side prepared statements on several pooled connections,
+ * JIT compilation of the service and Jackson code, and the room type inventory of the nights most searched.
+ * Everything it calls is read-only apart from seeding those inventory counters.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupWarmUp {
+
+    private final IRoomService roomService;
+    private final IPricingService pricingService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    //Rounds of the hot paths, split across threads
+    @Value("${warmup.iterations:40}")
+    private int iterations;
+
+    @Value("${warmup.threads:4}")
+    private int threads;
+
+    //Nights ahead whose inventory counters are seeded for every room type
+    @Value("${warmup.inventory-days:60}")
+    private int inventoryDays;
+
+    //After this the node reports ready anyway; a slow warm-up must not keep it out of rotation
+    @Value("${warmup.timeout-ms:60000}")
+    private long timeoutMillis;
+
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private volatile boolean complete;
+    private volatile String outcome = "pending";
+    private volatile long durationMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            finish("disabled", 0);
+            return;
+        }
+        Thread thread = new Thread(this::run, "startup-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getFailedCalls() {
+        return failedCalls.get();
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int threadCount = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "startup-warm-up-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        String result = "completed";
+        try {
+            List<String> roomTypes = roomService.getAllRoomTypes();
+            LocalDate today = LocalDate.now();
+            for (String roomType : roomTypes) {
+                check(roomService.getRoomTypeAvailability(roomType, today, today.plusDays(inventoryDays)));
+            }
+            Response catalog = check(roomService.getAllRooms());
+            List<Long> roomIds = catalog.getRoomList() == null ? List.of()
+                    : catalog.getRoomList().stream().map(RoomDTO::getId).limit(20).toList();
+
+            //Each worker holds its own pooled connection while it runs, so the statements get prepared on several
+            List<Future<?>> workers = new ArrayList<>();
+            int rounds = Math.max(1, iterations / threadCount);
+            for (int worker = 0; worker < threadCount; worker++) {
+                int offset = worker;
+                workers.add(pool.submit(() -> {
+                    for (int round = 0; round < rounds && !Thread.currentThread().isInterrupted(); round++) {
+                        exercise(roomTypes, roomIds, today, offset + round * threadCount);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            result = "timed out";
+            log.warn("Warm-up did not finish within {} ms, accepting traffic anyway", timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = "interrupted";
+        } catch (Exception e) {
+            result = "failed";
+            log.warn("Warm-up failed, accepting traffic anyway: {}", e.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Timer.builder("warmup.duration")
+                .description("Time from application ready until the node reported ready")
+                .tag("outcome", result)
+                .register(meterRegistry)
+                .record(Duration.ofMillis(elapsedMillis));
+        log.info("Warm-up {} in {} ms ({} failed calls)", result, elapsedMillis, failedCalls.get());
+        finish(result, elapsedMillis);
+    }
+
+    //One round of the paths behind the home page, room listing, availability search and login
+    private void exercise(List<String> roomTypes, List<Long> roomIds, LocalDate today, int round) {
+        String roomType = roomTypes.isEmpty() ? null : roomTypes.get(round % roomTypes.size());
+        //Different dates each round, so the paths run as for real searches rather than one repeated stay
+        LocalDate checkIn = today.plusDays(1 + round % Math.max(1, inventoryDays - 14));
+        LocalDate checkOut = checkIn.plusDays(1 + round % 4);
+
+        serialize(roomService.getAllRoomTypes());
+        serialize(check(roomService.getAllRooms()));
+        serialize(check(roomService.getAvailableRoomsByDataAndType(checkIn, checkOut, roomType)));
+        if (roomType != null) {
+            serialize(check(roomService.getRoomTypeAvailability(roomType, checkIn, checkOut)));
+            serialize(check(roomService.getFlexibleAvailability(roomType, checkIn, checkIn.plusDays(14), 2, 10)));
+        }
+        if (!roomIds.isEmpty()) {
+            serialize(check(pricingService.getStayQuotes(roomIds, checkIn, checkOut)));
+        }
+        userRepository.findByEmail("warm-up@luxestay.invalid");
+    }
+
+    private Response check(Response response) {
+        if (response.getStatusCode() >= 500) {
+            failedCalls.incrementAndGet();
+            log.debug("Warm-up call failed: {}", response.getMessage());
+        }
+        return response;
+    }
+
+    private void serialize(Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            failedCalls.incrementAndGet();
+        }
+    }
+
+    private void finish(String result, long elapsedMillis) {
+        outcome = result;
+        durationMillis = elapsedMillis;
+        complete = true;
+    }
+}
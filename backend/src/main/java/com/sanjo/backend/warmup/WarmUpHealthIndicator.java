@@ -0,0 +1,29 @@
+package com.sanjo.backend.warmup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "warmUp" health component, part of the readiness group: OUT_OF_SERVICE until StartupWarmUp has finished, so the
+ * load balancer only routes to the node once its hot paths are warm.
+ */
+@Component
+@RequiredArgsConstructor
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final StartupWarmUp startupWarmUp;
+
+    @Override
+    public Health health() {
+        if (!startupWarmUp.isComplete()) {
+            return Health.outOfService().withDetail("outcome", startupWarmUp.getOutcome()).build();
+        }
+        return Health.up()
+                .withDetail("outcome", startupWarmUp.getOutcome())
+                .withDetail("durationMs", startupWarmUp.getDurationMillis())
+                .withDetail("failedCalls", startupWarmUp.getFailedCalls())
+                .build();
+    }
+}
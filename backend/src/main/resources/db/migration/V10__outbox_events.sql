@@ -0,0 +1,24 @@
+-- ===============================
+-- Transactional outbox for side effects of booking changes
+-- ===============================
+
+-- Written in the same transaction as the booking change, one row per handler that subscribes to the event type,
+-- so a failing handler is retried on its own. Delivered rows are deleted; rows that ran out of attempts stay as DEAD.
+-- A claimed row's next_attempt_at is pushed out by the lease, so a dispatcher that dies mid-delivery is retried.
+CREATE TABLE outbox_events (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    handler         VARCHAR(64)              NOT NULL,
+    event_type      VARCHAR(64)              NOT NULL,
+    aggregate_id    BIGINT                   NOT NULL,
+    payload         TEXT                     NOT NULL,
+    status          VARCHAR(16)              NOT NULL DEFAULT 'PENDING',
+    attempts        INTEGER                  NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    last_error      TEXT
+);
+
+-- Due rows, oldest first, for the dispatcher's claim
+CREATE INDEX idx_outbox_events_due ON outbox_events (next_attempt_at, id) WHERE status = 'PENDING';
+-- Earlier pending events of the same booking and handler, which must be delivered first
+CREATE INDEX idx_outbox_events_aggregate ON outbox_events (handler, aggregate_id, id) WHERE status = 'PENDING';
@@ -0,0 +1,15 @@
+-- ===============================
+-- Indexes for the admin booking search
+-- ===============================
+
+-- Results are ordered by (check_in_date, id) descending and paged on that keyset, so an unfiltered or date-only
+-- search reads one index backwards per partition and stops after a page.
+CREATE INDEX IF NOT EXISTS idx_bookings_check_in_id ON bookings (check_in_date, id);
+
+-- Confirmation-code prefix search is a left-anchored LIKE, which a plain btree only serves under the C collation.
+-- text_pattern_ops serves it under any collation and still serves the exact lookups of the old index.
+CREATE INDEX IF NOT EXISTS idx_bookings_confirmation_code_pattern ON bookings (booking_confirmation_code text_pattern_ops);
+DROP INDEX IF EXISTS idx_bookings_confirmation_code;
+
+-- Email filter is case-insensitive; the matched user's bookings then come from idx_bookings_user_check_out
+CREATE INDEX IF NOT EXISTS idx_users_lower_email ON users (lower(email));
@@ -0,0 +1,18 @@
+-- ===============================
+-- Idempotency keys of booking requests, shared by every node
+-- ===============================
+
+-- The node whose insert creates the row runs the request; response stays NULL until it has answered, then holds the
+-- answer as JSON for replays on any node. A claim still unanswered after the lease belongs to a node that died and
+-- may be taken over. Rows are swept once expires_at has passed.
+CREATE TABLE idempotency_keys (
+    caller          VARCHAR(255)             NOT NULL,
+    idempotency_key VARCHAR(255)             NOT NULL,
+    fingerprint     TEXT                     NOT NULL,
+    response        TEXT,
+    claimed_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    expires_at      TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_idempotency_keys_caller_key UNIQUE (caller, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
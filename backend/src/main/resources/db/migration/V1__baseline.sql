@@ -0,0 +1,34 @@
+-- ===============================
+-- Baseline: schema as previously generated by ddl-auto=update
+-- ===============================
+-- Existing databases are baselined at version 1 (spring.flyway.baseline-on-migrate) and skip this script.
+
+CREATE TABLE users (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email        VARCHAR(255) NOT NULL,
+    name         VARCHAR(255) NOT NULL,
+    password     VARCHAR(255),
+    phone_number VARCHAR(255) NOT NULL,
+    role         VARCHAR(255),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE room (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    room_description VARCHAR(255),
+    room_photo_url   VARCHAR(255),
+    room_price       NUMERIC(38, 2),
+    room_type        VARCHAR(255)
+);
+
+CREATE TABLE bookings (
+    id                        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    booking_confirmation_code VARCHAR(255),
+    check_in_date             DATE    NOT NULL,
+    check_out_date            DATE,
+    num_of_adult              INTEGER CHECK (num_of_adult >= 1),
+    num_of_children           INTEGER NOT NULL CHECK (num_of_children >= 0),
+    total_num_of_guest        INTEGER NOT NULL,
+    room_id                   BIGINT REFERENCES room (id),
+    user_id                   BIGINT REFERENCES users (id)
+);
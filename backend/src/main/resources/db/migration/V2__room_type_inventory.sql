@@ -0,0 +1,12 @@
+-- ===============================
+-- Per (room type, night) inventory counters
+-- ===============================
+-- IF NOT EXISTS: databases that ran with ddl-auto=update already have this table.
+
+CREATE TABLE IF NOT EXISTS room_type_inventory (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    available INTEGER      NOT NULL,
+    room_type VARCHAR(255) NOT NULL,
+    stay_date DATE         NOT NULL,
+    CONSTRAINT uk_room_type_inventory_type_date UNIQUE (room_type, stay_date)
+);
@@ -0,0 +1,18 @@
+-- ===============================
+-- Indexes for BookingRepository / RoomRepository queries
+-- ===============================
+
+-- findBookingByRoomId, Room.bookings, existsOverlappingBooking (room_id leads, dates narrow the range)
+CREATE INDEX IF NOT EXISTS idx_bookings_room_dates ON bookings (room_id, check_in_date, check_out_date);
+
+-- findByUserId, User.bookings
+CREATE INDEX IF NOT EXISTS idx_bookings_user_id ON bookings (user_id);
+
+-- Availability subquery in findAllAvailableRoomsByDatesAndTypes (check_in_date <= :checkOutDate AND check_out_date >= :checkInDate)
+CREATE INDEX IF NOT EXISTS idx_bookings_dates ON bookings (check_in_date, check_out_date);
+
+-- findBookingByBookingConfirmationCode
+CREATE INDEX IF NOT EXISTS idx_bookings_confirmation_code ON bookings (booking_confirmation_code);
+
+-- findDistinctRoomTypes, room type inventory seeding and type + price filtering
+CREATE INDEX IF NOT EXISTS idx_room_type_price ON room (room_type, room_price);
@@ -0,0 +1,15 @@
+-- ===============================
+-- Access token revocation (logout, password change, ban)
+-- ===============================
+
+-- token_key is either a token id (jti) or "user:<id>" for every token of a user issued up to issued_before.
+-- Rows are only needed until the tokens they cover have expired.
+CREATE TABLE revoked_tokens (
+    token_key     VARCHAR(64)              PRIMARY KEY,
+    issued_before TIMESTAMP WITH TIME ZONE,
+    expires_at    TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
+
+ALTER TABLE users ADD COLUMN banned BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,16 @@
+-- ===============================
+-- Dynamic pricing rules applied on top of room.room_price
+-- ===============================
+
+-- room_type NULL applies to every type; start_date/end_date (inclusive, nights) bound any rule when set.
+-- Rules that match the same night compound: price * (1 + a/100) * (1 + b/100) ...
+CREATE TABLE pricing_rules (
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                  VARCHAR(255)  NOT NULL,
+    rule_type             VARCHAR(32)   NOT NULL,
+    room_type             VARCHAR(255),
+    start_date            DATE,
+    end_date              DATE,
+    min_occupancy_percent INTEGER,
+    adjustment_percent    NUMERIC(7, 2) NOT NULL
+);
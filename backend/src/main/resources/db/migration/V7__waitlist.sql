@@ -0,0 +1,22 @@
+-- ===============================
+-- Waitlist for room types that were fully booked for the requested dates
+-- ===============================
+
+-- WAITING entries are matched against nights freed by cancellations, oldest first;
+-- a match moves the entry to OFFERED with a room hold that the guest can book until offer_expires_at.
+CREATE TABLE waitlist_entries (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id          BIGINT                   NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    room_type        VARCHAR(255)             NOT NULL,
+    check_in_date    DATE                     NOT NULL,
+    check_out_date   DATE                     NOT NULL,
+    status           VARCHAR(16)              NOT NULL,
+    created_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+    offered_room_id  BIGINT REFERENCES room (id) ON DELETE SET NULL,
+    hold_id          VARCHAR(64),
+    offer_expires_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_waitlist_entries_user_id ON waitlist_entries (user_id);
+CREATE INDEX idx_waitlist_entries_pending ON waitlist_entries (status, offer_expires_at)
+    WHERE status IN ('WAITING', 'OFFERED');
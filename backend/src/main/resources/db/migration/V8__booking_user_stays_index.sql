@@ -0,0 +1,10 @@
+-- ===============================
+-- Index for the "my stays" profile queries
+-- ===============================
+
+-- Upcoming / past counts and pages of one user split on check_out_date; past stays are paged
+-- on (check_out_date, id), so the whole keyset is in the index.
+CREATE INDEX IF NOT EXISTS idx_bookings_user_check_out ON bookings (user_id, check_out_date, id);
+
+-- user_id leads the new index, which serves findByUserId and User.bookings as well
+DROP INDEX IF EXISTS idx_bookings_user_id;
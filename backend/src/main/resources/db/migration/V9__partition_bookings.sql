@@ -0,0 +1,131 @@
+-- ===============================
+-- Monthly range partitions of bookings by check-in date, plus the archive of old stays
+-- ===============================
+
+-- Partitioned tables cannot hold identity columns before Postgres 17, so ids come from a plain sequence,
+-- and the primary key has to include the partition key.
+ALTER TABLE bookings RENAME TO bookings_unpartitioned;
+DROP INDEX IF EXISTS idx_bookings_room_dates;
+DROP INDEX IF EXISTS idx_bookings_dates;
+DROP INDEX IF EXISTS idx_bookings_confirmation_code;
+DROP INDEX IF EXISTS idx_bookings_user_check_out;
+
+CREATE SEQUENCE bookings_partitioned_id_seq AS BIGINT;
+
+CREATE TABLE bookings (
+    id                        BIGINT  NOT NULL DEFAULT nextval('bookings_partitioned_id_seq'),
+    booking_confirmation_code VARCHAR(255),
+    check_in_date             DATE    NOT NULL,
+    check_out_date            DATE,
+    num_of_adult              INTEGER CHECK (num_of_adult >= 1),
+    num_of_children           INTEGER NOT NULL CHECK (num_of_children >= 0),
+    total_num_of_guest        INTEGER NOT NULL,
+    room_id                   BIGINT REFERENCES room (id),
+    user_id                   BIGINT REFERENCES users (id),
+    PRIMARY KEY (id, check_in_date)
+) PARTITION BY RANGE (check_in_date);
+
+-- Check-ins beyond the months created so far; rows move to their month once it is created
+CREATE TABLE bookings_default PARTITION OF bookings DEFAULT;
+
+-- Same indexes as V3 / V8, created on every partition
+CREATE INDEX idx_bookings_room_dates ON bookings (room_id, check_in_date, check_out_date);
+CREATE INDEX idx_bookings_dates ON bookings (check_in_date, check_out_date);
+CREATE INDEX idx_bookings_confirmation_code ON bookings (booking_confirmation_code);
+CREATE INDEX idx_bookings_user_check_out ON bookings (user_id, check_out_date, id);
+
+-- Stays moved out of bookings by bookings_archive_month; no foreign keys, so history outlives rooms and users
+CREATE TABLE bookings_archive (
+    id                        BIGINT PRIMARY KEY,
+    booking_confirmation_code VARCHAR(255),
+    check_in_date             DATE                     NOT NULL,
+    check_out_date            DATE,
+    num_of_adult              INTEGER,
+    num_of_children           INTEGER                  NOT NULL,
+    total_num_of_guest        INTEGER                  NOT NULL,
+    room_id                   BIGINT,
+    user_id                   BIGINT,
+    archived_at               TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_bookings_archive_user ON bookings_archive (user_id, check_in_date);
+CREATE INDEX idx_bookings_archive_room ON bookings_archive (room_id, check_in_date);
+CREATE INDEX idx_bookings_archive_confirmation_code ON bookings_archive (booking_confirmation_code);
+
+-- Creates the partition of the month containing month_start, moving that month's rows out of the default partition.
+-- Returns false when it already exists. Serialized with an advisory lock, since every node runs the maintenance job.
+CREATE FUNCTION bookings_ensure_month_partition(month_start DATE) RETURNS BOOLEAN
+LANGUAGE plpgsql AS $$
+DECLARE
+    first_day      DATE := date_trunc('month', month_start)::date;
+    next_first_day DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::date;
+    partition_name TEXT := 'bookings_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('bookings_partitions'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE bookings INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM bookings_default WHERE check_in_date >= %L AND check_in_date < %L RETURNING *) '
+                       || 'INSERT INTO %I SELECT * FROM moved', first_day, next_first_day, partition_name);
+    EXECUTE format('ALTER TABLE bookings ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, first_day, next_first_day);
+    RETURN TRUE;
+END;
+$$;
+
+-- Moves the stays of one month's partition that ended before cutoff into bookings_archive,
+-- and drops the partition once nothing is left in it. Returns the number of stays archived.
+CREATE FUNCTION bookings_archive_month(month_start DATE, cutoff DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    partition_name TEXT := 'bookings_' || to_char(month_start, 'YYYY_MM');
+    archived       INTEGER;
+    is_empty       BOOLEAN;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('bookings_partitions'));
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN 0;
+    END IF;
+    EXECUTE format('WITH moved AS (DELETE FROM %I WHERE COALESCE(check_out_date, check_in_date) < %L RETURNING *) '
+                       || 'INSERT INTO bookings_archive (id, booking_confirmation_code, check_in_date, check_out_date, '
+                       || 'num_of_adult, num_of_children, total_num_of_guest, room_id, user_id) '
+                       || 'SELECT id, booking_confirmation_code, check_in_date, check_out_date, '
+                       || 'num_of_adult, num_of_children, total_num_of_guest, room_id, user_id FROM moved',
+                   partition_name, cutoff);
+    GET DIAGNOSTICS archived = ROW_COUNT;
+    EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I)', partition_name) INTO is_empty;
+    IF is_empty THEN
+        EXECUTE format('DROP TABLE %I', partition_name);
+    END IF;
+    RETURN archived;
+END;
+$$;
+
+-- One partition per month from the oldest existing check-in through a year ahead; the app keeps rolling this forward
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', LEAST(
+            COALESCE((SELECT MIN(check_in_date) FROM bookings_unpartitioned), current_date), current_date))::date;
+BEGIN
+    WHILE month_start <= date_trunc('month', current_date + INTERVAL '12 months')::date LOOP
+        PERFORM bookings_ensure_month_partition(month_start);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO bookings (id, booking_confirmation_code, check_in_date, check_out_date, num_of_adult,
+                      num_of_children, total_num_of_guest, room_id, user_id)
+SELECT id, booking_confirmation_code, check_in_date, check_out_date, num_of_adult,
+       num_of_children, total_num_of_guest, room_id, user_id
+FROM bookings_unpartitioned;
+
+-- Continue after the old identity sequence, so ids of deleted bookings are not handed out again
+SELECT setval('bookings_partitioned_id_seq', GREATEST(
+        COALESCE((SELECT MAX(id) FROM bookings), 0),
+        COALESCE(pg_sequence_last_value(pg_get_serial_sequence('bookings_unpartitioned', 'id')::regclass), 0)) + 1, false);
+
+DROP TABLE bookings_unpartitioned;
+ALTER SEQUENCE bookings_partitioned_id_seq RENAME TO bookings_id_seq;
+ALTER SEQUENCE bookings_id_seq OWNED BY bookings.id;
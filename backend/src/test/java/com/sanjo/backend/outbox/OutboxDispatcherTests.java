@@ -0,0 +1,164 @@
+package com.sanjo.backend.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Outbox delivery to a stub handler against a local Postgres, see CacheInvalidationBusTests. The application's own
+ * dispatcher does not know the stub handler, so it leaves these rows alone.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "TEST_DB_URL", matches = "jdbc:postgresql:.*")
+class OutboxDispatcherTests {
+
+    private static final String EVENT_TYPE = "TEST_EVENT";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final StubHandler stub = new StubHandler();
+
+    @BeforeEach
+    @AfterEach
+    void clearStubEvents() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE handler = ?", stub.name());
+    }
+
+    @Test
+    void eventsAreStoredOnlyWithACommittedChange() {
+        Outbox outbox = new Outbox(jdbcTemplate, objectMapper, List.of(stub), newDispatcher());
+
+        assertThrows(IllegalStateException.class, () -> outbox.enqueue(EVENT_TYPE, 1L, Map.of()));
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.enqueue(EVENT_TYPE, 1L, Map.of());
+            status.setRollbackOnly();
+        });
+        assertEquals(0, pending());
+
+        transactionTemplate.executeWithoutResult(status -> outbox.enqueue(EVENT_TYPE, 1L, Map.of()));
+        assertEquals(1, pending());
+    }
+
+    @Test
+    void failedEventsAreRetriedInOrderPerAggregateAndParkedWhenOutOfAttempts() {
+        OutboxDispatcher dispatcher = newDispatcher();
+        Outbox outbox = new Outbox(jdbcTemplate, objectMapper, List.of(stub), dispatcher);
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.enqueue(EVENT_TYPE, 1L, Map.of("step", "first"));
+            outbox.enqueue(EVENT_TYPE, 1L, Map.of("step", "second"));
+            outbox.enqueue(EVENT_TYPE, 2L, Map.of("step", "other"));
+            outbox.enqueue(EVENT_TYPE, 3L, Map.of("step", "poison"));
+        });
+
+        //Every event fails its first attempt; the poison one always fails
+        for (int round = 0; round < 10 && pending() > 0; round++) {
+            dispatcher.dispatchBatch();
+        }
+
+        assertEquals(List.of("first", "other", "second"), stub.delivered.stream().sorted().toList());
+        assertTrue(stub.delivered.indexOf("first") < stub.delivered.indexOf("second"));
+        assertEquals(0, pending());
+        List<Map<String, Object>> dead = jdbcTemplate.queryForList(
+                "SELECT attempts, last_error FROM outbox_events WHERE handler = ? AND status = 'DEAD'", stub.name());
+        assertEquals(1, dead.size());
+        assertEquals(3, dead.get(0).get("attempts"));
+        assertTrue(String.valueOf(dead.get(0).get("last_error")).contains("poison"));
+    }
+
+    @Test
+    void anEventInFlightIsNotClaimedBySecondDispatcher() throws Exception {
+        OutboxDispatcher first = newDispatcher();
+        OutboxDispatcher second = newDispatcher();
+        Outbox outbox = new Outbox(jdbcTemplate, objectMapper, List.of(stub), first);
+        transactionTemplate.executeWithoutResult(status -> outbox.enqueue(EVENT_TYPE, 1L, Map.of("step", "slow")));
+        stub.failures.add("slow");
+        stub.blocking = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> claimed = executor.submit(first::dispatchBatch);
+            assertTrue(stub.entered.await(10, TimeUnit.SECONDS));
+            assertEquals(0, second.dispatchBatch());
+            stub.blocking.countDown();
+            assertEquals(1, claimed.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of("slow"), stub.delivered);
+    }
+
+    private OutboxDispatcher newDispatcher() {
+        OutboxDispatcher dispatcher = new OutboxDispatcher(jdbcTemplate, objectMapper, List.of(stub), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 60);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "backoffInitialMillis", 1L);
+        ReflectionTestUtils.setField(dispatcher, "backoffMaxMillis", 1L);
+        return dispatcher;
+    }
+
+    private int pending() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE handler = ? AND status = 'PENDING'", Integer.class, stub.name());
+    }
+
+    private static class StubHandler implements OutboxEventHandler {
+
+        private final List<String> delivered = new CopyOnWriteArrayList<>();
+        //Steps whose first attempt already failed
+        private final Set<String> failures = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch blocking;
+
+        @Override
+        public String name() {
+            return "outbox-test-stub";
+        }
+
+        @Override
+        public boolean handles(String eventType) {
+            return EVENT_TYPE.equals(eventType);
+        }
+
+        @Override
+        public void handle(OutboxEvent event) throws Exception {
+            String step = event.payload().path("step").asText();
+            if (blocking != null) {
+                entered.countDown();
+                blocking.await(10, TimeUnit.SECONDS);
+            }
+            if (step.equals("poison") || failures.add(step)) {
+                throw new IllegalStateException("stub failure for " + step);
+            }
+            delivered.add(step);
+        }
+    }
+}
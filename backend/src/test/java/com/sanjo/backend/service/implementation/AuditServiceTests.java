@@ -0,0 +1,172 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.dto.AuditEventDTO;
+import com.sanjo.backend.dto.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditServiceTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void theRingRefusesOffersWhenFullAndKeepsOrderAcrossTheWrap() {
+        AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, ring.drain(drained::add, 3));
+        //Freed slots are reused; sequences 4 to 6 land at the start of the array
+        for (int i = 4; i < 7; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(7));
+        assertEquals(4, ring.drain(drained::add, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), drained);
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drain(drained::add, 10));
+    }
+
+    @Test
+    void concurrentProducersLoseNothingTheRingAccepted() throws Exception {
+        AuditRingBuffer<long[]> ring = new AuditRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20000;
+        AtomicInteger refused = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (!ring.offer(new long[]{producer, i})) {
+                        refused.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long[] lastSeen = {-1, -1, -1, -1};
+        AtomicInteger received = new AtomicInteger();
+        while (threads.stream().anyMatch(Thread::isAlive) || ring.size() > 0) {
+            ring.drain(element -> {
+                //Each producer's elements come out in the order it offered them
+                assertTrue(element[1] > lastSeen[(int) element[0]]);
+                lastSeen[(int) element[0]] = element[1];
+                received.incrementAndGet();
+            }, 16);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(producers * perProducer, received.get() + refused.get());
+    }
+
+    @Test
+    void fullSegmentsRotateAndOnlyTheNewestAreKept() throws IOException {
+        //Two 20-byte records fit in a 64-byte segment next to the terminating zero length
+        try (AuditSegmentLog log = new AuditSegmentLog(directory, 64, 3)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(record(i));
+            }
+
+            List<Path> segments = log.segments();
+            assertEquals(List.of("audit-00000003.log", "audit-00000004.log", "audit-00000005.log"),
+                    segments.stream().map(path -> path.getFileName().toString()).toList());
+            List<byte[]> records = new ArrayList<>();
+            for (Path segment : segments) {
+                records.addAll(AuditSegmentLog.readRecords(segment));
+            }
+            assertEquals(6, records.size());
+            for (int i = 0; i < 6; i++) {
+                assertArrayEquals(record(i + 4), records.get(i));
+            }
+            assertThrows(IOException.class, () -> log.append(new byte[60]));
+        }
+    }
+
+    @Test
+    void reopeningResumesAfterTheLastRecordOfAPartlyWrittenSegment() throws IOException {
+        try (AuditSegmentLog log = new AuditSegmentLog(directory, 64, 3)) {
+            log.append(record(0));
+        }
+        try (AuditSegmentLog log = new AuditSegmentLog(directory, 64, 3)) {
+            log.append(record(1));
+            //The resumed segment is full now, so this one starts segment 2
+            log.append(record(2));
+
+            List<Path> segments = log.segments();
+            assertEquals(2, segments.size());
+            List<byte[]> first = AuditSegmentLog.readRecords(segments.get(0));
+            assertEquals(2, first.size());
+            assertArrayEquals(record(0), first.get(0));
+            assertArrayEquals(record(1), first.get(1));
+            assertArrayEquals(record(2), AuditSegmentLog.readRecords(segments.get(1)).get(0));
+        }
+    }
+
+    @Test
+    void queriesReturnTheNewestMatchesOldestFirstAcrossSegments() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        AuditSegmentLog log = new AuditSegmentLog(directory, 512, 100);
+        AuditService auditService = new AuditService(objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(auditService, "segmentLog", log);
+        try {
+            for (int i = 0; i < 20; i++) {
+                AuditEventDTO event = new AuditEventDTO();
+                event.setTimestamp(Instant.EPOCH.plusSeconds(i));
+                event.setAction(i % 2 == 0 ? "SAVE_BOOKING" : "CANCEL_BOOKING");
+                event.setEntityType("BOOKING");
+                event.setEntityId(String.valueOf(i));
+                log.append(objectMapper.writeValueAsBytes(event));
+            }
+            assertTrue(log.segments().size() > 3);
+
+            Response latest = auditService.getAuditEvents(null, null, null, 5);
+            assertEquals(200, latest.getStatusCode());
+            assertEquals(List.of("15", "16", "17", "18", "19"), entityIds(latest));
+
+            Response cancellations = auditService.getAuditEvents("booking", null, "CANCEL_BOOKING", 4);
+            assertEquals(List.of("13", "15", "17", "19"), entityIds(cancellations));
+
+            Response all = auditService.getAuditEvents(null, null, null, 1000);
+            assertEquals(20, all.getAuditEventList().size());
+            assertEquals("0", all.getAuditEventList().get(0).getEntityId());
+        } finally {
+            log.close();
+        }
+    }
+
+    private static List<String> entityIds(Response response) {
+        return response.getAuditEventList().stream().map(AuditEventDTO::getEntityId).toList();
+    }
+
+    private static byte[] record(int i) {
+        return String.format("record-%013d", i).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,140 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.service.implementation.AvailabilityStreamService.ChangeType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class AvailabilityStreamServiceTests {
+
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 5, 10);
+
+    //Not started, so publishing only reaches this node's subscribers
+    private final CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(mock(JdbcTemplate.class));
+
+    @Test
+    void aSubscriberThatFallsBehindIsEvictedWithoutBlockingThePublisher() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AvailabilityStreamService service = new AvailabilityStreamService(new ObjectMapper().findAndRegisterModules(), meterRegistry, cacheInvalidationBus);
+        ReflectionTestUtils.setField(service, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4);
+        ReflectionTestUtils.setField(service, "timeoutMillis", 60000L);
+        ReflectionTestUtils.setField(service, "heartbeatMillis", 60000L);
+        ReflectionTestUtils.setField(service, "senderThreads", 1);
+        ReflectionTestUtils.setField(service, "sendTimeoutMillis", 60000L);
+        ReflectionTestUtils.setField(service, "maxStuckSends", 4);
+        service.init();
+
+        //The only sender is stuck, as it would be writing to a client that stopped reading
+        CountDownLatch stuck = new CountDownLatch(1);
+        ((ExecutorService) ReflectionTestUtils.getField(service, "senders")).execute(() -> {
+            try {
+                stuck.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            service.subscribe("single", CHECK_IN, CHECK_IN.plusDays(5));
+            service.subscribe("Deluxe", null, null);
+
+            //The "subscribed" event plus three changes fill the queue; the fourth overflows it
+            long start = System.nanoTime();
+            for (int change = 0; change < 4; change++) {
+                service.publish(ChangeType.BOOKED, 3L, "Single", CHECK_IN.plusDays(change), CHECK_IN.plusDays(change + 1));
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "publishing waited on a client");
+
+            assertEquals(1.0, meterRegistry.get("availability.stream.events").tag("outcome", "evicted").counter().count());
+            //The Deluxe stream matched none of the changes and stays open
+            assertEquals(1.0, meterRegistry.get("availability.stream.subscribers").gauge().value());
+        } finally {
+            stuck.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void aWriteBlockedPastTheDeadlineIsEvictedAndOtherSubscribersKeepReceiving() throws Exception {
+        CountDownLatch clientReads = new CountDownLatch(1);
+        AtomicInteger emitters = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AvailabilityStreamService service = new AvailabilityStreamService(new ObjectMapper().findAndRegisterModules(), meterRegistry, cacheInvalidationBus) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                //The first client's socket is full: its write blocks until it reads again
+                boolean blocked = emitters.getAndIncrement() == 0;
+                return new SseEmitter(timeoutMillis) {
+                    @Override
+                    public void send(Set<DataWithMediaType> items) throws IOException {
+                        if (!blocked) {
+                            delivered.incrementAndGet();
+                            return;
+                        }
+                        try {
+                            clientReads.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                };
+            }
+        };
+        ReflectionTestUtils.setField(service, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4);
+        ReflectionTestUtils.setField(service, "timeoutMillis", 60000L);
+        ReflectionTestUtils.setField(service, "heartbeatMillis", 60000L);
+        ReflectionTestUtils.setField(service, "senderThreads", 1);
+        ReflectionTestUtils.setField(service, "sendTimeoutMillis", 200L);
+        ReflectionTestUtils.setField(service, "maxStuckSends", 4);
+        service.init();
+        try {
+            service.subscribe(null, null, null);
+            service.subscribe(null, null, null);
+            //Arrives over the bus, as it does for bookings made through any node
+            cacheInvalidationBus.publish(List.of(service.change(ChangeType.BOOKED, 3L, "Single", CHECK_IN, CHECK_IN.plusDays(1))));
+
+            //"subscribed" and the change reach the healthy client although the blocked write holds the only sender
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (delivered.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, delivered.get());
+            assertEquals(1.0, meterRegistry.get("availability.stream.events").tag("outcome", "evicted").counter().count());
+            assertEquals(1.0, meterRegistry.get("availability.stream.subscribers").gauge().value());
+        } finally {
+            clientReads.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void subscribersMatchOnRoomTypeAndOverlappingDates() {
+        AvailabilitySubscriber subscriber = new AvailabilitySubscriber(null, "Single", CHECK_IN, CHECK_IN.plusDays(5), 1);
+
+        assertTrue(subscriber.matches("SINGLE", CHECK_IN.minusDays(2), CHECK_IN));
+        assertTrue(subscriber.matches("Single", CHECK_IN.plusDays(5), CHECK_IN.plusDays(7)));
+        assertFalse(subscriber.matches("Single", CHECK_IN.plusDays(6), CHECK_IN.plusDays(7)));
+        assertFalse(subscriber.matches("Deluxe", CHECK_IN, CHECK_IN.plusDays(1)));
+        assertTrue(new AvailabilitySubscriber(null, null, null, null, 1).matches("Deluxe", CHECK_IN, CHECK_IN.plusDays(1)));
+    }
+}
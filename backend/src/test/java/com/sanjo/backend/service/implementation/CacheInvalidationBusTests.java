@@ -0,0 +1,110 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.Change;
+import com.sanjo.backend.service.implementation.CacheInvalidationBus.EntityType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs against a local Postgres, e.g.
+ * TEST_DB_URL=jdbc:postgresql://localhost:5432/luxestay TEST_DB_USER=postgres TEST_DB_PASSWORD=postgres mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_DB_URL", matches = "jdbc:postgresql:.*")
+class CacheInvalidationBusTests {
+
+    private static final String URL = System.getenv("TEST_DB_URL");
+    private static final String USER = Optional.ofNullable(System.getenv("TEST_DB_USER")).orElse("postgres");
+    private static final String PASSWORD = Optional.ofNullable(System.getenv("TEST_DB_PASSWORD")).orElse("postgres");
+
+    @Test
+    void changePublishedOnOneNodeReachesTheOther() throws Exception {
+        CacheInvalidationBus publisherNode = newNode();
+        CacheInvalidationBus listenerNode = newNode();
+        BlockingQueue<String> invalidated = new LinkedBlockingQueue<>();
+        listenerNode.subscribe(EntityType.ROOM, id -> invalidated.add(String.valueOf(id)));
+
+        try {
+            publisherNode.init();
+            listenerNode.init();
+
+            //A full flush is dispatched once the LISTEN connection is up
+            assertEquals("null", invalidated.poll(10, TimeUnit.SECONDS));
+
+            publisherNode.publish(EntityType.ROOM, 42L);
+            assertEquals("42", invalidated.poll(10, TimeUnit.SECONDS));
+        } finally {
+            publisherNode.shutdown();
+            listenerNode.shutdown();
+        }
+    }
+
+    @Test
+    void changesPublishedInATransactionGoOutTogetherOnCommitOnly() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USER, PASSWORD);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        CacheInvalidationBus publisherNode = newNode(dataSource);
+        CacheInvalidationBus listenerNode = newNode(new DriverManagerDataSource(URL, USER, PASSWORD));
+        BlockingQueue<String> invalidated = new LinkedBlockingQueue<>();
+        BlockingQueue<String> publishedLocally = new LinkedBlockingQueue<>();
+        listenerNode.subscribe(EntityType.ROOM, id -> invalidated.add("ROOM:" + id));
+        listenerNode.subscribe(EntityType.USER, id -> invalidated.add("USER:" + id));
+        publisherNode.subscribe(EntityType.ROOM, id -> publishedLocally.add("ROOM:" + id));
+
+        try {
+            publisherNode.init();
+            listenerNode.init();
+            assertEquals("ROOM:null", invalidated.poll(10, TimeUnit.SECONDS));
+            assertEquals("USER:null", invalidated.poll(10, TimeUnit.SECONDS));
+            assertEquals("ROOM:null", publishedLocally.poll(10, TimeUnit.SECONDS));
+
+            List<Change> changes = List.of(new Change(EntityType.ROOM, 7L), new Change(EntityType.USER, 9L));
+            transactionTemplate.executeWithoutResult(status -> {
+                publisherNode.publish(changes);
+                status.setRollbackOnly();
+            });
+            transactionTemplate.executeWithoutResult(status -> {
+                publisherNode.publish(changes);
+                //Nothing is dispatched before the commit, locally or remotely
+                assertNull(publishedLocally.poll());
+            });
+
+            assertEquals("ROOM:7", publishedLocally.poll());
+            assertEquals("ROOM:7", invalidated.poll(10, TimeUnit.SECONDS));
+            assertEquals("USER:9", invalidated.poll(10, TimeUnit.SECONDS));
+            //The rolled back publish never arrived
+            assertNull(invalidated.poll(2, TimeUnit.SECONDS));
+        } finally {
+            publisherNode.shutdown();
+            listenerNode.shutdown();
+        }
+    }
+
+    private CacheInvalidationBus newNode() {
+        return newNode(new DriverManagerDataSource(URL, USER, PASSWORD));
+    }
+
+    private CacheInvalidationBus newNode(DataSource dataSource) {
+        CacheInvalidationBus bus = new CacheInvalidationBus(new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "channel", "luxestay_cache_invalidation_test");
+        ReflectionTestUtils.setField(bus, "dbUrl", URL);
+        ReflectionTestUtils.setField(bus, "dbUser", USER);
+        ReflectionTestUtils.setField(bus, "dbPassword", PASSWORD);
+        return bus;
+    }
+}
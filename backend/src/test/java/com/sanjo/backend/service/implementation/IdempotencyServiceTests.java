@@ -0,0 +1,99 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.dto.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTests {
+
+    private final IdempotencyService idempotencyService = new IdempotencyService(new SimpleMeterRegistry(),
+            claimingDatabase(), new ObjectMapper(), 100, 60, 5000, 60000);
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstAndRepeatsAreReplayed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Response> slowBooking = () -> {
+            executions.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response(200, "ABC123");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Response>> duplicates = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                duplicates.add(executor.submit(() -> idempotencyService.execute("key-1", "guest@x.com", "room-1", slowBooking)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            Response first = duplicates.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Response> duplicate : duplicates) {
+                assertSame(first, duplicate.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Response replayed = idempotencyService.execute("key-1", "guest@x.com", "room-1", slowBooking);
+        assertEquals("ABC123", replayed.getBookingConfirmationCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keysAreScopedToTheCallerAndBoundToTheRequest() {
+        Supplier<Response> booking = () -> response(200, "CODE" + executions.incrementAndGet());
+
+        assertEquals("CODE1", idempotencyService.execute("key-1", "guest@x.com", "room-1", booking).getBookingConfirmationCode());
+        assertEquals("CODE2", idempotencyService.execute("key-1", "other@x.com", "room-1", booking).getBookingConfirmationCode());
+        assertEquals(422, idempotencyService.execute("key-1", "guest@x.com", "room-2", booking).getStatusCode());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void serverErrorsAreNotRemembered() {
+        Supplier<Response> failingBooking = () -> response(executions.getAndIncrement() == 0 ? 500 : 200, null);
+
+        assertEquals(500, idempotencyService.execute("key-1", "guest@x.com", "room-1", failingBooking).getStatusCode());
+        assertEquals(200, idempotencyService.execute("key-1", "guest@x.com", "room-1", failingBooking).getStatusCode());
+        assertEquals(200, idempotencyService.execute("key-1", "guest@x.com", "room-1", failingBooking).getStatusCode());
+        assertEquals(2, executions.get());
+    }
+
+    //Every key is claimed on the first try, as on a single node; IdempotencyStoreTests covers the shared table
+    private static JdbcTemplate claimingDatabase() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+        return jdbcTemplate;
+    }
+
+    private static Response response(int statusCode, String confirmationCode) {
+        Response response = new Response();
+        response.setStatusCode(statusCode);
+        response.setBookingConfirmationCode(confirmationCode);
+        return response;
+    }
+}
@@ -0,0 +1,113 @@
+package com.sanjo.backend.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanjo.backend.dto.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two IdempotencyService instances standing in for two nodes that share the idempotency_keys table, against a local
+ * Postgres, see CacheInvalidationBusTests.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "TEST_DB_URL", matches = "jdbc:postgresql:.*")
+class IdempotencyStoreTests {
+
+    private static final String CALLER = "idempotency-store-test@x.com";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    @AfterEach
+    void clearKeys() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE caller = ?", CALLER);
+    }
+
+    @Test
+    void aRetryOnAnotherNodeWaitsForTheFirstAndIsAnsweredFromIt() throws Exception {
+        IdempotencyService firstNode = newNode(5000);
+        IdempotencyService secondNode = newNode(5000);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Response> slowBooking = () -> {
+            executions.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response(200, "ABC123");
+        };
+
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(
+                () -> firstNode.execute("key-1", CALLER, "room-1", slowBooking));
+        Thread.sleep(200);
+        CompletableFuture<Response> retry = CompletableFuture.supplyAsync(
+                () -> secondNode.execute("key-1", CALLER, "room-1", slowBooking));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals("ABC123", first.get(5, TimeUnit.SECONDS).getBookingConfirmationCode());
+        assertEquals("ABC123", retry.get(5, TimeUnit.SECONDS).getBookingConfirmationCode());
+        assertEquals("ABC123", newNode(5000).execute("key-1", CALLER, "room-1", slowBooking).getBookingConfirmationCode());
+        assertEquals(422, secondNode.execute("key-1", CALLER, "room-2", slowBooking).getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void aRetryOnAnotherNodeRunsAgainAfterAServerErrorAndGets409WhileTheFirstIsStillRunning() throws Exception {
+        IdempotencyService firstNode = newNode(300);
+        IdempotencyService secondNode = newNode(300);
+
+        assertEquals(500, firstNode.execute("key-1", CALLER, "room-1", () -> response(500, null)).getStatusCode());
+        assertEquals(200, secondNode.execute("key-1", CALLER, "room-1", () -> response(200, "DEF456")).getStatusCode());
+
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Response> running = CompletableFuture.supplyAsync(() -> firstNode.execute("key-2", CALLER, "room-1", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response(200, "GHI789");
+        }));
+        Thread.sleep(200);
+        try {
+            assertEquals(409, secondNode.execute("key-2", CALLER, "room-1", () -> response(200, "TWICE")).getStatusCode());
+        } finally {
+            release.countDown();
+        }
+        assertEquals("GHI789", running.get(5, TimeUnit.SECONDS).getBookingConfirmationCode());
+        //The 409 was not remembered, so the next retry is answered with the stored response
+        assertEquals("GHI789", secondNode.execute("key-2", CALLER, "room-1", () -> response(200, "TWICE")).getBookingConfirmationCode());
+    }
+
+    private IdempotencyService newNode(long waitMillis) {
+        return new IdempotencyService(new SimpleMeterRegistry(), jdbcTemplate, objectMapper, 100, 60, waitMillis, 60000);
+    }
+
+    private static Response response(int statusCode, String confirmationCode) {
+        Response response = new Response();
+        response.setStatusCode(statusCode);
+        response.setBookingConfirmationCode(confirmationCode);
+        return response;
+    }
+}
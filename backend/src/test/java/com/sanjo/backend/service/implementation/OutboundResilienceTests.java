@@ -0,0 +1,89 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.exception.UpstreamUnavailableException;
+import com.sanjo.backend.resilience.CircuitBreaker;
+import com.sanjo.backend.resilience.LatencyStubServer;
+import com.sanjo.backend.resilience.OutboundGuard;
+import com.sanjo.backend.resilience.OutboundGuards;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Outbound clients against a local stub that answers slower than their deadline.
+ */
+class OutboundResilienceTests {
+
+    private static final String GEMINI_REPLY =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"Check-in is at 2 PM.\"}]}}]}";
+
+    @Test
+    void slowGeminiFallsBackAndTripsTheBreakerUntilAProbeSucceeds() throws Exception {
+        try (LatencyStubServer stub = new LatencyStubServer()) {
+            GeminiService geminiService = new GeminiService(guards("gemini"));
+            ReflectionTestUtils.setField(geminiService, "apiKey", "test");
+            ReflectionTestUtils.setField(geminiService, "baseUrl", stub.getBaseUrl());
+            stub.respond(200, GEMINI_REPLY, 2000);
+
+            //Each call gives up at the 200 ms deadline and gets the canned answer
+            for (int call = 0; call < 4; call++) {
+                long start = System.nanoTime();
+                String answer = geminiService.getChatResponse("When is check-in?", "");
+                assertTrue(answer.startsWith("I'm sorry"));
+                assertTrue(System.nanoTime() - start < 1_500_000_000L, "call outlived its deadline");
+            }
+            assertEquals(CircuitBreaker.State.OPEN, guardState(geminiService));
+
+            //Open: the fallback comes back without reaching the upstream
+            int reached = stub.getRequests();
+            assertEquals("{\"recommendations\": []}", geminiService.getRoomRecommendations("quiet room", "[]"));
+            assertEquals(reached, stub.getRequests());
+
+            //Once open-ms has passed, a successful probe closes the breaker again
+            stub.respond(200, GEMINI_REPLY, 0);
+            Thread.sleep(600);
+            assertEquals("Check-in is at 2 PM.", geminiService.getChatResponse("When is check-in?", ""));
+            assertEquals(CircuitBreaker.State.CLOSED, guardState(geminiService));
+        }
+    }
+
+    @Test
+    void slowStripeFailsFastOnceTheBreakerOpens() throws Exception {
+        try (LatencyStubServer stub = new LatencyStubServer()) {
+            PaymentService paymentService = new PaymentService(guards("stripe"));
+            ReflectionTestUtils.setField(paymentService, "stripeApiKey", "sk_test_stub");
+            ReflectionTestUtils.setField(paymentService, "stripeBaseUrl", stub.getBaseUrl());
+            stub.respond(200, "{}", 2000);
+
+            for (int call = 0; call < 4; call++) {
+                assertThrows(StripeException.class, () -> paymentService.createPaymentIntent(BigDecimal.TEN));
+            }
+            int reached = stub.getRequests();
+            assertThrows(UpstreamUnavailableException.class, () -> paymentService.createPaymentIntent(BigDecimal.TEN));
+            assertEquals(reached, stub.getRequests());
+        }
+    }
+
+    private static OutboundGuards guards(String upstream) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("outbound." + upstream + ".connect-timeout-ms", "500")
+                .withProperty("outbound." + upstream + ".timeout-ms", "200")
+                .withProperty("outbound." + upstream + ".window-size", "4")
+                .withProperty("outbound." + upstream + ".minimum-calls", "4")
+                .withProperty("outbound." + upstream + ".open-ms", "500")
+                .withProperty("outbound." + upstream + ".half-open-probes", "1");
+        return new OutboundGuards(environment, new SimpleMeterRegistry());
+    }
+
+    private static CircuitBreaker.State guardState(GeminiService geminiService) {
+        return ((OutboundGuard) ReflectionTestUtils.getField(geminiService, "guard")).getState();
+    }
+}
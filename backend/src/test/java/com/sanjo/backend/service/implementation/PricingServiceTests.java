@@ -0,0 +1,223 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.entity.PricingRule;
+import com.sanjo.backend.entity.PricingRule.RuleType;
+import com.sanjo.backend.repository.PricingRuleRepository;
+import com.sanjo.backend.service.interfac.IAuditService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks grid-based quotes against a naive night-by-night sum of the base price and every matching rule.
+ * Rule percentages are chosen so their products are exact in millionths, which makes both sums agree to the paisa.
+ */
+class PricingServiceTests {
+
+    private static final int HORIZON_DAYS = 60;
+
+    private record Room(long id, String type, BigDecimal price) {
+    }
+
+    private record Stay(String roomType, LocalDate checkIn, LocalDate checkOut) {
+    }
+
+    private final LocalDate today = LocalDate.now();
+    private final List<Room> rooms = List.of(
+            new Room(1, "Single", new BigDecimal("100.00")),
+            new Room(2, "Single", new BigDecimal("120.50")),
+            new Room(3, "Deluxe", new BigDecimal("333.33")));
+    private final List<PricingRule> rules = new ArrayList<>();
+    private final List<Stay> bookings = new ArrayList<>();
+
+    private CacheInvalidationBus cacheInvalidationBus;
+    private PricingService pricingService;
+
+    @BeforeEach
+    void setUp() {
+        rules.add(rule(RuleType.WEEKEND, null, null, null, null, "20"));
+        //Two overlapping seasons, one of them for every room type
+        rules.add(rule(RuleType.SEASON, "Single", today.plusDays(10), today.plusDays(40), null, "10"));
+        rules.add(rule(RuleType.SEASON, null, today.plusDays(20), today.plusDays(25), null, "-25"));
+        rules.add(rule(RuleType.SEASON, "Deluxe", today.plusDays(50), today.plusDays(80), null, "50"));
+        rules.add(rule(RuleType.OCCUPANCY, "Single", null, null, 50, "15"));
+        bookings.add(new Stay("Single", today.plusDays(5), today.plusDays(8)));
+        //Runs past the end of the horizon, where occupancy is not priced
+        bookings.add(new Stay("Single", today.plusDays(56), today.plusDays(62)));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Room room : rooms) {
+                ResultSet row = mock(ResultSet.class);
+                when(row.getLong("id")).thenReturn(room.id());
+                when(row.getString("room_type")).thenReturn(room.type());
+                when(row.getBigDecimal("room_price")).thenReturn(room.price());
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        //Bookings of the type that overlap [from, to)
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            String roomType = invocation.getArgument(2);
+            LocalDate to = ((Date) invocation.getArgument(4)).toLocalDate();
+            LocalDate from = ((Date) invocation.getArgument(5)).toLocalDate();
+            for (Stay stay : bookings) {
+                if (stay.roomType().equals(roomType) && stay.checkIn().isBefore(to) && stay.checkOut().isAfter(from)) {
+                    ResultSet row = mock(ResultSet.class);
+                    when(row.getDate(1)).thenReturn(Date.valueOf(stay.checkIn()));
+                    when(row.getDate(2)).thenReturn(Date.valueOf(stay.checkOut()));
+                    handler.processRow(row);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        PricingRuleRepository pricingRuleRepository = mock(PricingRuleRepository.class);
+        when(pricingRuleRepository.findAll()).thenAnswer(invocation -> List.copyOf(rules));
+
+        cacheInvalidationBus = new CacheInvalidationBus(jdbcTemplate);
+        pricingService = new PricingService(jdbcTemplate, pricingRuleRepository, cacheInvalidationBus,
+                mock(IAuditService.class), new BookingPartitionService(jdbcTemplate, cacheInvalidationBus));
+        ReflectionTestUtils.setField(pricingService, "horizonDays", HORIZON_DAYS);
+        pricingService.init();
+    }
+
+    @Test
+    void quotesMatchTheNaiveNightlySum() {
+        //Every stay of up to two weeks that starts within the horizon, for every room
+        for (Room room : rooms) {
+            for (int start = 0; start < HORIZON_DAYS; start += 3) {
+                for (int nights = 1; nights <= 14; nights++) {
+                    assertQuote(room, today.plusDays(start), today.plusDays(start + nights));
+                }
+            }
+        }
+    }
+
+    @Test
+    void staysCrossingTheHorizonArePricedOnTheFlyOutsideIt() {
+        for (Room room : rooms) {
+            assertQuote(room, today.plusDays(HORIZON_DAYS - 3), today.plusDays(HORIZON_DAYS + 10));
+            assertQuote(room, today.plusDays(HORIZON_DAYS + 5), today.plusDays(HORIZON_DAYS + 12));
+            assertQuote(room, today.minusDays(3), today.plusDays(4));
+        }
+    }
+
+    @Test
+    void aBookingRepricesOnlyItsNightsForOccupancyRules() {
+        LocalDate checkIn = today.plusDays(30);
+        LocalDate checkOut = today.plusDays(34);
+        pricingService.quoteStay(1L, checkIn, checkOut);
+
+        bookings.add(new Stay("Single", checkIn, checkOut));
+        cacheInvalidationBus.publish(List.of(pricingService.bookingChange("Single", checkIn, checkOut)));
+
+        for (Room room : rooms) {
+            assertQuote(room, today.plusDays(28), today.plusDays(36));
+        }
+    }
+
+    @Test
+    void gridTotalsAreTheSumOfTheirNights() {
+        int nights = 40;
+        NightlyRateGrid grid = new NightlyRateGrid(today, nights, new long[]{2, 5, 9},
+                new String[]{"Single", "Deluxe", "Single"}, new long[]{10000, 20000, 30000});
+        Random random = new Random(7);
+        long[][] rates = new long[3][nights];
+        for (int room = 0; room < 3; room++) {
+            for (int night = 0; night < nights; night++) {
+                rates[room][night] = random.nextInt(100000);
+            }
+            grid.setNightlyRates(room, rates[room]);
+        }
+
+        for (int room = 0; room < 3; room++) {
+            assertArrayEquals(rates[room], grid.nightlyRates(room));
+            for (int from = 0; from <= nights; from++) {
+                long sum = 0;
+                for (int to = from; to <= nights; to++) {
+                    assertEquals(sum, grid.total(room, from, to));
+                    if (to < nights) {
+                        sum += rates[room][to];
+                    }
+                }
+            }
+        }
+        assertEquals(1, grid.indexOf(5));
+        assertEquals(-1, grid.indexOf(6));
+        assertArrayEquals(new int[]{0, 2}, grid.roomsByType().get("Single"));
+        assertEquals(-1, grid.nightIndex(today.minusDays(1)));
+    }
+
+    private void assertQuote(Room room, LocalDate checkIn, LocalDate checkOut) {
+        assertEquals(naiveTotal(room, checkIn, checkOut),
+                pricingService.quoteStay(room.id(), checkIn, checkOut).getTotalPrice(),
+                () -> "room " + room.id() + " from " + checkIn + " to " + checkOut);
+    }
+
+    private BigDecimal naiveTotal(Room room, LocalDate checkIn, LocalDate checkOut) {
+        long roomsOfType = rooms.stream().filter(other -> other.type().equals(room.type())).count();
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+            LocalDate date = night;
+            boolean inHorizon = !date.isBefore(today) && date.isBefore(today.plusDays(HORIZON_DAYS));
+            long booked = bookings.stream()
+                    .filter(stay -> stay.roomType().equals(room.type()))
+                    .filter(stay -> !stay.checkIn().isAfter(date) && stay.checkOut().isAfter(date))
+                    .count();
+            int occupancyPercent = inHorizon ? (int) (booked * 100 / roomsOfType) : 0;
+
+            BigDecimal price = room.price();
+            for (PricingRule rule : rules) {
+                boolean applies = (rule.getRoomType() == null || rule.getRoomType().equals(room.type()))
+                        && (rule.getStartDate() == null || !date.isBefore(rule.getStartDate()))
+                        && (rule.getEndDate() == null || !date.isAfter(rule.getEndDate()))
+                        && switch (rule.getRuleType()) {
+                    case WEEKEND -> date.getDayOfWeek() == DayOfWeek.FRIDAY || date.getDayOfWeek() == DayOfWeek.SATURDAY;
+                    case SEASON -> true;
+                    case OCCUPANCY -> occupancyPercent >= rule.getMinOccupancyPercent();
+                };
+                if (applies) {
+                    price = price.multiply(BigDecimal.ONE.add(rule.getAdjustmentPercent().movePointLeft(2)));
+                }
+            }
+            total = total.add(price.setScale(2, RoundingMode.HALF_UP));
+        }
+        return total;
+    }
+
+    private static PricingRule rule(RuleType ruleType, String roomType, LocalDate startDate, LocalDate endDate,
+                                    Integer minOccupancyPercent, String adjustmentPercent) {
+        PricingRule rule = new PricingRule();
+        rule.setName(ruleType + " " + adjustmentPercent);
+        rule.setRuleType(ruleType);
+        rule.setRoomType(roomType);
+        rule.setStartDate(startDate);
+        rule.setEndDate(endDate);
+        rule.setMinOccupancyPercent(minOccupancyPercent);
+        rule.setAdjustmentPercent(new BigDecimal(adjustmentPercent));
+        return rule;
+    }
+}
@@ -0,0 +1,140 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.entity.Booking;
+import com.sanjo.backend.entity.Room;
+import com.sanjo.backend.entity.User;
+import com.sanjo.backend.service.interfac.IBookingService;
+import com.sanjo.backend.service.interfac.IRoomService;
+import com.sanjo.backend.service.interfac.IUserService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sanjo.backend.tracing.StatementCountAssertions.assertStatements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Guards the number of SQL statements behind the listing calls, so a lazy association mapped row by row
+ * fails here rather than in production. Each test runs in a rolled back transaction against a local Postgres,
+ * see CacheInvalidationBusTests.
+ */
+@SpringBootTest
+@Transactional
+@EnabledIfEnvironmentVariable(named = "TEST_DB_URL", matches = "jdbc:postgresql:.*")
+class StatementCountTests {
+
+    private static final int STAYS = 3;
+
+    @Autowired
+    private IBookingService bookingService;
+    @Autowired
+    private IRoomService roomService;
+    @Autowired
+    private IUserService userService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User guest;
+    private final List<Room> rooms = new ArrayList<>();
+    private final List<String> confirmationCodes = new ArrayList<>();
+
+    @BeforeEach
+    void createStays() {
+        guest = new User();
+        guest.setEmail(UUID.randomUUID() + "@statement-count.test");
+        guest.setName("Statement Count");
+        guest.setPhoneNumber("0000000000");
+        guest.setPassword("unused");
+        guest.setRole("USER");
+        entityManager.persist(guest);
+
+        //One room per stay, so loading rooms lazily would take one statement per booking
+        for (int stay = 0; stay < STAYS; stay++) {
+            Room room = new Room();
+            room.setRoomType("Statement Count");
+            room.setRoomPrice(BigDecimal.TEN);
+            room.setRoomDescription("Room " + stay);
+            entityManager.persist(room);
+            rooms.add(room);
+
+            Booking booking = new Booking();
+            booking.setCheckInDate(LocalDate.now().plusYears(5).plusDays(stay * 10L));
+            booking.setCheckOutDate(booking.getCheckInDate().plusDays(2));
+            booking.setNumOfAdults(1);
+            booking.setBookingConfirmationCode(UUID.randomUUID().toString().substring(0, 10));
+            booking.setUser(guest);
+            booking.setRoom(room);
+            entityManager.persist(booking);
+            confirmationCodes.add(booking.getBookingConfirmationCode());
+        }
+        entityManager.flush();
+        //Nothing left in the persistence context, as at the start of a request
+        entityManager.clear();
+    }
+
+    @Test
+    void allBookingsLoadRoomsAndUsersInOneStatement() {
+        Response response = assertStatements(1, () -> bookingService.getAllBookings());
+        assertEquals(200, response.getStatusCode());
+    }
+
+    @Test
+    void bookingsByConfirmationCodesLoadInOneStatement() {
+        //Plus one for the caller, whose own bookings are the only ones returned
+        Response response = assertStatements(2, () -> bookingService.findBookingsByConfirmationCodes(guest.getEmail(), confirmationCodes));
+        assertEquals(STAYS, response.getBookingList().size());
+
+        User otherGuest = new User();
+        otherGuest.setEmail(UUID.randomUUID() + "@statement-count.test");
+        otherGuest.setName("Other Guest");
+        otherGuest.setPhoneNumber("0000000000");
+        otherGuest.setPassword("unused");
+        otherGuest.setRole("USER");
+        entityManager.persist(otherGuest);
+        assertEquals(0, bookingService.findBookingsByConfirmationCodes(otherGuest.getEmail(), confirmationCodes).getBookingList().size());
+    }
+
+    @Test
+    void roomsLoadInOneStatement() {
+        assertStatements(1, () -> roomService.getAllRooms());
+        Response response = assertStatements(1, () -> roomService.getRoomsByIds(rooms.stream().map(Room::getId).toList()));
+        assertEquals(STAYS, response.getRoomList().size());
+    }
+
+    @Test
+    void bookingHistoryLoadsStaysWithTheUser() {
+        Response response = assertStatements(1, () -> userService.getUserBookingHistory(String.valueOf(guest.getId())));
+        assertEquals(STAYS, response.getUser().getBookings().size());
+    }
+
+    @Test
+    void myInfoLoadsStaysWithTheUser() {
+        Response response = assertStatements(1, () -> userService.getMyInfo(guest.getEmail()));
+        assertEquals(STAYS, response.getUser().getBookings().size());
+    }
+
+    @Test
+    void bookingSearchPagesInOneStatementEach() {
+        Response firstPage = assertStatements(1, () -> bookingService.searchBookings(null, null, null,
+                "Statement Count", guest.getEmail().toUpperCase(), null, 2, null));
+        assertEquals(2, firstPage.getBookingSearchPage().getBookings().size());
+        assertEquals(rooms.get(STAYS - 1).getId(), firstPage.getBookingSearchPage().getBookings().get(0).getRoomId());
+
+        Response lastPage = assertStatements(1, () -> bookingService.searchBookings(null, null, null,
+                "Statement Count", guest.getEmail(), null, 2, firstPage.getBookingSearchPage().getNextCursor()));
+        assertEquals(1, lastPage.getBookingSearchPage().getBookings().size());
+        assertNull(lastPage.getBookingSearchPage().getNextCursor());
+    }
+}
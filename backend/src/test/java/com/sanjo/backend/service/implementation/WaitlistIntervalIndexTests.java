@@ -0,0 +1,177 @@
+package com.sanjo.backend.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitlistIntervalIndexTests {
+
+    private static final LocalDate DAY_ZERO = LocalDate.of(2030, 1, 1);
+
+    private record Stay(String roomType, int start, int end) {
+    }
+
+    @Test
+    void overlapIsInclusiveAtBothEnds() {
+        WaitlistIntervalIndex index = new WaitlistIntervalIndex();
+        index.add(1, "Single", day(10), day(15));
+        index.add(2, "Single", day(15), day(20));
+        index.add(3, "Single", day(21), day(22));
+        index.add(4, "Deluxe", day(10), day(30));
+
+        assertEquals(List.of(1L, 2L), index.overlapping("Single", day(15), day(15)));
+        assertEquals(List.of(1L), index.overlapping("Single", day(5), day(10)));
+        assertEquals(List.of(2L, 3L), index.overlapping("Single", day(20), day(21)));
+        assertEquals(List.of(), index.overlapping("Single", day(23), day(40)));
+        assertEquals(List.of(), index.overlapping("Suite", day(10), day(30)));
+    }
+
+    @Test
+    void maxEndShrinksWhenTheLongestStayIsRemoved() {
+        WaitlistIntervalIndex index = new WaitlistIntervalIndex();
+        index.add(1, "Single", day(1), day(100));
+        for (int id = 2; id <= 20; id++) {
+            index.add(id, "Single", day(id), day(id + 2));
+        }
+        assertEquals(List.of(1L), index.overlapping("Single", day(50), day(60)));
+
+        index.remove(1);
+        assertInvariants(index);
+        assertEquals(List.of(), index.overlapping("Single", day(50), day(60)));
+        assertEquals(22L, ((Number) ReflectionTestUtils.getField(root(index, "Single"), "maxEnd")).longValue()
+                - DAY_ZERO.toEpochDay());
+
+        //Removing an unknown id or one twice is a no-op
+        index.remove(1);
+        index.remove(99);
+        assertEquals(19, index.size());
+    }
+
+    @Test
+    void sequentialInsertsAndDeletesStayBalanced() {
+        WaitlistIntervalIndex index = new WaitlistIntervalIndex();
+        for (int id = 1; id <= 1000; id++) {
+            index.add(id, "Single", day(id), day(id + 1));
+            if (id % 100 == 0) {
+                assertInvariants(index);
+            }
+        }
+        //An AVL tree of 1000 nodes is at most 1.44 log2(1002) high
+        assertTrue(height(root(index, "Single")) <= 14);
+
+        for (int id = 1; id <= 1000; id += 2) {
+            index.remove(id);
+        }
+        assertInvariants(index);
+        assertEquals(500, index.size());
+        assertEquals(List.of(500L, 502L), index.overlapping("Single", day(500), day(502)));
+
+        for (int id = 2; id <= 1000; id += 2) {
+            index.remove(id);
+        }
+        assertEquals(0, index.size());
+        assertNull(root(index, "Single"));
+    }
+
+    @Test
+    void randomOperationsMatchABruteForceScan() {
+        Random random = new Random(42);
+        String[] roomTypes = {"Single", "Deluxe", "Suite"};
+        WaitlistIntervalIndex index = new WaitlistIntervalIndex();
+        Map<Long, Stay> expected = new HashMap<>();
+
+        for (int operation = 0; operation < 20000; operation++) {
+            int choice = random.nextInt(10);
+            if (choice < 5) {
+                long id = random.nextInt(2000);
+                int start = random.nextInt(365);
+                Stay stay = new Stay(roomTypes[random.nextInt(roomTypes.length)], start, start + 1 + random.nextInt(30));
+                index.add(id, stay.roomType(), day(stay.start()), day(stay.end()));
+                expected.putIfAbsent(id, stay);
+            } else if (choice < 8) {
+                long id = random.nextInt(2000);
+                index.remove(id);
+                expected.remove(id);
+            } else {
+                String roomType = roomTypes[random.nextInt(roomTypes.length)];
+                int from = random.nextInt(400);
+                int to = from + random.nextInt(20);
+                List<Long> matches = new ArrayList<>();
+                expected.forEach((id, stay) -> {
+                    if (stay.roomType().equals(roomType) && stay.start() <= to && stay.end() >= from) {
+                        matches.add(id);
+                    }
+                });
+                matches.sort(null);
+                assertEquals(matches, index.overlapping(roomType, day(from), day(to)));
+            }
+            if (operation % 1000 == 0) {
+                assertInvariants(index);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        assertInvariants(index);
+    }
+
+    //Per room type: ordered by (start, id), AVL-balanced, heights and maxEnd correct
+    private static void assertInvariants(WaitlistIntervalIndex index) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> roots = (Map<String, Object>) ReflectionTestUtils.getField(index, "roots");
+        int nodes = 0;
+        for (Object root : roots.values()) {
+            List<long[]> inOrder = new ArrayList<>();
+            check(root, inOrder);
+            for (int i = 1; i < inOrder.size(); i++) {
+                long[] previous = inOrder.get(i - 1);
+                long[] current = inOrder.get(i);
+                assertTrue(previous[0] < current[0] || (previous[0] == current[0] && previous[1] < current[1]),
+                        "nodes out of order");
+            }
+            nodes += inOrder.size();
+        }
+        assertEquals(index.size(), nodes);
+    }
+
+    //Returns the subtree's {height, maxEnd} after checking its root
+    private static long[] check(Object node, List<long[]> inOrder) {
+        if (node == null) {
+            return new long[]{0, Long.MIN_VALUE};
+        }
+        long[] left = check(ReflectionTestUtils.getField(node, "left"), inOrder);
+        inOrder.add(new long[]{field(node, "start"), field(node, "id")});
+        long[] right = check(ReflectionTestUtils.getField(node, "right"), inOrder);
+
+        long height = 1 + Math.max(left[0], right[0]);
+        long maxEnd = Math.max(field(node, "end"), Math.max(left[1], right[1]));
+        assertTrue(Math.abs(left[0] - right[0]) <= 1, "unbalanced node");
+        assertEquals(height, field(node, "height"));
+        assertEquals(maxEnd, field(node, "maxEnd"));
+        return new long[]{height, maxEnd};
+    }
+
+    private static Object root(WaitlistIntervalIndex index, String roomType) {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(index, "roots")).get(roomType);
+    }
+
+    private static int height(Object node) {
+        return node == null ? 0 : (int) field(node, "height");
+    }
+
+    private static long field(Object node, String name) {
+        return ((Number) ReflectionTestUtils.getField(node, name)).longValue();
+    }
+
+    private static LocalDate day(int offset) {
+        return DAY_ZERO.plusDays(offset);
+    }
+}
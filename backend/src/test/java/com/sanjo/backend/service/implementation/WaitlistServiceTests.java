@@ -0,0 +1,164 @@
+package com.sanjo.backend.service.implementation;
+
+import com.sanjo.backend.dto.Response;
+import com.sanjo.backend.dto.RoomHoldDTO;
+import com.sanjo.backend.entity.Room;
+import com.sanjo.backend.entity.User;
+import com.sanjo.backend.entity.WaitlistEntry;
+import com.sanjo.backend.entity.WaitlistEntry.Status;
+import com.sanjo.backend.repository.RoomRepository;
+import com.sanjo.backend.repository.UserRepository;
+import com.sanjo.backend.repository.WaitlistEntryRepository;
+import com.sanjo.backend.service.interfac.IAuditService;
+import com.sanjo.backend.service.interfac.IRoomHoldService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WaitlistServiceTests {
+
+    private static final LocalDate FREED_IN = LocalDate.now().plusDays(30);
+    private static final LocalDate FREED_OUT = FREED_IN.plusDays(3);
+
+    private final List<WaitlistEntry> entries = new ArrayList<>();
+    private final WaitlistEntryRepository waitlistEntryRepository = mock(WaitlistEntryRepository.class);
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+    private final IRoomHoldService roomHoldService = mock(IRoomHoldService.class);
+    private WaitlistService waitlistService;
+
+    @BeforeEach
+    void setUp() {
+        when(waitlistEntryRepository.findByStatus(Status.WAITING)).thenAnswer(invocation ->
+                entries.stream().filter(entry -> entry.getStatus() == Status.WAITING).toList());
+        when(waitlistEntryRepository.findById(anyLong())).thenAnswer(invocation ->
+                entries.stream().filter(entry -> entry.getId().equals(invocation.getArgument(0))).findFirst());
+        //Status changes land in the entries, as the index is refreshed from them on every WAITLIST event
+        when(waitlistEntryRepository.markOffered(anyLong(), anyLong(), anyString(), any(), eq(Status.WAITING), eq(Status.OFFERED)))
+                .thenAnswer(invocation -> transition(invocation.getArgument(0), Status.WAITING, Status.OFFERED));
+        when(waitlistEntryRepository.transition(anyLong(), any(), any()))
+                .thenAnswer(invocation -> transition(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        when(roomHoldService.getHeldRoomIds(any(), any())).thenReturn(Set.of());
+        when(roomHoldService.holdRoom(anyLong(), anyLong(), any(), any(), anyLong())).thenAnswer(invocation -> {
+            RoomHoldDTO hold = new RoomHoldDTO();
+            hold.setHoldId("hold-" + invocation.getArgument(0));
+            Response response = new Response();
+            response.setStatusCode(200);
+            response.setRoomHold(hold);
+            return response;
+        });
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(jdbcTemplate);
+        waitlistService = new WaitlistService(waitlistEntryRepository, mock(UserRepository.class), roomRepository,
+                roomHoldService, cacheInvalidationBus, mock(IAuditService.class),
+                new BookingPartitionService(jdbcTemplate, cacheInvalidationBus));
+        ReflectionTestUtils.setField(waitlistService, "offerTtlMinutes", 60L);
+        ReflectionTestUtils.setField(waitlistService, "maxCandidates", 100);
+    }
+
+    @Test
+    void theOldestOverlappingEntryOfTheExactTypeIsOfferedTheFreedRoom() {
+        entry(1, "Single", FREED_IN.plusDays(1), FREED_IN.plusDays(2));
+        entry(2, "Single", FREED_IN, FREED_OUT);
+        entry(3, "Single", FREED_OUT.plusDays(5), FREED_OUT.plusDays(6));
+        entry(4, "Deluxe", FREED_IN, FREED_OUT);
+        waitlistService.init();
+        //The repository matches types by substring, so a "Single Suite" comes back for "Single" too
+        when(roomRepository.findAllAvailableRoomsByDatesAndTypes(any(), any(), eq("Single"), any()))
+                .thenReturn(List.of(room(8, "Single Suite"), room(9, "Single")))
+                .thenReturn(List.of(room(8, "Single Suite")));
+
+        waitlistService.offerFreedNights("Single", FREED_IN, FREED_OUT);
+
+        verify(waitlistEntryRepository).markOffered(eq(1L), eq(9L), eq("hold-9"), any(), eq(Status.WAITING), eq(Status.OFFERED));
+        verify(waitlistEntryRepository, never()).markOffered(eq(2L), anyLong(), anyString(), any(), any(), any());
+        verify(waitlistEntryRepository, never()).markOffered(eq(3L), anyLong(), anyString(), any(), any(), any());
+        verify(waitlistEntryRepository, never()).markOffered(eq(4L), anyLong(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void matchingStopsOnceNoRoomOfTheTypeIsFreeForTheFreedNights() {
+        for (long id = 1; id <= 50; id++) {
+            entry(id, "Single", FREED_IN, FREED_OUT);
+        }
+        waitlistService.init();
+        when(roomRepository.findAllAvailableRoomsByDatesAndTypes(any(), any(), eq("Single"), any()))
+                .thenReturn(List.of(room(9, "Single")))
+                .thenReturn(List.of());
+
+        waitlistService.offerFreedNights("Single", FREED_IN, FREED_OUT);
+
+        //One offer, then one lookup for the next entry and one for the freed nights
+        verify(waitlistEntryRepository, times(1)).markOffered(anyLong(), anyLong(), anyString(), any(), any(), any());
+        verify(roomRepository, times(3)).findAllAvailableRoomsByDatesAndTypes(any(), any(), any(), any());
+        verify(waitlistEntryRepository, never()).findById(3L);
+    }
+
+    @Test
+    void entriesThatNoLongerWaitOrHaveStartedAreSkipped() {
+        entry(1, "Single", FREED_IN, FREED_OUT);
+        entry(2, "Single", LocalDate.now().minusDays(1), FREED_OUT);
+        entry(3, "Single", FREED_IN, FREED_OUT);
+        waitlistService.init();
+        entries.get(0).setStatus(Status.CANCELLED);
+        when(roomRepository.findAllAvailableRoomsByDatesAndTypes(any(), any(), eq("Single"), any()))
+                .thenReturn(List.of(room(9, "Single")));
+
+        waitlistService.offerFreedNights("Single", LocalDate.now().minusDays(1), FREED_OUT);
+
+        verify(waitlistEntryRepository).transition(2L, Status.WAITING, Status.EXPIRED);
+        verify(waitlistEntryRepository).markOffered(eq(3L), eq(9L), anyString(), any(), any(), any());
+        verify(waitlistEntryRepository, times(1)).markOffered(anyLong(), anyLong(), anyString(), any(), any(), any());
+        //The cancelled, the expired and the offered entry have all left the index
+        assertEquals(0, ((WaitlistIntervalIndex) ReflectionTestUtils.getField(waitlistService, "index")).size());
+    }
+
+    private void entry(long id, String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        User user = new User();
+        user.setId(100 + id);
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(id);
+        entry.setUser(user);
+        entry.setRoomType(roomType);
+        entry.setCheckInDate(checkInDate);
+        entry.setCheckOutDate(checkOutDate);
+        entry.setStatus(Status.WAITING);
+        entry.setCreatedAt(Instant.now());
+        entries.add(entry);
+    }
+
+    private int transition(Long id, Status from, Status to) {
+        for (WaitlistEntry entry : entries) {
+            if (entry.getId().equals(id) && entry.getStatus() == from) {
+                entry.setStatus(to);
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static Room room(long id, String roomType) {
+        Room room = new Room();
+        room.setId(id);
+        room.setRoomType(roomType);
+        return room;
+    }
+}
@@ -0,0 +1,56 @@
+package com.sanjo.backend.tracing;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Asserts how many SQL statements Hibernate prepares while a call runs, e.g.
+ * assertStatements(1, () -> bookingService.getAllBookings()). Needs a Spring context, since the counting
+ * inspector is registered by TracingConfig; lazy loads only show up if the call runs inside a transaction
+ * or open session, as it does when served over HTTP.
+ */
+public final class StatementCountAssertions {
+
+    private StatementCountAssertions() {
+    }
+
+    //Fails unless the call prepares exactly expected statements; returns what the call returned
+    public static <T> T assertStatements(int expected, Supplier<T> call) {
+        StatementCounter counter = StatementCounter.start();
+        T result;
+        try {
+            result = call.get();
+        } finally {
+            counter.stop();
+        }
+        if (counter.getTotal() != expected) {
+            fail("Expected " + expected + " SQL statements but " + counter.getTotal() + " ran:" + describe(counter));
+        }
+        return result;
+    }
+
+    //Fails if the call prepares any statement more than maxRepeats times, the signature of an N+1
+    public static <T> T assertNoRepeatedStatements(int maxRepeats, Supplier<T> call) {
+        StatementCounter counter = StatementCounter.start();
+        T result;
+        try {
+            result = call.get();
+        } finally {
+            counter.stop();
+        }
+        Map.Entry<String, Integer> mostRepeated = counter.getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() > maxRepeats) {
+            fail("Statement ran " + mostRepeated.getValue() + " times, at most " + maxRepeats + " allowed: "
+                    + mostRepeated.getKey());
+        }
+        return result;
+    }
+
+    private static String describe(StatementCounter counter) {
+        StringBuilder description = new StringBuilder();
+        counter.getCounts().forEach((sql, times) -> description.append("\n  ").append(times).append("x ").append(sql));
+        return description.toString();
+    }
+}
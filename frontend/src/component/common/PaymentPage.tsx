@@ -83,21 +83,32 @@ const CheckoutForm: React.FC<CheckoutFormProps> = ({ amount, onSuccess }) => {
 
 const PaymentPage: React.FC = () => {
     const [clientSecret, setClientSecret] = useState("");
+    const [amount, setAmount] = useState<number>(0);
     const location = useLocation();
     const navigate = useNavigate();
-    const { bookingDetails, roomPrice } = location.state || {};
+    const { bookingDetails } = location.state || {};
 
     useEffect(() => {
-        if (roomPrice) {
+        // The server prices the stay itself; only the stay is sent
+        if (bookingDetails) {
             fetch("http://localhost:8080/payments/create-payment-intent", {
                 method: "POST",
                 headers: { "Content-Type": "application/json", "Authorization": `Bearer ${localStorage.getItem("token")}` },
-                body: JSON.stringify({ amount: roomPrice }),
+                body: JSON.stringify({
+                    roomId: bookingDetails.roomId,
+                    checkInDate: bookingDetails.checkInDate,
+                    checkOutDate: bookingDetails.checkOutDate,
+                }),
             })
                 .then((res) => res.json())
-                .then((data) => setClientSecret(data.clientSecret));
+                .then((data) => {
+                    setClientSecret(data.clientSecret);
+                    if (data.stayQuote) {
+                        setAmount(data.stayQuote.totalPrice);
+                    }
+                });
         }
-    }, [roomPrice]);
+    }, [bookingDetails]);
 
     const handlePaymentSuccess = async (paymentIntent: any) => {
         try {
@@ -145,7 +156,7 @@ const PaymentPage: React.FC = () => {
                     <div className="bg-white p-8 border-3 border-pop-black shadow-neo transform rotate-1">
                         <div className="flex justify-between items-center mb-4">
                             <span className="text-gray-500 font-black uppercase text-sm">Total Amount</span>
-                            <span className="text-4xl font-black text-pop-black">₹{roomPrice}</span>
+                            <span className="text-4xl font-black text-pop-black">₹{amount}</span>
                         </div>
                         <div className="flex items-center text-xs font-bold text-gray-400 uppercase tracking-wider">
                             <Lock className="h-4 w-4 mr-2" /> Secure SSL Encryption
@@ -157,7 +168,7 @@ const PaymentPage: React.FC = () => {
                 <div className="w-full">
                     {clientSecret ? (
                         <Elements options={options} stripe={stripePromise}>
-                            <CheckoutForm amount={roomPrice} onSuccess={handlePaymentSuccess} />
+                            <CheckoutForm amount={amount} onSuccess={handlePaymentSuccess} />
                         </Elements>
                     ) : (
                         <div className="flex justify-center flex-col items-center">
@@ -19,7 +19,7 @@ const RoomCard: React.FC<RoomCardProps> = ({ room }) => {
           className="w-full h-full object-cover transition-transform duration-500 group-hover:scale-110"
         />
         <div className="absolute top-4 right-4 bg-pop-yellow text-pop-black px-3 py-1 font-black uppercase text-sm border-2 border-pop-black shadow-neo-sm transform rotate-2 group-hover:rotate-0 transition-transform">
-          ₹{room.roomPrice} / Night
+          {room.stayPrice != null ? `₹${room.stayPrice} / Stay` : `₹${room.roomPrice} / Night`}
         </div>
       </div>
 
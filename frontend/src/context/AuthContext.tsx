@@ -7,7 +7,7 @@ interface AuthContextType {
   token: string | null;
   isAuthenticated: boolean;
   isAdmin: boolean;
-  login: (token: string, role: string) => Promise<void>;
+  login: (token: string, role: string, refreshToken?: string) => Promise<void>;
   logout: () => void;
   loading: boolean;
 }
@@ -44,16 +44,23 @@ export const AuthProvider: React.FC<{ children: ReactNode }> = ({ children }) =>
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [token]);
 
-  const login = async (newToken: string, role: string) => {
+  const login = async (newToken: string, role: string, refreshToken?: string) => {
     localStorage.setItem('token', newToken);
     localStorage.setItem('role', role);
+    if (refreshToken) {
+      localStorage.setItem('refreshToken', refreshToken);
+    }
     setToken(newToken);
     await fetchUser();
   };
 
   const logout = () => {
+    if (localStorage.getItem('token')) {
+      ApiService.logout().catch(() => undefined);
+    }
     localStorage.removeItem('token');
     localStorage.removeItem('role');
+    localStorage.removeItem('refreshToken');
     setToken(null);
     setUser(null);
   };
@@ -26,7 +26,7 @@ const Login: React.FC = () => {
     try {
       const response = await ApiService.login(formData);
       if (response.statusCode === 200 && response.token && response.role) {
-        await login(response.token, response.role);
+        await login(response.token, response.role, response.refreshToken);
         navigate(from, { replace: true });
       } else {
         setError(response.message || 'Login failed');
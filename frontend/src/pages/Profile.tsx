@@ -5,10 +5,15 @@ import { BookingDTO, UserDTO } from '../types';
 import { Trash2, Calendar, MapPin, Phone, Mail, User, Clock, CheckCircle, AlertCircle, LogOut, Shield } from 'lucide-react';
 import ConfirmationModal from '../components/ConfirmationModal';
 
+const STAYS_PAGE_SIZE = 10;
+
 const Profile: React.FC = () => {
     const { user: authUser, logout } = useAuth();
     const [profile, setProfile] = useState<UserDTO | null>(null);
     const [bookings, setBookings] = useState<BookingDTO[]>([]);
+    const [bookingCount, setBookingCount] = useState(0);
+    const [pastCursor, setPastCursor] = useState<string | undefined>();
+    const [loadingMore, setLoadingMore] = useState(false);
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState('');
 
@@ -18,21 +23,16 @@ const Profile: React.FC = () => {
 
     const fetchProfileData = async () => {
         try {
-            // Fetch full profile info
-            const userResponse = await ApiService.getUserProfile();
-            if (userResponse.user) {
-                setProfile(userResponse.user);
-
-                // Fetch bookings
-                if (userResponse.user.bookings && userResponse.user.bookings.length > 0) {
-                    setBookings(userResponse.user.bookings);
-                } else {
-                    // Fallback to fetch specific history if empty
-                    const bookingResponse = await ApiService.getUserBookings(userResponse.user.id.toString());
-                    if (bookingResponse.bookingList) {
-                        setBookings(bookingResponse.bookingList);
-                    }
-                }
+            // Profile, stay counts, next upcoming stays and the first page of past stays
+            const staysResponse = await ApiService.getMyStays(STAYS_PAGE_SIZE, STAYS_PAGE_SIZE);
+            if (staysResponse.user) {
+                setProfile(staysResponse.user);
+            }
+            const stays = staysResponse.userStays;
+            if (stays) {
+                setBookings([...(stays.upcomingStays || []), ...(stays.pastStays || [])]);
+                setBookingCount((stays.upcomingCount || 0) + (stays.pastCount || 0));
+                setPastCursor(stays.nextPastCursor);
             }
         } catch (err: any) {
             setError(err.message || 'Failed to load profile');
@@ -41,6 +41,23 @@ const Profile: React.FC = () => {
         }
     };
 
+    const loadMorePastStays = async () => {
+        if (!pastCursor) return;
+        setLoadingMore(true);
+        try {
+            const staysResponse = await ApiService.getMyStays(0, STAYS_PAGE_SIZE, pastCursor);
+            const stays = staysResponse.userStays;
+            if (stays) {
+                setBookings(prev => [...prev, ...(stays.pastStays || [])]);
+                setPastCursor(stays.nextPastCursor);
+            }
+        } catch (err: any) {
+            setError(err.message || 'Failed to load past stays');
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     useEffect(() => {
         fetchProfileData();
         // eslint-disable-next-line react-hooks/exhaustive-deps
@@ -160,7 +177,7 @@ const Profile: React.FC = () => {
                         <div className="flex items-center justify-between mb-6 bg-white border-3 border-pop-black p-4 shadow-neo">
                             <h2 className="text-2xl font-black uppercase text-pop-black">Your Stays</h2>
                             <span className="bg-pop-black text-white px-4 py-1 font-black text-sm uppercase">
-                                {bookings.length} Bookings
+                                {bookingCount} Bookings
                             </span>
                         </div>
 
@@ -249,6 +266,16 @@ const Profile: React.FC = () => {
                                         </div>
                                     );
                                 })}
+
+                                {pastCursor && (
+                                    <button
+                                        onClick={loadMorePastStays}
+                                        disabled={loadingMore}
+                                        className="w-full bg-white border-3 border-pop-black shadow-neo py-3 font-black uppercase hover:shadow-neo-lg hover:-translate-y-1 transition-all disabled:opacity-50"
+                                    >
+                                        {loadingMore ? 'Loading...' : 'Show Older Stays'}
+                                    </button>
+                                )}
                             </div>
                         )}
                     </div>
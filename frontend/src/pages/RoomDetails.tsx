@@ -23,6 +23,7 @@ const RoomDetails: React.FC = () => {
     numOfChildren: 0
   });
   const [bookingLoading, setBookingLoading] = useState(false);
+  const [justBooked, setJustBooked] = useState(false);
 
   useEffect(() => {
     const fetchRoom = async () => {
@@ -43,6 +44,21 @@ const RoomDetails: React.FC = () => {
     fetchRoom();
   }, [roomId]);
 
+  // Warn when someone else books this room for overlapping dates while the form is open
+  useEffect(() => {
+    const { checkInDate, checkOutDate } = bookingData;
+    setJustBooked(false);
+    if (!room || !checkInDate || !checkOutDate) return;
+    return ApiService.subscribeToAvailability(
+      { checkInDate, checkOutDate, roomType: room.roomType },
+      (change) => {
+        if (change.roomId === room.id) {
+          setJustBooked(change.type === 'BOOKED');
+        }
+      }
+    );
+  }, [room, bookingData.checkInDate, bookingData.checkOutDate]);
+
   const handleBookingChange = (e: React.ChangeEvent<HTMLInputElement>) => {
     setBookingData({ ...bookingData, [e.target.name]: e.target.value });
   };
@@ -61,8 +77,7 @@ const RoomDetails: React.FC = () => {
           ...bookingData,
           roomId: room?.id,
           userId: user.id
-        },
-        roomPrice: room?.roomPrice
+        }
       }
     });
   };
@@ -166,6 +181,12 @@ const RoomDetails: React.FC = () => {
                 </div>
               )}
 
+              {justBooked && (
+                <div className="bg-pop-yellow text-pop-black p-4 border-2 border-pop-black mb-6 font-bold shadow-neo-sm">
+                  This room was just booked for some of your dates. Try other dates or another room.
+                </div>
+              )}
+
               {error && (
                 <div className="bg-red-100 text-red-600 p-4 border-2 border-red-500 mb-6 font-bold shadow-neo-sm">
                   {error}
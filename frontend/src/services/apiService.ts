@@ -1,7 +1,58 @@
 import { API_BASE_URL } from '../constants';
-import { AuthResponse } from '../types';
+import { AuthResponse, AvailabilityChangeDTO } from '../types';
 
 export class ApiService {
+  private static refreshing: Promise<void> | null = null;
+
+  // Access tokens are short-lived; treat one as stale 30s before its exp claim
+  private static isTokenStale(token: string): boolean {
+    try {
+      const payload = JSON.parse(atob(token.split('.')[1].replace(/-/g, '+').replace(/_/g, '/')));
+      return !payload.exp || payload.exp * 1000 - Date.now() < 30000;
+    } catch {
+      return true;
+    }
+  }
+
+  // Swaps the refresh token for a new pair; concurrent callers share one refresh
+  private static async ensureFreshToken() {
+    const token = localStorage.getItem('token');
+    const refreshToken = localStorage.getItem('refreshToken');
+    // Sessions from before refresh tokens hold a token the server no longer accepts; sign in again
+    if (token && !refreshToken) {
+      localStorage.removeItem('token');
+      return;
+    }
+    if (!token || !refreshToken || !this.isTokenStale(token)) {
+      return;
+    }
+
+    if (!this.refreshing) {
+      this.refreshing = (async () => {
+        try {
+          const response = await fetch(`${API_BASE_URL}/auth/refresh`, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ refreshToken }),
+          });
+          const data = await response.json();
+          if (data.statusCode === 200 && data.token && data.refreshToken) {
+            localStorage.setItem('token', data.token);
+            localStorage.setItem('refreshToken', data.refreshToken);
+          } else {
+            localStorage.removeItem('token');
+            localStorage.removeItem('refreshToken');
+          }
+        } catch (error) {
+          console.error('Token refresh failed:', error);
+        } finally {
+          this.refreshing = null;
+        }
+      })();
+    }
+    await this.refreshing;
+  }
+
   private static getHeaders(isMultipart = false) {
     const token = localStorage.getItem('token');
     const headers: HeadersInit = {};
@@ -19,6 +70,10 @@ export class ApiService {
 
   static async request(endpoint: string, method: string, body?: any, isMultipart = false): Promise<AuthResponse> {
     try {
+      if (!endpoint.startsWith('/auth/')) {
+        await this.ensureFreshToken();
+      }
+
       const response = await fetch(`${API_BASE_URL}${endpoint}`, {
         method,
         headers: this.getHeaders(isMultipart),
@@ -51,6 +106,11 @@ export class ApiService {
     return this.request('/auth/login', 'POST', data);
   }
 
+  // Revokes the current access token and refresh token on the server
+  static async logout() {
+    return this.request('/auth/logout', 'POST', { refreshToken: localStorage.getItem('refreshToken') });
+  }
+
   // Rooms
   static async getAllRooms() {
     return this.request('/rooms/all', 'GET');
@@ -60,6 +120,10 @@ export class ApiService {
     return this.request(`/rooms/room-by-id/${roomId}`, 'GET');
   }
 
+  static async getRoomsByIds(roomIds: number[]) {
+    return this.request(`/rooms/by-ids?ids=${roomIds.join(',')}`, 'GET');
+  }
+
   static async getAvailableRoomsByDateAndType(checkInDate: string, checkOutDate: string, roomType: string) {
     // Handling case where params might be empty strings
     const params = new URLSearchParams();
@@ -70,6 +134,49 @@ export class ApiService {
     return this.request(`/rooms/available-rooms-by-date-and-type?${params.toString()}`, 'GET');
   }
 
+  static async getFlexibleAvailability(windowStart: string, windowEnd: string, nights: number, roomType?: string) {
+    const params = new URLSearchParams({ windowStart, windowEnd, nights: String(nights) });
+    if (roomType) {
+      params.append('roomType', roomType);
+    }
+    return this.request(`/rooms/flexible-availability?${params.toString()}`, 'GET');
+  }
+
+  // Server-Sent Events of bookings and cancellations matching the filters; returns a function that closes the stream.
+  // EventSource only retries dropped connections itself, so a refused one (503 when the node is full) is reopened here
+  static subscribeToAvailability(
+    filters: { checkInDate?: string; checkOutDate?: string; roomType?: string },
+    onChange: (change: AvailabilityChangeDTO) => void,
+    onSubscribed?: () => void
+  ) {
+    const params = new URLSearchParams();
+    Object.entries(filters).forEach(([key, value]) => {
+      if (value) params.append(key, value);
+    });
+    let source: EventSource | null = null;
+    let retry: ReturnType<typeof setTimeout> | undefined;
+    let delay = 1000;
+    const open = () => {
+      source = new EventSource(`${API_BASE_URL}/rooms/availability-stream?${params.toString()}`);
+      source.addEventListener('subscribed', () => {
+        delay = 1000;
+        onSubscribed?.();
+      });
+      source.addEventListener('availability', (event) => onChange(JSON.parse((event as MessageEvent).data)));
+      source.onerror = () => {
+        if (source?.readyState === EventSource.CLOSED) {
+          retry = setTimeout(open, delay);
+          delay = Math.min(delay * 2, 60000);
+        }
+      };
+    };
+    open();
+    return () => {
+      clearTimeout(retry);
+      source?.close();
+    };
+  }
+
   static async getAllAvailableRooms() {
     return this.request('/rooms/all-available-rooms', 'GET');
   }
@@ -95,6 +202,14 @@ export class ApiService {
     return this.request('/bookings/all', 'GET');
   }
 
+  static async getArchivedBookings(filters: { userId?: number; roomId?: number; confirmationCode?: string } = {}, page = 0, size = 20) {
+    const params = new URLSearchParams({ page: page.toString(), size: size.toString() });
+    if (filters.userId !== undefined) params.append('userId', filters.userId.toString());
+    if (filters.roomId !== undefined) params.append('roomId', filters.roomId.toString());
+    if (filters.confirmationCode) params.append('confirmationCode', filters.confirmationCode);
+    return this.request(`/bookings/archive?${params.toString()}`, 'GET');
+  }
+
   static async getUserBookings(userId: string) {
     return this.request(`/users/get-user-booking/${userId}`, 'GET');
   }
@@ -107,6 +222,23 @@ export class ApiService {
     return this.request(`/bookings/get-by-confirmation-code/${code}`, 'GET');
   }
 
+  static async getBookingsByConfirmationCodes(codes: string[]) {
+    return this.request(`/bookings/by-confirmation-codes?codes=${codes.map(encodeURIComponent).join(',')}`, 'GET');
+  }
+
+  // Waitlist
+  static async joinWaitlist(roomType: string, checkInDate: string, checkOutDate: string) {
+    return this.request('/waitlist/join', 'POST', { roomType, checkInDate, checkOutDate });
+  }
+
+  static async getMyWaitlist() {
+    return this.request('/waitlist/mine', 'GET');
+  }
+
+  static async leaveWaitlist(entryId: number) {
+    return this.request(`/waitlist/${entryId}`, 'DELETE');
+  }
+
   // Users
   static async getAllUsers() {
     return this.request('/users/all', 'GET');
@@ -120,6 +252,12 @@ export class ApiService {
     return this.request('/users/get-logged-in-profile-info', 'GET');
   }
 
+  static async getMyStays(upcoming = 3, size = 10, pastCursor?: string) {
+    const params = new URLSearchParams({ upcoming: upcoming.toString(), size: size.toString() });
+    if (pastCursor) params.append('pastCursor', pastCursor);
+    return this.request(`/users/my-stays?${params.toString()}`, 'GET');
+  }
+
   // AI Chat
   static async sendChatMessage(message: string) {
     return this.request('/ai/chat', 'POST', { message });
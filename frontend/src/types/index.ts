@@ -13,9 +13,21 @@ export interface RoomDTO {
   roomPrice: number;
   roomPhotoUrl: string;
   roomDescription: string;
+  // Total for the searched dates, only set on date search results
+  stayPrice?: number;
   bookings?: BookingDTO[];
 }
 
+export interface StayQuoteDTO {
+  roomId: number;
+  roomType: string;
+  checkInDate: string;
+  checkOutDate: string;
+  nights: number;
+  totalPrice: number;
+  averageNightlyPrice: number;
+}
+
 export interface BookingDTO {
   id: number;
   checkInDate: string;
@@ -28,10 +40,63 @@ export interface BookingDTO {
   room?: RoomDTO;
 }
 
+export interface FlexibleStayDTO {
+  checkInDate: string;
+  checkOutDate: string;
+  nights: number;
+  availableRoomCount: number;
+  roomIds: number[];
+  cheapestRoomId?: number;
+  lowestStayPrice?: number;
+}
+
+export interface AvailabilityChangeDTO {
+  type: 'BOOKED' | 'RELEASED';
+  roomId: number;
+  roomType: string;
+  checkInDate: string;
+  checkOutDate: string;
+}
+
+export interface WaitlistEntryDTO {
+  id: number;
+  userId: number;
+  roomType: string;
+  checkInDate: string;
+  checkOutDate: string;
+  status: 'WAITING' | 'OFFERED' | 'BOOKED' | 'EXPIRED' | 'CANCELLED';
+  createdAt: string;
+  offeredRoomId?: number;
+  holdId?: string;
+  offerExpiresAt?: string;
+}
+
+export interface ArchivedBookingDTO {
+  id: number;
+  bookingConfirmationCode?: string;
+  checkInDate: string;
+  checkOutDate?: string;
+  numOfAdults?: number;
+  numOfChildren: number;
+  totalNumOfGuest: number;
+  roomId?: number;
+  userId?: number;
+  archivedAt: string;
+}
+
+export interface UserStaysDTO {
+  upcomingCount?: number;
+  pastCount?: number;
+  upcomingStays?: BookingDTO[];
+  pastStays?: BookingDTO[];
+  nextPastCursor?: string;
+}
+
 export interface AuthResponse {
   statusCode: number;
   message: string;
   token?: string;
+  refreshToken?: string;
   role?: 'USER' | 'ADMIN';
   expirationTime?: string;
   bookingConfirmationCode?: string;
@@ -41,6 +106,12 @@ export interface AuthResponse {
   userList?: UserDTO[];
   roomList?: RoomDTO[];
   bookingList?: BookingDTO[];
+  stayQuote?: StayQuoteDTO;
+  waitlistEntry?: WaitlistEntryDTO;
+  waitlistEntryList?: WaitlistEntryDTO[];
+  flexibleStayList?: FlexibleStayDTO[];
+  userStays?: UserStaysDTO;
+  archivedBookingList?: ArchivedBookingDTO[];
 }
 
 export interface LoginRequest {